@@ -0,0 +1,52 @@
+import java.io.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+class AsyncSnapshotter implements Closeable {
+    interface SnapshotWriter {
+        void write(Library view, SnapshotListener listener) throws IOException;
+    }
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "library-snapshotter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    Future<?> save(Library library, String fileName, SnapshotWriter writer, SnapshotListener listener) {
+        Library view = library.capture();
+        return executor.submit(() -> {
+            long start = System.nanoTime();
+            try {
+                writer.write(view, listener);
+                listener.onComplete(fileName, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            } catch (IOException e) {
+                listener.onFailure(fileName, e);
+            }
+        });
+    }
+
+    void awaitIdle() {
+        try {
+            executor.submit(() -> {
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+class AsyncSnapshotterTest extends LibraryDriverTest {
+    static void runAll(Path dir) {
+        run("snapshot writes the view captured at save", () -> snapshotWritesCapturedView(dir.resolve("view")));
+        run("journal keeps changes made while its base is written",
+                () -> journalKeepsChangesDuringBaseWrite(dir.resolve("journal")));
+        run("a failed base write detaches the journal", () -> failedBaseDetachesJournal(dir.resolve("failed")));
+        run("compressed save reports through the listener", () -> compressedSaveReports(dir.resolve("compressed")));
+    }
+
+    private static void snapshotWritesCapturedView(Path dir) throws Exception {
+        Files.createDirectories(dir);
+        String snapshot = dir.resolve("library.snap").toString();
+        Library library = library(3);
+        Library expected = library(3);
+
+        try (AsyncSnapshotter snapshotter = new AsyncSnapshotter()) {
+            CountDownLatch release = block(snapshotter);
+            snapshotter.save(library, snapshot, (view, listener) -> LibrarySnapshot.write(view, snapshot, 0, listener),
+                    SnapshotListener.NONE);
+            library.getBookStore("Main").addBook(book(99));
+            library.addReader(new BookReader("Late", "Reader", 99));
+            release.countDown();
+            snapshotter.awaitIdle();
+        }
+        assertSameLibrary(expected, LibrarySnapshot.load(snapshot).toLibrary());
+    }
+
+    private static void journalKeepsChangesDuringBaseWrite(Path dir) throws Exception {
+        Files.createDirectories(dir);
+        String snapshot = dir.resolve("library.snap").toString();
+        String journalFile = dir.resolve("library.journal").toString();
+        Library library = library(3);
+        AtomicLong completed = new AtomicLong(-1);
+
+        try (AsyncSnapshotter snapshotter = new AsyncSnapshotter()) {
+            CountDownLatch release = block(snapshotter);
+            LibraryJournal journal = LibraryJournal.create(library, snapshot, journalFile, snapshotter,
+                    new SnapshotListener() {
+                        @Override
+                        public void onComplete(String fileName, long millis) {
+                            completed.set(millis);
+                        }
+                    });
+            BookStore main = library.getBookStore("Main");
+            Book book = book(4);
+            main.addBook(book);
+            journal.logAddBook(main, book);
+            BookReader reader = new BookReader("Late", "Reader", 99);
+            library.addReader(reader);
+            journal.logAddReader(reader);
+            journal.sync();
+            check(!Files.exists(dir.resolve("library.snap")), "the base is still waiting on the snapshotter");
+            release.countDown();
+            snapshotter.awaitIdle();
+            check(completed.get() >= 0, "the listener hears about the base");
+            journal.close();
+        }
+        try (LibraryJournal reopened = LibraryJournal.open(snapshot, journalFile)) {
+            assertSameLibrary(library, reopened.getLibrary());
+        }
+    }
+
+    private static void failedBaseDetachesJournal(Path dir) throws Exception {
+        Files.createDirectories(dir);
+        String snapshot = dir.resolve("missing").resolve("library.snap").toString();
+        String journalFile = dir.resolve("library.journal").toString();
+        AtomicReference<IOException> failure = new AtomicReference<>();
+
+        try (AsyncSnapshotter snapshotter = new AsyncSnapshotter()) {
+            LibraryJournal journal = LibraryJournal.create(library(1), snapshot, journalFile, snapshotter,
+                    new SnapshotListener() {
+                        @Override
+                        public void onFailure(String fileName, IOException e) {
+                            failure.set(e);
+                        }
+                    });
+            snapshotter.awaitIdle();
+            check(failure.get() != null, "the listener hears about the failure");
+            check(journal.hasFailedBase(), "the journal knows its base is missing");
+            try {
+                journal.sync();
+                throw new AssertionError("sync succeeded without a base");
+            } catch (IOException e) {
+                check(e.getCause() == failure.get(), "sync reports the base failure");
+            }
+            journal.close();
+        }
+        check(!Files.exists(dir.resolve("library.journal")), "no journal without a base");
+    }
+
+    private static void compressedSaveReports(Path dir) throws Exception {
+        Files.createDirectories(dir);
+        String fileName = dir.resolve("library.serz").toString();
+        Library library = library(50);
+        long[] reported = new long[2];
+        Thread[] reporter = new Thread[1];
+
+        try (AsyncSnapshotter snapshotter = new AsyncSnapshotter()) {
+            snapshotter.save(library, fileName, (view, listener) -> LibraryDriver.writeCompressed(view, fileName, listener),
+                    new SnapshotListener() {
+                        @Override
+                        public void onCompressed(long rawBytes, long compressedBytes, double megabytesPerSecond) {
+                            reported[0] = rawBytes;
+                            reported[1] = compressedBytes;
+                            reporter[0] = Thread.currentThread();
+                        }
+                    });
+            snapshotter.awaitIdle();
+        }
+        check(reporter[0] != null && reporter[0] != Thread.currentThread(), "stats come from the snapshotter");
+        check(reported[0] > reported[1] && reported[1] > 0, "reported " + reported[0] + " -> " + reported[1]);
+        try (ObjectInputStream in = new ObjectInputStream(new CompressedBlockInputStream(dir.resolve("library.serz")))) {
+            assertSameLibrary(library, (Library) in.readObject());
+        }
+    }
+
+    private static CountDownLatch block(AsyncSnapshotter snapshotter) {
+        CountDownLatch release = new CountDownLatch(1);
+        snapshotter.save(new Library("Blocker"), "blocker", (view, listener) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, SnapshotListener.NONE);
+        return release;
+    }
+
+    private static Library library(int books) {
+        Library library = new Library("Async");
+        BookStore main = new BookStore("Main");
+        library.addBookStore(main);
+        for (int i = 0; i < books; i++) {
+            main.addBook(book(i));
+        }
+        library.addReader(new BookReader("Early", "Reader", 1));
+        return library;
+    }
+
+    private static Book book(int i) {
+        return new Book("Title " + i, List.of(new Author("First" + i, "Last")), 1900 + i, 1);
+    }
+}
@@ -0,0 +1,5 @@
+class Author extends Human {
+    public Author(String firstName, String lastName) {
+        super(firstName, lastName);
+    }
+}
@@ -0,0 +1,56 @@
+import java.io.*;
+import java.util.List;
+
+class Book implements Serializable {
+    private int id;
+    private String title;
+    private List<Author> authors;
+    private int publicationYear;
+    private int editionNumber;
+    private String storageName;
+
+    public Book(String title, List<Author> authors, int publicationYear, int editionNumber) {
+        this.title = title;
+        this.authors = authors;
+        this.publicationYear = publicationYear;
+        this.editionNumber = editionNumber;
+    }
+
+    public Book(String title, List<Author> authors, int publicationYear, int editionNumber, String storageName) {
+        this(title, authors, publicationYear, editionNumber);
+        this.storageName = storageName;
+    }
+
+    @Override
+    public String toString() {
+        return ReportRenderer.render(renderer -> renderer.book(this));
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    void assignId(int id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public List<Author> getAuthors() {
+        return authors;
+    }
+
+    public int getPublicationYear() {
+        return publicationYear;
+    }
+
+    public int getEditionNumber() {
+        return editionNumber;
+    }
+
+    public String getStorageName() {
+        return storageName;
+    }
+}
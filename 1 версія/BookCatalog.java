@@ -0,0 +1,37 @@
+import java.io.*;
+import java.util.List;
+import java.util.function.Consumer;
+
+abstract class BookCatalog {
+    abstract void addStore(String storeName);
+
+    abstract void add(String storeName, Book book);
+
+    abstract int getBookCount(String storeName);
+
+    abstract List<Book> books(String storeName);
+
+    abstract List<Book> books(int[] rows, int count);
+
+    abstract int[] storeRows(String storeName);
+
+    abstract void forEach(int[] rows, int count, Consumer<? super Book> action);
+
+    abstract Book findBook(int id);
+
+    // Rows are views, not identities: every lookup returns a new row, and forEach hands the same row to the
+    // action for the whole scan. Compare rows by getId() and keep a row past a scan only through detach().
+    abstract static class Row extends Book {
+        private static final long serialVersionUID = 1L;
+
+        Row() {
+            super(null, null, 0, 0);
+        }
+
+        abstract Book detach();
+
+        Object writeReplace() throws ObjectStreamException {
+            return detach();
+        }
+    }
+}
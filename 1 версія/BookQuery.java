@@ -0,0 +1,326 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+class BookQuery {
+    private static final int SEGMENT_SIZE = 8_192;
+    private static final int CHECK_INTERVAL = 1_024;
+
+    private final Library library;
+    private List<String> titleTerms;
+    private List<String> authorTerms;
+    private boolean yearRange;
+    private int fromYear;
+    private int toYear;
+    private String storeName;
+    private Boolean borrowed;
+    private Comparator<? super Book> order;
+    private int limit = Integer.MAX_VALUE;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    BookQuery(Library library) {
+        this.library = library;
+    }
+
+    public BookQuery titleContains(String terms) {
+        titleTerms = CatalogIndex.parseTerms(terms);
+        return this;
+    }
+
+    public BookQuery byAuthor(String terms) {
+        authorTerms = CatalogIndex.parseTerms(terms);
+        return this;
+    }
+
+    public BookQuery publishedBetween(int fromYear, int toYear) {
+        this.yearRange = true;
+        this.fromYear = fromYear;
+        this.toYear = toYear;
+        return this;
+    }
+
+    public BookQuery inStore(String storeName) {
+        this.storeName = storeName;
+        return this;
+    }
+
+    public BookQuery borrowed(boolean borrowed) {
+        this.borrowed = borrowed;
+        return this;
+    }
+
+    public BookQuery orderBy(Comparator<? super Book> order) {
+        this.order = order;
+        return this;
+    }
+
+    public BookQuery limit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit must not be negative: " + limit);
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    BookQuery pool(ForkJoinPool pool) {
+        this.pool = pool;
+        return this;
+    }
+
+    public List<Book> list() {
+        return plan().execute();
+    }
+
+    public <R> List<R> select(Function<? super Book, ? extends R> projection) {
+        List<Book> books = list();
+        List<R> rows = new ArrayList<>(books.size());
+        for (Book book : books) {
+            rows.add(projection.apply(book));
+        }
+        return rows;
+    }
+
+    public String explain() {
+        return plan().describe();
+    }
+
+    private Plan plan() {
+        Plan plan = new Plan();
+        if (storeName != null) {
+            BookStore bookStore = library.getBookStore(storeName);
+            plan.access = "StoreScan '" + storeName + "'";
+            plan.stores = bookStore != null ? List.of(bookStore) : List.of();
+            plan.estimate = bookStore != null ? bookStore.getBookCount() : 0;
+            return plan;
+        }
+
+        plan.access = "ParallelScan";
+        plan.stores = library.getBookStores();
+        for (BookStore bookStore : plan.stores) {
+            plan.estimate += bookStore.getBookCount();
+        }
+        if (titleTerms != null || authorTerms != null) {
+            List<String> terms = new ArrayList<>();
+            terms.addAll(titleTerms != null ? titleTerms : List.of());
+            terms.addAll(authorTerms != null ? authorTerms : List.of());
+            plan.useIndex("CatalogIndex " + terms, library.estimateSearch(terms),
+                    () -> library.searchBookIds(String.join(" ", terms)));
+        }
+        YearIndex yearIndex = library.getYearIndex();
+        if (yearRange && yearIndex != null) {
+            plan.useIndex("YearIndex [" + fromYear + ".." + toYear + "]", yearIndex.count(fromYear, toYear),
+                    () -> yearIndex.scan(fromYear, toYear));
+        }
+        if (Boolean.TRUE.equals(borrowed)) {
+            plan.useIndex("LoanIndex", library.getActiveLoanCount(), library::getBorrowedBookIds);
+        }
+        return plan;
+    }
+
+    private boolean matches(Book book) {
+        if (yearRange && (book.getPublicationYear() < fromYear || book.getPublicationYear() > toYear)) {
+            return false;
+        }
+        if (borrowed != null && library.getLoanCount(book.getId()) > 0 != borrowed) {
+            return false;
+        }
+        if (titleTerms != null) {
+            Set<String> tokens = new HashSet<>();
+            CatalogIndex.tokenize(book.getTitle(), tokens);
+            if (!containsAll(tokens, titleTerms)) {
+                return false;
+            }
+        }
+        if (authorTerms != null) {
+            Set<String> tokens = new HashSet<>();
+            for (Author author : book.getAuthors()) {
+                CatalogIndex.tokenize(author.getFirstName(), tokens);
+                CatalogIndex.tokenize(author.getLastName(), tokens);
+            }
+            return containsAll(tokens, authorTerms);
+        }
+        return true;
+    }
+
+    private static boolean containsAll(Set<String> tokens, List<String> terms) {
+        for (String term : terms) {
+            if (!term.endsWith("*")) {
+                if (!tokens.contains(term)) {
+                    return false;
+                }
+                continue;
+            }
+            String prefix = term.substring(0, term.length() - 1);
+            boolean found = false;
+            for (String token : tokens) {
+                if (token.startsWith(prefix)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean shortCircuits() {
+        return order == null && limit < Integer.MAX_VALUE;
+    }
+
+    private class Plan {
+        private String access;
+        private long estimate;
+        private Supplier<int[]> ids;
+        private List<BookStore> stores;
+
+        void useIndex(String access, long estimate, Supplier<int[]> ids) {
+            if (estimate < this.estimate) {
+                this.access = "IndexScan " + access;
+                this.estimate = estimate;
+                this.ids = ids;
+            }
+        }
+
+        List<Book> execute() {
+            List<Book> books = ids != null ? fetch(ids.get()) : scan();
+            if (order != null) {
+                books.sort(order);
+            }
+            return books.size() > limit ? new ArrayList<>(books.subList(0, limit)) : books;
+        }
+
+        private List<Book> fetch(int[] candidates) {
+            Arrays.sort(candidates);
+            List<Book> books = new ArrayList<>();
+            for (int i = 0; i < candidates.length && !(shortCircuits() && books.size() >= limit); i++) {
+                Book book = library.getBook(candidates[i]);
+                if (book != null && matches(book)) {
+                    books.add(book);
+                }
+            }
+            return books;
+        }
+
+        private List<Book> scan() {
+            List<Segment> segments = new ArrayList<>();
+            for (BookStore bookStore : stores) {
+                List<Book> books = bookStore.getBooks();
+                for (int from = 0; from < books.size(); from += SEGMENT_SIZE) {
+                    segments.add(new Segment(BookQuery.this, segments.size(), books, from,
+                            Math.min(books.size(), from + SEGMENT_SIZE)));
+                }
+            }
+            AtomicIntegerArray found = new AtomicIntegerArray(segments.size());
+            for (Segment segment : segments) {
+                segment.found = found;
+            }
+            pool.invoke(ForkJoinTask.adapt(() -> {
+                ForkJoinTask.invokeAll(segments);
+            }));
+
+            List<Book> books = new ArrayList<>();
+            for (Segment segment : segments) {
+                books.addAll(segment.matches);
+            }
+            return books;
+        }
+
+        String describe() {
+            List<String> filters = new ArrayList<>();
+            if (titleTerms != null) {
+                filters.add("title " + titleTerms);
+            }
+            if (authorTerms != null) {
+                filters.add("author " + authorTerms);
+            }
+            if (yearRange) {
+                filters.add("year " + fromYear + ".." + toYear);
+            }
+            if (borrowed != null) {
+                filters.add(borrowed ? "borrowed" : "not borrowed");
+            }
+
+            List<String> steps = new ArrayList<>();
+            if (limit < Integer.MAX_VALUE) {
+                steps.add("Limit " + limit + (shortCircuits() ? " (short-circuit)" : ""));
+            }
+            if (order != null) {
+                steps.add("Sort");
+            }
+            if (!filters.isEmpty()) {
+                steps.add("Filter " + String.join(" AND ", filters));
+            }
+            if (ids != null) {
+                steps.add(access + " (~" + estimate + " rows)");
+            } else {
+                int segments = 0;
+                for (BookStore bookStore : stores) {
+                    segments += (bookStore.getBookCount() + SEGMENT_SIZE - 1) / SEGMENT_SIZE;
+                }
+                steps.add(access + (storeName != null ? "" : " " + stores.size() + " stores") + " in " + segments
+                        + " segments on ForkJoinPool(" + pool.getParallelism() + " threads) (~" + estimate + " rows)");
+            }
+
+            StringBuilder plan = new StringBuilder();
+            for (int i = 0; i < steps.size(); i++) {
+                plan.append(i == 0 ? "" : "\n").append("  ".repeat(i)).append(i == 0 ? "" : "-> ").append(steps.get(i));
+            }
+            return plan.toString();
+        }
+    }
+
+    private static class Segment extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient BookQuery query;
+        private final transient List<Book> books;
+        private final transient List<Book> matches = new ArrayList<>();
+        private final int index;
+        private final int from;
+        private final int to;
+        private AtomicIntegerArray found;
+
+        Segment(BookQuery query, int index, List<Book> books, int from, int to) {
+            this.query = query;
+            this.index = index;
+            this.books = books;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            boolean shortCircuits = query.shortCircuits();
+            int limit = query.limit;
+            for (int i = from; i < to; i++) {
+                if (shortCircuits && ((i - from) % CHECK_INTERVAL == 0 && foundBefore() >= limit || matches.size() >= limit)) {
+                    return;
+                }
+                Book book = books.get(i);
+                if (query.matches(book)) {
+                    matches.add(book);
+                    found.lazySet(index, matches.size());
+                }
+            }
+        }
+
+        private long foundBefore() {
+            long total = 0;
+            for (int i = 0; i < index; i++) {
+                total += found.get(i);
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+class BookQueryTest extends LibraryDriverTest {
+    static void runAll(Path dir) {
+        run("query explain does not load lazy stores", () -> explainLeavesStoresUnloaded(dir.resolve("explain")));
+    }
+
+    private static void explainLeavesStoresUnloaded(Path dir) throws Exception {
+        Files.createDirectories(dir);
+        String file = dir.resolve("query.snap").toString();
+        Library library = new Library("Query");
+        for (String name : List.of("North", "South")) {
+            BookStore bookStore = new BookStore(name);
+            library.addBookStore(bookStore);
+            for (int i = 0; i < 50; i++) {
+                bookStore.addBook(new Book((i == 7 ? "Rare " : "Common ") + name, List.of(new Author("Ann", "Lee")),
+                        1990 + i, 1));
+            }
+        }
+        String indexed = library.query().titleContains("rare").explain();
+        check(indexed.contains("IndexScan CatalogIndex [rare] (~2 rows)"), indexed);
+
+        LibrarySnapshot.write(library, file);
+        Library lazy = LibrarySnapshot.open(file).toLazyLibrary();
+        String plan = lazy.query().titleContains("rare").explain();
+        for (BookStore bookStore : lazy.getBookStores()) {
+            check(!bookStore.isLoaded(), "explain loaded " + bookStore.getStoreName() + ":\n" + plan);
+        }
+        check(lazy.query().titleContains("rare").list().size() == 2, "query still finds lazy books");
+    }
+}
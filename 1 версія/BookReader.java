@@ -0,0 +1,114 @@
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+class BookReader extends Human implements Serializable {
+    private int registrationNumber;
+    private transient List<Book> borrowedBooks;
+    private transient int[] loanIds;
+    private transient boolean shared;
+    private transient Library owner;
+
+    public BookReader(String firstName, String lastName, int registrationNumber) {
+        super(firstName, lastName);
+        this.registrationNumber = registrationNumber;
+        this.borrowedBooks = new ArrayList<>();
+    }
+
+    public int getRegistrationNumber() {
+        return registrationNumber;
+    }
+
+    public List<Book> getBorrowedBooks() {
+        return Collections.unmodifiableList(borrowedBooks);
+    }
+
+    public void borrowBook(Book book) {
+        if (shared) {
+            borrowedBooks = new ArrayList<>(borrowedBooks);
+            shared = false;
+        }
+        borrowedBooks.add(book);
+        if (owner != null) {
+            owner.register(book);
+            owner.recordLoan(this, book);
+            owner.readerLoansChanged(borrowedBooks.size() - 1, borrowedBooks.size());
+        }
+    }
+
+    public boolean returnBook(Book book) {
+        int index = borrowedBooks.size() - 1;
+        while (index >= 0 && borrowedBooks.get(index) != book
+                && (book.getId() == 0 || borrowedBooks.get(index).getId() != book.getId())) {
+            index--;
+        }
+        if (index < 0) {
+            return false;
+        }
+        if (shared) {
+            borrowedBooks = new ArrayList<>(borrowedBooks);
+            shared = false;
+        }
+        Book returned = borrowedBooks.remove(index);
+        if (owner != null) {
+            owner.releaseLoan(this, returned);
+            owner.readerLoansChanged(borrowedBooks.size() + 1, borrowedBooks.size());
+        }
+        return true;
+    }
+
+    void attach(Library library) {
+        owner = library;
+        for (Book book : borrowedBooks) {
+            library.register(book);
+            library.recordLoan(this, book);
+        }
+    }
+
+    void detach() {
+        owner = null;
+    }
+
+    void resolveLoans(Library library) throws InvalidObjectException {
+        for (int id : loanIds) {
+            Book book = library.getBook(id);
+            if (book == null) {
+                throw new InvalidObjectException("Reader " + registrationNumber + " borrowed unknown book " + id);
+            }
+            borrowedBooks.add(book);
+        }
+        loanIds = null;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        int[] ids = new int[borrowedBooks.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = borrowedBooks.get(i).getId();
+            if (ids[i] == 0) {
+                throw new InvalidObjectException("Borrowed book is not in a library catalog: " + borrowedBooks.get(i));
+            }
+        }
+        out.writeObject(ids);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        loanIds = (int[]) in.readObject();
+        borrowedBooks = new ArrayList<>(loanIds.length);
+    }
+
+    BookReader capture() {
+        shared = true;
+        BookReader view = new BookReader(getFirstName(), getLastName(), registrationNumber);
+        view.borrowedBooks = borrowedBooks;
+        view.shared = true;
+        return view;
+    }
+
+    @Override
+    public String toString() {
+        return ReportRenderer.render(renderer -> renderer.reader(this));
+    }
+}
@@ -0,0 +1,179 @@
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+class BookStore implements Serializable {
+    private static final long serialVersionUID = 987654321L;
+    private String storeName;
+    private List<Book> books;
+    private transient boolean shared;
+    private transient Library owner;
+    private transient LibrarySnapshot snapshot;
+    private transient int snapshotIndex;
+    private transient BookCatalog catalog;
+    private transient int[] catalogRows;
+    private transient int catalogRowCount;
+
+    public BookStore(String storeName) {
+        this.storeName = storeName;
+        this.books = new ArrayList<>();
+    }
+
+    BookStore(String storeName, LibrarySnapshot snapshot, int snapshotIndex) {
+        this.storeName = storeName;
+        this.snapshot = snapshot;
+        this.snapshotIndex = snapshotIndex;
+    }
+
+    BookStore(String storeName, BookCatalog catalog) {
+        this.storeName = storeName;
+        this.catalog = catalog;
+        catalog.addStore(storeName);
+    }
+
+    public String getStoreName() {
+        return storeName;
+    }
+
+    public List<Book> getBooks() {
+        return Collections.unmodifiableList(loadedBooks());
+    }
+
+    public void addBook(Book book) {
+        if (catalog != null) {
+            if (owner != null) {
+                owner.registerExternal(book);
+            }
+            catalog.add(storeName, book);
+            return;
+        }
+        List<Book> current = loadedBooks();
+        if (shared) {
+            books = new ArrayList<>(current);
+            shared = false;
+        }
+        books.add(book);
+        if (owner != null) {
+            owner.stock(book);
+        }
+    }
+
+    public void addBooks(List<Book> newBooks) {
+        addBooks(newBooks, null);
+    }
+
+    // tokens, when given, holds each book's index tokens in list order so that callers can work them out in parallel.
+    void addBooks(List<Book> newBooks, List<String[]> tokens) {
+        if (catalog != null) {
+            for (Book book : newBooks) {
+                addBook(book);
+            }
+            return;
+        }
+        List<Book> current = loadedBooks();
+        if (shared) {
+            books = new ArrayList<>(current);
+            shared = false;
+        }
+        if (books instanceof ArrayList) {
+            ((ArrayList<Book>) books).ensureCapacity(books.size() + newBooks.size());
+        }
+        books.addAll(newBooks);
+        if (owner != null) {
+            for (int i = 0; i < newBooks.size(); i++) {
+                owner.stock(newBooks.get(i), tokens != null ? tokens.get(i) : null);
+            }
+        }
+    }
+
+    void forEachBook(Consumer<? super Book> action) {
+        if (catalog == null) {
+            loadedBooks().forEach(action);
+            return;
+        }
+        catalog.forEach(catalogRows != null ? catalogRows : catalog.storeRows(storeName), getBookCount(), action);
+    }
+
+    public int getBookCount() {
+        if (catalog != null) {
+            return catalogRows != null ? catalogRowCount : catalog.getBookCount(storeName);
+        }
+        return books != null ? books.size() : snapshot.storeBookCount(snapshotIndex);
+    }
+
+    boolean isLoaded() {
+        return catalog != null || books != null;
+    }
+
+    void attach(Library library) {
+        owner = library;
+        if (catalog != null) {
+            library.attachCatalog(catalog);
+            forEachBook(library::registerExternal);
+        } else if (books != null) {
+            for (Book book : books) {
+                library.stock(book);
+            }
+        }
+    }
+
+    void detach() {
+        owner = null;
+    }
+
+    BookStore capture() {
+        if (catalog != null) {
+            BookStore view = new BookStore(storeName);
+            view.books = null;
+            view.catalog = catalog;
+            view.catalogRowCount = catalog.getBookCount(storeName);
+            view.catalogRows = catalog.storeRows(storeName);
+            return view;
+        }
+        if (books == null) {
+            return new BookStore(storeName, snapshot, snapshotIndex);
+        }
+        shared = true;
+        BookStore view = new BookStore(storeName);
+        view.books = books;
+        view.shared = true;
+        return view;
+    }
+
+    private List<Book> loadedBooks() {
+        if (catalog != null) {
+            return catalogRows != null ? catalog.books(catalogRows, catalogRowCount) : catalog.books(storeName);
+        }
+        if (books == null) {
+            books = snapshot.books(snapshotIndex);
+            snapshot = null;
+            if (owner != null) {
+                for (Book book : books) {
+                    owner.stock(book);
+                }
+            }
+        }
+        return books;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        List<Book> current = loadedBooks();
+        if (catalog == null) {
+            out.defaultWriteObject();
+            return;
+        }
+        books = new ArrayList<>(current);
+        try {
+            out.defaultWriteObject();
+        } finally {
+            books = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return ReportRenderer.render(renderer -> renderer.bookStore(this));
+    }
+}
@@ -0,0 +1,273 @@
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+class BookTable extends BookCatalog {
+    private static final int NO_STRING = -1;
+
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> stringCodes = new HashMap<>();
+    private final Map<Long, Integer> authorCodes = new HashMap<>();
+    private int[] authorFirstNames = new int[16];
+    private int[] authorLastNames = new int[16];
+    private Author[] authorObjects = new Author[16];
+    private int authorCount;
+
+    private int[] ids = new int[16];
+    private int[] years = new int[16];
+    private int[] editions = new int[16];
+    private int[] titles = new int[16];
+    private int[] storageNames = new int[16];
+    private int[] authorOffsets = new int[17];
+    private int[] bookAuthors = new int[16];
+    private int rows;
+    private int[] rowsById = new int[16];
+
+    private final Map<String, Integer> storeIndexes = new HashMap<>();
+    private int[][] storeRows = new int[0][];
+    private int[] storeRowCounts = new int[0];
+
+    @Override
+    void addStore(String storeName) {
+        store(storeName);
+    }
+
+    @Override
+    void add(String storeName, Book book) {
+        if (book.getId() <= 0) {
+            throw new IllegalArgumentException("Book must have a catalog ID before it is stored in a table: " + book);
+        }
+        int store = store(storeName);
+        if (rows == ids.length) {
+            int capacity = rows * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            years = Arrays.copyOf(years, capacity);
+            editions = Arrays.copyOf(editions, capacity);
+            titles = Arrays.copyOf(titles, capacity);
+            storageNames = Arrays.copyOf(storageNames, capacity);
+            authorOffsets = Arrays.copyOf(authorOffsets, capacity + 1);
+        }
+        int first = authorOffsets[rows];
+        List<Author> authors = book.getAuthors();
+        if (first + authors.size() > bookAuthors.length) {
+            bookAuthors = Arrays.copyOf(bookAuthors, Math.max(bookAuthors.length * 2, first + authors.size()));
+        }
+        for (int i = 0; i < authors.size(); i++) {
+            bookAuthors[first + i] = authorCode(authors.get(i));
+        }
+        authorOffsets[rows + 1] = first + authors.size();
+        ids[rows] = book.getId();
+        years[rows] = book.getPublicationYear();
+        editions[rows] = book.getEditionNumber();
+        titles[rows] = stringCode(book.getTitle());
+        storageNames[rows] = stringCode(book.getStorageName());
+
+        if (book.getId() >= rowsById.length) {
+            rowsById = Arrays.copyOf(rowsById, Math.max(book.getId() + 1, rowsById.length * 2));
+        }
+        rowsById[book.getId()] = rows + 1;
+        if (storeRowCounts[store] == storeRows[store].length) {
+            storeRows[store] = Arrays.copyOf(storeRows[store], storeRowCounts[store] * 2);
+        }
+        storeRows[store][storeRowCounts[store]++] = rows++;
+    }
+
+    int size() {
+        return rows;
+    }
+
+    @Override
+    int getBookCount(String storeName) {
+        Integer store = storeIndexes.get(storeName);
+        return store != null ? storeRowCounts[store] : 0;
+    }
+
+    @Override
+    List<Book> books(String storeName) {
+        Integer store = storeIndexes.get(storeName);
+        return store != null ? books(storeRows[store], storeRowCounts[store]) : Collections.emptyList();
+    }
+
+    @Override
+    List<Book> books(int[] rows, int count) {
+        return new AbstractList<Book>() {
+            @Override
+            public Book get(int index) {
+                if (index < 0 || index >= count) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+                }
+                return new Row(BookTable.this, rows[index]);
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    @Override
+    void forEach(int[] rows, int count, Consumer<? super Book> action) {
+        Row row = new Row(this, 0);
+        for (int i = 0; i < count; i++) {
+            action.accept(row.at(rows[i]));
+        }
+    }
+
+    @Override
+    int[] storeRows(String storeName) {
+        Integer store = storeIndexes.get(storeName);
+        return store != null ? storeRows[store] : new int[0];
+    }
+
+    @Override
+    Book findBook(int id) {
+        int row = id > 0 && id < rowsById.length ? rowsById[id] - 1 : -1;
+        return row >= 0 ? new Row(this, row) : null;
+    }
+
+    long getFootprintBytes() {
+        long bytes = 4L * (ids.length + years.length + editions.length + titles.length + storageNames.length
+                + authorOffsets.length + bookAuthors.length + rowsById.length);
+        bytes += 12L * authorFirstNames.length + 48L * authorCodes.size();
+        for (int i = 0; i < storeRows.length; i++) {
+            bytes += 4L * storeRows[i].length;
+        }
+        for (String string : strings) {
+            bytes += 40 + string.length() + 48;
+        }
+        return bytes;
+    }
+
+    private int store(String storeName) {
+        Integer store = storeIndexes.get(storeName);
+        if (store == null) {
+            store = storeIndexes.size();
+            storeIndexes.put(storeName, store);
+            storeRows = Arrays.copyOf(storeRows, store + 1);
+            storeRows[store] = new int[16];
+            storeRowCounts = Arrays.copyOf(storeRowCounts, store + 1);
+        }
+        return store;
+    }
+
+    private int stringCode(String string) {
+        if (string == null) {
+            return NO_STRING;
+        }
+        Integer code = stringCodes.get(string);
+        if (code == null) {
+            code = strings.size();
+            strings.add(string);
+            stringCodes.put(string, code);
+        }
+        return code;
+    }
+
+    private int authorCode(Author author) {
+        int firstName = stringCode(author.getFirstName());
+        int lastName = stringCode(author.getLastName());
+        long key = (long) firstName << 32 | (lastName & 0xFFFFFFFFL);
+        Integer code = authorCodes.get(key);
+        if (code == null) {
+            if (authorCount == authorFirstNames.length) {
+                authorFirstNames = Arrays.copyOf(authorFirstNames, authorCount * 2);
+                authorLastNames = Arrays.copyOf(authorLastNames, authorCount * 2);
+                authorObjects = Arrays.copyOf(authorObjects, authorCount * 2);
+            }
+            code = authorCount++;
+            authorFirstNames[code] = firstName;
+            authorLastNames[code] = lastName;
+            authorCodes.put(key, code);
+        }
+        return code;
+    }
+
+    private String string(int code) {
+        return code == NO_STRING ? null : strings.get(code);
+    }
+
+    private Author author(int code) {
+        Author author = authorObjects[code];
+        if (author == null) {
+            author = new Author(string(authorFirstNames[code]), string(authorLastNames[code]));
+            authorObjects[code] = author;
+        }
+        return author;
+    }
+
+    static class Row extends BookCatalog.Row {
+        private static final long serialVersionUID = 1L;
+
+        private final transient BookTable table;
+        private int row;
+
+        private Row(BookTable table, int row) {
+            this.table = table;
+            this.row = row;
+        }
+
+        private Row at(int row) {
+            this.row = row;
+            return this;
+        }
+
+        @Override
+        public int getId() {
+            return table.ids[row];
+        }
+
+        @Override
+        public String getTitle() {
+            return table.string(table.titles[row]);
+        }
+
+        @Override
+        public List<Author> getAuthors() {
+            int first = table.authorOffsets[row];
+            int count = table.authorOffsets[row + 1] - first;
+            return new AbstractList<Author>() {
+                @Override
+                public Author get(int index) {
+                    if (index < 0 || index >= count) {
+                        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+                    }
+                    return table.author(table.bookAuthors[first + index]);
+                }
+
+                @Override
+                public int size() {
+                    return count;
+                }
+            };
+        }
+
+        @Override
+        public int getPublicationYear() {
+            return table.years[row];
+        }
+
+        @Override
+        public int getEditionNumber() {
+            return table.editions[row];
+        }
+
+        @Override
+        public String getStorageName() {
+            return table.string(table.storageNames[row]);
+        }
+
+        @Override
+        Book detach() {
+            Book book = new Book(getTitle(), List.copyOf(getAuthors()), getPublicationYear(), getEditionNumber(),
+                    getStorageName());
+            book.assignId(getId());
+            return book;
+        }
+    }
+}
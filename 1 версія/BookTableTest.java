@@ -0,0 +1,65 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+class BookTableTest extends LibraryDriverTest {
+    static void runAll(Path dir) {
+        run("table-backed storages register rows by id", BookTableTest::tableStoreRegistersRows);
+        run("table-backed library serializes as plain books", BookTableTest::tableLibrarySerializes);
+    }
+
+    private static void tableStoreRegistersRows() {
+        BookTable table = new BookTable();
+        Library library = new Library("Table");
+        BookStore main = new BookStore("Main", table);
+        library.addBookStore(main);
+        main.addBook(new Book("Dune", List.of(new Author("Frank", "Herbert")), 1965, 1, "Main"));
+        main.addBook(new Book("Dune Messiah", List.of(new Author("Frank", "Herbert")), 1969, 2, null));
+        main.addBook(new Book("Neuromancer", List.of(new Author("William", "Gibson"), new Author(null, "Anon")),
+                1984, 1, "Main"));
+
+        check(table.size() == 3 && main.getBookCount() == 3, "three rows in the table");
+        Book row = library.getBook(3);
+        check(row instanceof BookTable.Row, "lookups by id return table rows: " + row);
+        check(row.getTitle().equals("Neuromancer") && row.getPublicationYear() == 1984 && row.getEditionNumber() == 1
+                && "Main".equals(row.getStorageName()), "row columns: " + row);
+        check(row.getAuthors().size() == 2 && row.getAuthors().get(1).getFirstName() == null
+                && row.getAuthors().get(1).getLastName().equals("Anon"), "author offsets: " + row.getAuthors());
+        check(library.getBook(2).getStorageName() == null, "null strings stay null");
+        check(library.searchBooks("dune").size() == 2, "rows are in the catalog index");
+        check(library.countBooksPublished(1960, 1969) == 2, "rows are in the year index");
+        check(library.getStatistics().getBookCount() == 3
+                && library.getStatistics().getAuthorBookCount("Frank", "Herbert") == 2, "rows are counted");
+
+        BookReader reader = new BookReader("Ann", "Lee", 1);
+        library.addReader(reader);
+        check(library.checkout(1, 1) && library.getLoanCount(1) == 1, "rows can be borrowed by id");
+        check(library.removeBookStore("Main") == main && library.getStatistics().getBookCount() == 0,
+                "removing the storage uncounts its rows");
+        check(library.getBook(1) != null && library.getBook(2) == null, "only the borrowed row stays reachable");
+    }
+
+    private static void tableLibrarySerializes() throws Exception {
+        Library library = new LibraryGenerator(5).catalog(new BookTable()).stores(3).booksPerStore(50).readers(10)
+                .generate();
+        Library plain = new LibraryGenerator(5).stores(3).booksPerStore(50).readers(10).generate();
+        assertSameLibrary(plain, library);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(library);
+        }
+        Library restored;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            restored = (Library) in.readObject();
+        }
+        assertSameLibrary(plain, restored);
+        check(!(restored.getBook(1) instanceof BookTable.Row), "rows serialize as plain books");
+        int[] matches = library.searchBookIds("river");
+        check(matches.length > 0 && Arrays.equals(restored.searchBookIds("river"), matches), "same search results");
+    }
+}
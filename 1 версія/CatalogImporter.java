@@ -0,0 +1,522 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+class CatalogImporter {
+    static final String HEADER = "title";
+    private static final int FIELDS = 5;
+
+    private final Library library;
+    private int bufferSize = 8 << 20;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private Function<String, BookStore> storeFactory;
+    private BiConsumer<BookStore, Book> listener;
+    private Path rejectsFile;
+
+    CatalogImporter(Library library) {
+        this.library = library;
+        this.storeFactory = storeName -> {
+            BookStore bookStore = new BookStore(storeName);
+            library.addBookStore(bookStore);
+            return bookStore;
+        };
+    }
+
+    CatalogImporter bufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+        return this;
+    }
+
+    CatalogImporter threads(int threads) {
+        this.threads = Math.max(1, threads);
+        return this;
+    }
+
+    CatalogImporter storeFactory(Function<String, BookStore> storeFactory) {
+        this.storeFactory = storeFactory;
+        return this;
+    }
+
+    CatalogImporter listener(BiConsumer<BookStore, Book> listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    CatalogImporter rejectsFile(Path rejectsFile) {
+        this.rejectsFile = rejectsFile;
+        return this;
+    }
+
+    Report importFile(Path file) throws IOException {
+        byte delimiter = file.toString().toLowerCase(Locale.ROOT).endsWith(".csv") ? (byte) ',' : (byte) '\t';
+        Path rejects = rejectsFile != null ? rejectsFile : Paths.get(file + ".rejected");
+        Map<String, Author> authors = new ConcurrentHashMap<>();
+        BlockingQueue<ByteBuffer> freeBuffers = new ArrayBlockingQueue<>(threads * 2 + 2);
+        for (int i = 0; i < threads * 2 + 2; i++) {
+            freeBuffers.add(ByteBuffer.allocateDirect(bufferSize));
+        }
+        BlockingQueue<Future<Batch>> batches = new ArrayBlockingQueue<>(threads * 2);
+        ExecutorService parsers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "import-parser");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Thread reader = new Thread(() -> read(file, delimiter, authors, freeBuffers, batches, parsers), "import-reader");
+        reader.setDaemon(true);
+
+        Report report = new Report(threads);
+        Map<String, BookStore> stores = new HashMap<>();
+        long started = System.nanoTime();
+        BufferedWriter rejected = null;
+        reader.start();
+        try {
+            Batch batch;
+            while ((batch = CompressedBlockOutputStream.join(take(batches))) != null) {
+                for (Map.Entry<String, StoreRows> entry : batch.stores.entrySet()) {
+                    String storeName = entry.getKey();
+                    StoreRows rows = entry.getValue();
+                    BookStore bookStore = stores.computeIfAbsent(storeName, library::getBookStore);
+                    if (bookStore == null && (bookStore = storeFactory.apply(storeName)) != null) {
+                        stores.put(storeName, bookStore);
+                        report.storesCreated++;
+                    }
+                    if (bookStore == null) {
+                        for (int i = 0; i < rows.books.size(); i++) {
+                            batch.reject(rows.lines[i], "Storage cannot be created: " + storeName, storeName);
+                        }
+                        continue;
+                    }
+                    bookStore.addBooks(rows.books, rows.tokens);
+                    if (listener != null) {
+                        for (Book book : rows.books) {
+                            listener.accept(bookStore, book);
+                        }
+                    }
+                    report.imported += rows.books.size();
+                }
+                for (Reject reject : batch.rejects) {
+                    if (rejected == null) {
+                        rejected = Files.newBufferedWriter(rejects);
+                    }
+                    rejected.write((report.lines + reject.line + 1) + "\t" + reject.reason + "\t" + reject.text);
+                    rejected.newLine();
+                    report.rejected++;
+                }
+                report.lines += batch.lines;
+                report.bytes += batch.bytes;
+            }
+        } finally {
+            reader.interrupt();
+            parsers.shutdownNow();
+            if (rejected != null) {
+                rejected.close();
+            }
+        }
+        report.nanos = System.nanoTime() - started;
+        report.rejectsFile = report.rejected > 0 ? rejects : null;
+        return report;
+    }
+
+    private void read(Path file, byte delimiter, Map<String, Author> authors, BlockingQueue<ByteBuffer> freeBuffers,
+                      BlockingQueue<Future<Batch>> batches, ExecutorService parsers) {
+        try {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                Parser records = new Parser(delimiter, authors);
+                ByteBuffer buffer = freeBuffers.take();
+                buffer.clear();
+                boolean first = true;
+                while (true) {
+                    int read;
+                    do {
+                        read = channel.read(buffer);
+                    } while (read >= 0 && buffer.hasRemaining());
+                    boolean end = read < 0;
+                    buffer.flip();
+                    int cut = end ? buffer.limit() : records.completeRecords(buffer);
+                    if (cut == 0 && !end) {
+                        throw new IOException("A record in " + file + " is longer than the " + bufferSize
+                                + " byte buffer or opens a quote that it never closes");
+                    }
+                    ByteBuffer next = null;
+                    if (!end) {
+                        next = freeBuffers.take();
+                        next.clear();
+                        next.put(buffer.duplicate().position(cut));
+                    }
+                    buffer.limit(cut);
+                    ByteBuffer chunk = buffer;
+                    boolean skipHeader = first;
+                    batches.put(parsers.submit(() -> {
+                        try {
+                            return new Parser(delimiter, authors).parse(chunk, skipHeader);
+                        } finally {
+                            freeBuffers.add(chunk);
+                        }
+                    }));
+                    if (end) {
+                        break;
+                    }
+                    buffer = next;
+                    first = false;
+                }
+            }
+            batches.put(CompletableFuture.completedFuture(null));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            try {
+                batches.put(CompletableFuture.failedFuture(e));
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static Future<Batch> take(BlockingQueue<Future<Batch>> batches) throws IOException {
+        try {
+            return batches.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for parsed rows");
+        }
+    }
+
+    static void generateFeed(Path file, int rows, int stores, long seed) throws IOException {
+        Random random = new Random(seed);
+        boolean csv = file.toString().toLowerCase(Locale.ROOT).endsWith(".csv");
+        String delimiter = csv ? "," : "\t";
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+            out.println(String.join(delimiter, HEADER, "authors", "year", "edition", "storage"));
+            for (int i = 0; i < rows; i++) {
+                String title = LibraryGenerator.title(random);
+                if (csv && random.nextInt(20) == 0) {
+                    title = "\"" + title + ", \"\"Annotated\"\"\"";
+                }
+                StringBuilder authors = new StringBuilder(LibraryGenerator.firstName(random) + " " + LibraryGenerator.lastName(random));
+                if (random.nextInt(5) == 0) {
+                    authors.append("; ").append(LibraryGenerator.firstName(random)).append(' ')
+                            .append(LibraryGenerator.lastName(random));
+                }
+                String year = String.valueOf(LibraryGenerator.publicationYear(random));
+                int roll = random.nextInt(1_000);
+                if (roll == 0) {
+                    year = "unknown";
+                } else if (roll == 1) {
+                    title = "";
+                }
+                String row = String.join(delimiter, title, authors, year, String.valueOf(1 + random.nextInt(5)),
+                        LibraryGenerator.storeName(random.nextInt(stores)));
+                out.println(roll == 2 ? row.substring(0, row.lastIndexOf(delimiter)) : row);
+            }
+        }
+    }
+
+    static class Report {
+        private final int threads;
+        private long lines;
+        private long bytes;
+        private long imported;
+        private long rejected;
+        private int storesCreated;
+        private long nanos;
+        private Path rejectsFile;
+
+        Report(int threads) {
+            this.threads = threads;
+        }
+
+        public long getImported() {
+            return imported;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public Path getRejectsFile() {
+            return rejectsFile;
+        }
+
+        public double getRowsPerSecond() {
+            return lines / (nanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Imported %d rows, rejected %d (%s), %d storages in %.2f s: %.0f rows/s, %.1f MB/s, "
+                            + "%d parser threads", imported, rejected, rejectsFile != null ? rejectsFile : "none",
+                    storesCreated, nanos / 1e9, getRowsPerSecond(), bytes / 1e6 / (nanos / 1e9), threads);
+        }
+    }
+
+    private static class StoreRows {
+        private final List<Book> books = new ArrayList<>();
+        private final List<String[]> tokens = new ArrayList<>();
+        private int[] lines = new int[16];
+
+        void add(int line, Book book) {
+            if (books.size() == lines.length) {
+                lines = Arrays.copyOf(lines, lines.length * 2);
+            }
+            lines[books.size()] = line;
+            books.add(book);
+            tokens.add(CatalogIndex.tokens(book));
+        }
+    }
+
+    private static class Reject {
+        private final int line;
+        private final String reason;
+        private final String text;
+
+        Reject(int line, String reason, String text) {
+            this.line = line;
+            this.reason = reason;
+            this.text = text;
+        }
+    }
+
+    private static class Batch {
+        private final Map<String, StoreRows> stores = new LinkedHashMap<>();
+        private final List<Reject> rejects = new ArrayList<>();
+        private int lines;
+        private int bytes;
+
+        void reject(int line, String reason, String text) {
+            rejects.add(new Reject(line, reason, text));
+        }
+    }
+
+    private static class Parser {
+        private final byte delimiter;
+        private final Map<String, Author> authors;
+        private final int[] starts = new int[FIELDS];
+        private final int[] ends = new int[FIELDS];
+        private final boolean[] quoted = new boolean[FIELDS];
+        private byte[] scratch = new byte[256];
+        private int quotedNewlines;
+
+        Parser(byte delimiter, Map<String, Author> authors) {
+            this.delimiter = delimiter;
+            this.authors = authors;
+        }
+
+        Batch parse(ByteBuffer buffer, boolean skipHeader) {
+            Batch batch = new Batch();
+            batch.bytes = buffer.limit();
+            int position = 0;
+            while (position < buffer.limit()) {
+                int end = recordEnd(buffer, position);
+                if (end < 0) {
+                    end = buffer.limit();
+                }
+                int lineEnd = end > position && buffer.get(end - 1) == '\r' ? end - 1 : end;
+                int line = batch.lines;
+                batch.lines += 1 + quotedNewlines;
+                if (lineEnd > position && !(skipHeader && line == 0 && startsWithHeader(buffer, position, lineEnd))) {
+                    parseRow(buffer, position, lineEnd, line, batch);
+                }
+                position = end + 1;
+            }
+            return batch;
+        }
+
+        int completeRecords(ByteBuffer buffer) {
+            if (delimiter != ',') {
+                for (int i = buffer.limit() - 1; i >= 0; i--) {
+                    if (buffer.get(i) == '\n') {
+                        return i + 1;
+                    }
+                }
+                return 0;
+            }
+            int position = 0;
+            int end;
+            while ((end = recordEnd(buffer, position)) >= 0) {
+                position = end + 1;
+            }
+            return position;
+        }
+
+        // A CSV field that starts with a quote may hold newlines, so a record ends at the first newline outside
+        // quotes. Returns -1 when the record runs past the buffer; quotedNewlines counts the newlines it skipped.
+        private int recordEnd(ByteBuffer buffer, int from) {
+            quotedNewlines = 0;
+            boolean fieldStart = true;
+            for (int i = from; i < buffer.limit(); i++) {
+                byte b = buffer.get(i);
+                if (b == '\n') {
+                    return i;
+                }
+                if (fieldStart && b == '"' && delimiter == ',') {
+                    while (true) {
+                        if (++i >= buffer.limit()) {
+                            return -1;
+                        }
+                        b = buffer.get(i);
+                        if (b == '"') {
+                            if (i + 1 >= buffer.limit()) {
+                                return -1;
+                            }
+                            if (buffer.get(i + 1) != '"') {
+                                break;
+                            }
+                            i++;
+                        } else if (b == '\n') {
+                            quotedNewlines++;
+                        }
+                    }
+                }
+                fieldStart = b == delimiter;
+            }
+            return -1;
+        }
+
+        private void parseRow(ByteBuffer buffer, int from, int to, int line, Batch batch) {
+            int fields = 0;
+            int position = from;
+            while (fields < FIELDS) {
+                quoted[fields] = delimiter == ',' && position < to && buffer.get(position) == '"';
+                if (quoted[fields]) {
+                    int end = position + 1;
+                    while (end < to && (buffer.get(end) != '"' || end + 1 < to && buffer.get(end + 1) == '"')) {
+                        end += buffer.get(end) == '"' ? 2 : 1;
+                    }
+                    if (end >= to) {
+                        batch.reject(line, "Unterminated quoted field", text(buffer, from, to));
+                        return;
+                    }
+                    starts[fields] = position + 1;
+                    ends[fields] = end;
+                    position = end + 1;
+                    if (position < to && buffer.get(position) != delimiter) {
+                        batch.reject(line, "Text after a quoted field", text(buffer, from, to));
+                        return;
+                    }
+                } else {
+                    int end = position;
+                    while (end < to && buffer.get(end) != delimiter) {
+                        end++;
+                    }
+                    starts[fields] = position;
+                    ends[fields] = end;
+                    position = end;
+                }
+                fields++;
+                if (position >= to) {
+                    break;
+                }
+                position++;
+            }
+            if (fields != FIELDS || position < to) {
+                batch.reject(line, "Expected " + FIELDS + " fields", text(buffer, from, to));
+                return;
+            }
+
+            String title = field(buffer, 0).trim();
+            int publicationYear = number(buffer, 2);
+            int editionNumber = number(buffer, 3);
+            String storeName = field(buffer, 4).trim();
+            List<Author> bookAuthors = authors(field(buffer, 1));
+            String reason = title.isEmpty() ? "Missing title"
+                    : bookAuthors == null ? "Malformed authors"
+                    : publicationYear < 0 ? "Malformed publication year"
+                    : editionNumber < 1 ? "Malformed edition number"
+                    : storeName.isEmpty() ? "Missing storage" : null;
+            if (reason != null) {
+                batch.reject(line, reason, text(buffer, from, to));
+                return;
+            }
+            batch.stores.computeIfAbsent(storeName, key -> new StoreRows())
+                    .add(line, new Book(title, bookAuthors, publicationYear, editionNumber, storeName));
+        }
+
+        private List<Author> authors(String field) {
+            List<Author> result = new ArrayList<>(1);
+            int start = 0;
+            while (start <= field.length()) {
+                int end = field.indexOf(';', start);
+                if (end < 0) {
+                    end = field.length();
+                }
+                String name = field.substring(start, end).trim();
+                int space = name.lastIndexOf(' ');
+                if (space <= 0) {
+                    return null;
+                }
+                result.add(authors.computeIfAbsent(name,
+                        key -> new Author(key.substring(0, space).trim(), key.substring(space + 1))));
+                start = end + 1;
+            }
+            return List.copyOf(result);
+        }
+
+        private int number(ByteBuffer buffer, int field) {
+            int start = starts[field];
+            int end = ends[field];
+            while (start < end && buffer.get(start) == ' ') {
+                start++;
+            }
+            while (end > start && buffer.get(end - 1) == ' ') {
+                end--;
+            }
+            if (start == end || end - start > 9) {
+                return -1;
+            }
+            int value = 0;
+            for (int i = start; i < end; i++) {
+                int digit = buffer.get(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    return -1;
+                }
+                value = value * 10 + digit;
+            }
+            return value;
+        }
+
+        private String field(ByteBuffer buffer, int field) {
+            String value = decode(buffer, starts[field], ends[field]);
+            return quoted[field] ? value.replace("\"\"", "\"") : value;
+        }
+
+        private boolean startsWithHeader(ByteBuffer buffer, int from, int to) {
+            return to - from >= HEADER.length()
+                    && decode(buffer, from, from + HEADER.length()).equalsIgnoreCase(HEADER);
+        }
+
+        private String text(ByteBuffer buffer, int from, int to) {
+            return decode(buffer, from, to);
+        }
+
+        private String decode(ByteBuffer buffer, int from, int to) {
+            int length = to - from;
+            if (length > scratch.length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            buffer.get(from, scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+class CatalogImporterTest extends LibraryDriverTest {
+    static void runAll(Path dir) {
+        run("import reports a reader failure behind a full queue", () -> importReportsReaderFailure(dir.resolve("import")));
+        run("import keeps newlines inside quoted fields", () -> importKeepsQuotedNewlines(dir.resolve("quoted")));
+    }
+
+    private static void importKeepsQuotedNewlines(Path dir) throws Exception {
+        Files.createDirectories(dir);
+        Path feed = dir.resolve("feed.csv");
+        StringBuilder csv = new StringBuilder("title,authors,year,edition,storage\n");
+        for (int i = 0; i < 40; i++) {
+            csv.append("\"Line ").append(i).append("\nand \"\"more\"\"\nstill ").append(i)
+                    .append("\",Ann Lee,2000,1,").append(i % 2 == 0 ? "Main" : "Annex").append('\n');
+            if (i == 20) {
+                csv.append("Broken,Ann Lee,year,1,Main\n");
+            }
+        }
+        Files.writeString(feed, csv);
+
+        Library library = new Library("Import");
+        library.addBookStore(new BookStore("Main"));
+        Path rejects = dir.resolve("rejects.tsv");
+        CatalogImporter.Report report = new CatalogImporter(library).bufferSize(128).threads(2).rejectsFile(rejects)
+                .importFile(feed);
+
+        check(report.getImported() == 40 && report.getRejected() == 1, report.toString());
+        List<Book> main = library.getBookStore("Main").getBooks();
+        check(main.size() == 20 && library.getBookStore("Annex").getBookCount() == 20, "rows reach their storages");
+        for (int i = 0; i < 20; i++) {
+            int row = 2 * i;
+            check(main.get(i).getTitle().equals("Line " + row + "\nand \"more\"\nstill " + row),
+                    "title " + main.get(i).getTitle());
+        }
+        check(library.searchBooks("still").size() == 40, "imported books are indexed");
+        check(Files.readString(rejects).startsWith("65\t"), "reject keeps its file line: " + Files.readString(rejects));
+    }
+
+    private static void importReportsReaderFailure(Path dir) throws Exception {
+        Files.createDirectories(dir);
+        Path feed = dir.resolve("feed.csv");
+        StringBuilder csv = new StringBuilder("title,authors,year,edition,storage\n");
+        for (int i = 0; i < 30; i++) {
+            csv.append("Title ").append(i).append(",Ann Lee,2000,1,Main\n");
+        }
+        csv.append("x".repeat(400)).append(",Ann Lee,2000,1,Main\n");
+        Files.writeString(feed, csv);
+
+        Library library = new Library("Import");
+        library.addBookStore(new BookStore("Main"));
+        CatalogImporter importer = new CatalogImporter(library).bufferSize(256).threads(1).listener((store, book) -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        CompletableFuture<Object> result = CompletableFuture.supplyAsync(() -> {
+            try {
+                return importer.importFile(feed);
+            } catch (IOException e) {
+                return e;
+            }
+        });
+        try {
+            Object outcome = result.get(10, TimeUnit.SECONDS);
+            check(outcome instanceof IOException && ((IOException) outcome).getMessage().contains("longer than"),
+                    "import fails with the reader's exception: " + outcome);
+        } catch (TimeoutException e) {
+            throw new AssertionError("import hung after the reader failed");
+        }
+    }
+}
@@ -0,0 +1,442 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+class CatalogIndex {
+    private final TreeMap<String, PostingList> postings = new TreeMap<>();
+    private final TrigramIndex trigrams = new TrigramIndex();
+
+    void add(Book book) {
+        add(book, tokens(book));
+    }
+
+    void add(Book book, String[] tokens) {
+        for (String token : tokens) {
+            PostingList list = postings.get(token);
+            if (list == null) {
+                list = new PostingList();
+                postings.put(token, list);
+                trigrams.addTerm(token);
+            }
+            list.add(book.getId());
+        }
+    }
+
+    void removeAll(List<Book> books) {
+        Map<String, BitSet> removed = new HashMap<>();
+        for (Book book : books) {
+            for (String token : tokens(book)) {
+                removed.computeIfAbsent(token, key -> new BitSet()).set(book.getId());
+            }
+        }
+        // Emptied lists stay in the map because the trigram index cannot drop a term.
+        for (Map.Entry<String, BitSet> entry : removed.entrySet()) {
+            PostingList list = postings.get(entry.getKey());
+            if (list != null) {
+                list.removeAll(entry.getValue());
+            }
+        }
+    }
+
+    int[] fuzzySearch(String query, int limit) {
+        List<String> words = new ArrayList<>();
+        tokenize(query, words);
+        if (words.isEmpty()) {
+            return new int[0];
+        }
+
+        List<List<String>> wordTerms = new ArrayList<>();
+        List<List<Integer>> wordDistances = new ArrayList<>();
+        long[] estimates = new long[words.size()];
+        for (int w = 0; w < words.size(); w++) {
+            List<Integer> distances = new ArrayList<>();
+            List<String> terms = trigrams.match(words.get(w), distances);
+            long estimate = 0;
+            for (String term : terms) {
+                estimate += postings.get(term).size();
+            }
+            estimates[w] = estimate << 32 | w;
+            wordTerms.add(terms);
+            wordDistances.add(distances);
+        }
+        Arrays.sort(estimates);
+
+        int[] ids = null;
+        int[] scores = null;
+        for (long estimate : estimates) {
+            List<String> terms = wordTerms.get((int) estimate);
+            List<Integer> distances = wordDistances.get((int) estimate);
+            long[] matches = new long[0];
+            int length = 0;
+            for (int i = 0; i < terms.size(); i++) {
+                PostingList list = postings.get(terms.get(i));
+                int[] termIds = ids == null ? list.toArray() : list.retain(ids);
+                if (length + termIds.length > matches.length) {
+                    matches = Arrays.copyOf(matches, Math.max(matches.length * 2, length + termIds.length));
+                }
+                for (int id : termIds) {
+                    matches[length++] = (long) id << 32 | distances.get(i);
+                }
+            }
+            Arrays.sort(matches, 0, length);
+
+            int[] wordIds = new int[length];
+            int[] wordScores = new int[length];
+            int count = 0;
+            for (int i = 0; i < length; i++) {
+                int id = (int) (matches[i] >>> 32);
+                if (count == 0 || wordIds[count - 1] != id) {
+                    wordIds[count] = id;
+                    wordScores[count++] = (int) matches[i];
+                }
+            }
+            if (ids == null) {
+                ids = Arrays.copyOf(wordIds, count);
+                scores = Arrays.copyOf(wordScores, count);
+            } else {
+                int kept = 0;
+                for (int i = 0, j = 0; i < ids.length && j < count; ) {
+                    if (ids[i] < wordIds[j]) {
+                        i++;
+                    } else if (ids[i] > wordIds[j]) {
+                        j++;
+                    } else {
+                        ids[kept] = ids[i];
+                        scores[kept++] = scores[i++] + wordScores[j++];
+                    }
+                }
+                ids = Arrays.copyOf(ids, kept);
+                scores = Arrays.copyOf(scores, kept);
+            }
+            if (ids.length == 0) {
+                return ids;
+            }
+        }
+
+        long[] ranked = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            ranked[i] = (long) scores[i] << 32 | ids[i];
+        }
+        Arrays.sort(ranked);
+        int[] result = new int[Math.min(limit, ranked.length)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (int) ranked[i];
+        }
+        return result;
+    }
+
+    int[] search(String query) {
+        List<String> terms = parseTerms(query);
+        if (terms.isEmpty()) {
+            return new int[0];
+        }
+
+        List<PostingList> exact = new ArrayList<>();
+        List<int[]> prefixed = new ArrayList<>();
+        for (String term : terms) {
+            if (term.endsWith("*")) {
+                prefixed.add(union(term.substring(0, term.length() - 1)));
+            } else {
+                PostingList list = postings.get(term);
+                if (list == null) {
+                    return new int[0];
+                }
+                exact.add(list);
+            }
+        }
+        exact.sort((a, b) -> Integer.compare(a.size(), b.size()));
+        prefixed.sort((a, b) -> Integer.compare(a.length, b.length));
+
+        int[] result;
+        int next = 0;
+        if (prefixed.isEmpty() || !exact.isEmpty() && exact.get(0).size() < prefixed.get(0).length) {
+            result = exact.get(next++).toArray();
+        } else {
+            result = prefixed.remove(0);
+        }
+        for (int i = next; i < exact.size() && result.length > 0; i++) {
+            result = exact.get(i).retain(result);
+        }
+        for (int i = 0; i < prefixed.size() && result.length > 0; i++) {
+            result = intersect(result, prefixed.get(i));
+        }
+        return result;
+    }
+
+    long estimate(List<String> terms) {
+        if (terms.isEmpty()) {
+            return 0;
+        }
+        long estimate = Long.MAX_VALUE;
+        for (String term : terms) {
+            long matches = 0;
+            if (term.endsWith("*")) {
+                for (PostingList list : range(term.substring(0, term.length() - 1)).values()) {
+                    matches += list.size();
+                }
+            } else {
+                PostingList list = postings.get(term);
+                matches = list != null ? list.size() : 0;
+            }
+            estimate = Math.min(estimate, matches);
+        }
+        return estimate;
+    }
+
+    int getTokenCount() {
+        return postings.size();
+    }
+
+    long getPostingBytes() {
+        long bytes = 0;
+        for (PostingList list : postings.values()) {
+            bytes += list.getByteSize();
+        }
+        return bytes;
+    }
+
+    private SortedMap<String, PostingList> range(String prefix) {
+        return prefix.isEmpty() ? postings : postings.subMap(prefix, prefix + Character.MAX_VALUE);
+    }
+
+    private int[] union(String prefix) {
+        SortedMap<String, PostingList> range = range(prefix);
+        if (range.size() == 1) {
+            return range.values().iterator().next().toArray();
+        }
+        int total = 0;
+        List<int[]> parts = new ArrayList<>(range.size());
+        for (PostingList list : range.values()) {
+            int[] ids = list.toArray();
+            parts.add(ids);
+            total += ids.length;
+        }
+        int[] union = new int[total];
+        int length = 0;
+        for (int[] ids : parts) {
+            System.arraycopy(ids, 0, union, length, ids.length);
+            length += ids.length;
+        }
+        return distinctSorted(union, length);
+    }
+
+    private static int[] intersect(int[] small, int[] large) {
+        int[] result = new int[small.length];
+        int count = 0;
+        int j = 0;
+        for (int i = 0; i < small.length && j < large.length; i++) {
+            int id = small[i];
+            int low = j;
+            int step = 1;
+            while (j < large.length && large[j] < id) {
+                low = j;
+                j = Math.min(j + step, large.length);
+                step <<= 1;
+            }
+            int position = Arrays.binarySearch(large, low, j < large.length ? j + 1 : large.length, id);
+            if (position >= 0) {
+                result[count++] = id;
+                j = position + 1;
+            } else {
+                j = -position - 1;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static int[] distinctSorted(int[] ids, int length) {
+        Arrays.sort(ids, 0, length);
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (count == 0 || ids[count - 1] != ids[i]) {
+                ids[count++] = ids[i];
+            }
+        }
+        return count == ids.length ? ids : Arrays.copyOf(ids, count);
+    }
+
+    static List<String> parseTerms(String query) {
+        List<String> terms = new ArrayList<>();
+        for (String term : query.trim().split("\\s+")) {
+            boolean prefix = term.endsWith("*");
+            List<String> tokens = new ArrayList<>();
+            tokenize(prefix ? term.substring(0, term.length() - 1) : term, tokens);
+            for (int i = 0; i < tokens.size(); i++) {
+                terms.add(prefix && i == tokens.size() - 1 ? tokens.get(i) + "*" : tokens.get(i));
+            }
+        }
+        return terms;
+    }
+
+    static String[] tokens(Book book) {
+        Set<String> tokens = new HashSet<>();
+        tokenize(book.getTitle(), tokens);
+        for (Author author : book.getAuthors()) {
+            tokenize(author.getFirstName(), tokens);
+            tokenize(author.getLastName(), tokens);
+        }
+        return tokens.toArray(new String[0]);
+    }
+
+    static void tokenize(String text, Collection<String> tokens) {
+        if (text == null) {
+            return;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean letter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+    }
+
+    private static class PostingList {
+        private static final int SKIP_INTERVAL = 128;
+
+        private byte[] data = new byte[4];
+        private int length;
+        private int count;
+        private int lastId;
+        private int[] skipIds = new int[1];
+        private int[] skipOffsets = new int[1];
+        private int[] unsorted;
+        private int unsortedCount;
+
+        void add(int id) {
+            if (id > lastId) {
+                if (count % SKIP_INTERVAL == 0) {
+                    int block = count / SKIP_INTERVAL;
+                    if (block == skipIds.length) {
+                        skipIds = Arrays.copyOf(skipIds, block * 2);
+                        skipOffsets = Arrays.copyOf(skipOffsets, block * 2);
+                    }
+                    skipIds[block] = lastId;
+                    skipOffsets[block] = length;
+                }
+                append(id - lastId);
+                lastId = id;
+                count++;
+            } else if (id < lastId) {
+                if (unsorted == null) {
+                    unsorted = new int[4];
+                } else if (unsortedCount == unsorted.length) {
+                    unsorted = Arrays.copyOf(unsorted, unsortedCount * 2);
+                }
+                unsorted[unsortedCount++] = id;
+            }
+        }
+
+        int size() {
+            return count + unsortedCount;
+        }
+
+        void removeAll(BitSet removed) {
+            int[] ids = toArray();
+            length = 0;
+            count = 0;
+            lastId = 0;
+            for (int id : ids) {
+                if (!removed.get(id)) {
+                    add(id);
+                }
+            }
+        }
+
+        int[] toArray() {
+            merge();
+            int[] ids = new int[count];
+            decode(0, count, ids);
+            return ids;
+        }
+
+        int[] retain(int[] candidates) {
+            merge();
+            int[] result = new int[candidates.length];
+            int[] block = new int[SKIP_INTERVAL];
+            int blocks = (count + SKIP_INTERVAL - 1) / SKIP_INTERVAL;
+            int loaded = -1;
+            int blockLength = 0;
+            int matched = 0;
+            for (int id : candidates) {
+                int position = Arrays.binarySearch(skipIds, Math.max(loaded, 0), blocks, id);
+                int target = position >= 0 ? position - 1 : -position - 2;
+                if (target < 0) {
+                    continue;
+                }
+                if (target != loaded) {
+                    blockLength = Math.min(SKIP_INTERVAL, count - target * SKIP_INTERVAL);
+                    decode(target, blockLength, block);
+                    loaded = target;
+                }
+                if (Arrays.binarySearch(block, 0, blockLength, id) >= 0) {
+                    result[matched++] = id;
+                }
+            }
+            return Arrays.copyOf(result, matched);
+        }
+
+        int getByteSize() {
+            return data.length + skipIds.length * 8 + (unsorted != null ? unsorted.length * 4 : 0);
+        }
+
+        private void decode(int block, int entries, int[] ids) {
+            int id = skipIds[block];
+            int position = skipOffsets[block];
+            for (int i = 0; i < entries; i++) {
+                int delta = 0;
+                for (int shift = 0; ; shift += 7) {
+                    byte b = data[position++];
+                    delta |= (b & 0x7F) << shift;
+                    if (b >= 0) {
+                        break;
+                    }
+                }
+                id += delta;
+                ids[i] = id;
+            }
+        }
+
+        private void merge() {
+            if (unsortedCount == 0) {
+                return;
+            }
+            int[] ids = new int[count + unsortedCount];
+            decode(0, count, ids);
+            System.arraycopy(unsorted, 0, ids, count, unsortedCount);
+            ids = distinctSorted(ids, ids.length);
+            length = 0;
+            count = 0;
+            lastId = 0;
+            unsorted = null;
+            unsortedCount = 0;
+            for (int id : ids) {
+                add(id);
+            }
+            data = Arrays.copyOf(data, length);
+        }
+
+        private void append(int value) {
+            if (length + 5 > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + 5));
+            }
+            while ((value & ~0x7F) != 0) {
+                data[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[length++] = (byte) value;
+        }
+    }
+}
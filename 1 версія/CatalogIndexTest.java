@@ -0,0 +1,89 @@
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+class CatalogIndexTest extends LibraryDriverTest {
+    private static final List<String> QUERIES = List.of("river", "River Stone", "silver wolf", "s*", "sil*", "mo* night",
+            "anna", "anna ri*", "zebra", "river zebra", "", "  golden   LIGHT ", "ocean, fire");
+
+    static void runAll(Path dir) {
+        run("token and prefix search match a scan", CatalogIndexTest::searchMatchesScan);
+        run("search follows removed books", CatalogIndexTest::searchFollowsRemovals);
+    }
+
+    private static void searchMatchesScan() {
+        Library library = new LibraryGenerator(17).stores(4).booksPerStore(1500).authorsPerBook(2).authorPool(60)
+                .readers(0).generate();
+        List<Book> books = books(library);
+        CatalogIndex index = new CatalogIndex();
+        for (Book book : books) {
+            index.add(book);
+        }
+        for (String query : QUERIES) {
+            int[] expected = scan(books, query);
+            int[] actual = index.search(query);
+            check(Arrays.equals(expected, actual), "\"" + query + "\": " + expected.length + " expected, "
+                    + actual.length + " found");
+            check(Arrays.equals(expected, ids(library.searchBooks(query))), "library search for \"" + query + "\"");
+        }
+        check(scan(books, "river").length > 128, "postings long enough to use skip entries");
+    }
+
+    private static void searchFollowsRemovals() {
+        Library library = new LibraryGenerator(18).stores(2).booksPerStore(800).authorsPerBook(1).authorPool(40)
+                .readers(0).generate();
+        List<Book> books = books(library);
+        CatalogIndex index = new CatalogIndex();
+        for (Book book : books) {
+            index.add(book);
+        }
+        List<Book> removed = new ArrayList<>();
+        List<Book> kept = new ArrayList<>();
+        for (int i = 0; i < books.size(); i++) {
+            (i % 3 == 0 ? removed : kept).add(books.get(i));
+        }
+        index.removeAll(removed);
+        for (String query : QUERIES) {
+            check(Arrays.equals(scan(kept, query), index.search(query)), "\"" + query + "\" after removal");
+        }
+    }
+
+    private static int[] scan(List<Book> books, String query) {
+        List<String> terms = CatalogIndex.parseTerms(query);
+        if (terms.isEmpty()) {
+            return new int[0];
+        }
+        List<Integer> ids = new ArrayList<>();
+        for (Book book : books) {
+            Set<String> tokens = new HashSet<>(Arrays.asList(CatalogIndex.tokens(book)));
+            boolean matches = true;
+            for (String term : terms) {
+                if (term.endsWith("*")) {
+                    String prefix = term.substring(0, term.length() - 1);
+                    matches &= tokens.stream().anyMatch(token -> token.startsWith(prefix));
+                } else {
+                    matches &= tokens.contains(term);
+                }
+            }
+            if (matches) {
+                ids.add(book.getId());
+            }
+        }
+        return ids.stream().mapToInt(Integer::intValue).sorted().toArray();
+    }
+
+    private static List<Book> books(Library library) {
+        List<Book> books = new ArrayList<>();
+        for (BookStore bookStore : library.getBookStores()) {
+            books.addAll(bookStore.getBooks());
+        }
+        return books;
+    }
+
+    private static int[] ids(List<Book> books) {
+        return books.stream().mapToInt(Book::getId).sorted().toArray();
+    }
+}
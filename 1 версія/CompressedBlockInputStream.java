@@ -0,0 +1,175 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+class CompressedBlockInputStream extends InputStream {
+    private final FileChannel channel;
+    private final long[] offsets;
+    private final int[] compressedLengths;
+    private final int[] rawLengths;
+    private final int readAhead = Runtime.getRuntime().availableProcessors() * 2;
+    private final ArrayDeque<Future<byte[]>> inFlight = new ArrayDeque<>();
+    private final long start = System.nanoTime();
+    private int nextBlock;
+    private byte[] block = new byte[0];
+    private int position;
+    private long rawBytes;
+    private long elapsedNanos;
+
+    CompressedBlockInputStream(Path file) throws IOException {
+        this(file, 0);
+    }
+
+    CompressedBlockInputStream(Path file, int firstBlock) throws IOException {
+        channel = FileChannel.open(file);
+        try {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(12);
+            ByteBuffer footer = ByteBuffer.allocate(12);
+            if (size < 24) {
+                throw new IOException("Not a compressed library file: " + file);
+            }
+            readFully(channel, header, 0);
+            readFully(channel, footer, size - 12);
+            if (header.getInt(0) != CompressedBlockOutputStream.MAGIC || footer.getInt(8) != CompressedBlockOutputStream.MAGIC) {
+                throw new IOException("Not a compressed library file: " + file);
+            }
+            if (header.getInt(4) != CompressedBlockOutputStream.VERSION) {
+                throw new IOException("Unsupported compressed file version " + header.getInt(4) + " in " + file);
+            }
+
+            long indexOffset = footer.getLong(0);
+            ByteBuffer index = ByteBuffer.allocate((int) (size - 12 - indexOffset));
+            readFully(channel, index, indexOffset);
+            index.flip();
+            int blockCount = index.getInt();
+            offsets = new long[blockCount];
+            compressedLengths = new int[blockCount];
+            rawLengths = new int[blockCount];
+            for (int i = 0; i < blockCount; i++) {
+                offsets[i] = index.getLong();
+                compressedLengths[i] = index.getInt();
+                rawLengths[i] = index.getInt();
+            }
+            if (firstBlock < 0 || firstBlock > blockCount) {
+                throw new IOException("Block " + firstBlock + " is out of range in " + file);
+            }
+            nextBlock = firstBlock;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    int getBlockCount() {
+        return offsets.length;
+    }
+
+    long getRawBytes() {
+        return rawBytes;
+    }
+
+    long getCompressedBytes() {
+        long total = 0;
+        for (int length : compressedLengths) {
+            total += length;
+        }
+        return total;
+    }
+
+    double getMegabytesPerSecond() {
+        long nanos = elapsedNanos != 0 ? elapsedNanos : System.nanoTime() - start;
+        return nanos == 0 ? 0 : rawBytes / (1024.0 * 1024.0) / (nanos / 1e9);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (position == block.length && !nextBlock()) {
+            return -1;
+        }
+        return block[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (position == block.length && !nextBlock()) {
+            return -1;
+        }
+        int chunk = Math.min(length, block.length - position);
+        System.arraycopy(block, position, bytes, offset, chunk);
+        position += chunk;
+        return chunk;
+    }
+
+    @Override
+    public int available() {
+        return block.length - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Future<byte[]> pending : inFlight) {
+            pending.cancel(false);
+        }
+        inFlight.clear();
+        channel.close();
+        if (elapsedNanos == 0) {
+            elapsedNanos = System.nanoTime() - start;
+        }
+    }
+
+    private boolean nextBlock() throws IOException {
+        while (inFlight.size() < readAhead && nextBlock < offsets.length) {
+            int blockIndex = nextBlock++;
+            inFlight.add(ForkJoinPool.commonPool().submit(() -> inflate(blockIndex)));
+        }
+        Future<byte[]> pending = inFlight.poll();
+        if (pending == null) {
+            return false;
+        }
+        block = CompressedBlockOutputStream.join(pending);
+        position = 0;
+        rawBytes += block.length;
+        return true;
+    }
+
+    private byte[] inflate(int blockIndex) throws IOException {
+        ByteBuffer compressed = ByteBuffer.allocate(compressedLengths[blockIndex]);
+        readFully(channel, compressed, offsets[blockIndex]);
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed.array());
+            byte[] raw = new byte[rawLengths[blockIndex]];
+            int length = 0;
+            while (length < raw.length) {
+                int inflated = inflater.inflate(raw, length, raw.length - length);
+                if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new EOFException("Compressed block " + blockIndex + " is truncated");
+                }
+                length += inflated;
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IOException("Compressed block " + blockIndex + " is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of compressed library file");
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+
+class CompressedBlockOutputStream extends OutputStream {
+    static final int MAGIC = 0x4C425A31;
+    static final int VERSION = 1;
+    static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final int blockSize;
+    private final int maxInFlight = Runtime.getRuntime().availableProcessors() * 2;
+    private final ArrayDeque<PendingBlock> inFlight = new ArrayDeque<>();
+    private final List<long[]> index = new ArrayList<>();
+    private final long start = System.nanoTime();
+    private byte[] block;
+    private int blockLength;
+    private long rawBytes;
+    private long compressedBytes;
+    private long elapsedNanos;
+    private boolean closed;
+
+    CompressedBlockOutputStream(Path file) throws IOException {
+        this(file, DEFAULT_BLOCK_SIZE);
+    }
+
+    CompressedBlockOutputStream(Path file, int blockSize) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.blockSize = blockSize;
+        this.block = new byte[blockSize];
+        ByteBuffer header = ByteBuffer.allocate(12);
+        header.putInt(MAGIC).putInt(VERSION).putInt(blockSize).flip();
+        writeFully(channel, header);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        block[blockLength++] = (byte) b;
+        if (blockLength == blockSize) {
+            submitBlock();
+        }
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            int chunk = Math.min(length, blockSize - blockLength);
+            System.arraycopy(bytes, offset, block, blockLength, chunk);
+            blockLength += chunk;
+            offset += chunk;
+            length -= chunk;
+            if (blockLength == blockSize) {
+                submitBlock();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (blockLength > 0) {
+                submitBlock();
+            }
+            while (!inFlight.isEmpty()) {
+                writeBlock(inFlight.poll());
+            }
+
+            long indexOffset = channel.position();
+            ByteBuffer trailer = ByteBuffer.allocate(4 + index.size() * 16 + 12);
+            trailer.putInt(index.size());
+            for (long[] entry : index) {
+                trailer.putLong(entry[0]).putInt((int) entry[1]).putInt((int) entry[2]);
+            }
+            trailer.putLong(indexOffset).putInt(MAGIC).flip();
+            writeFully(channel, trailer);
+            channel.force(false);
+        } finally {
+            channel.close();
+            elapsedNanos = System.nanoTime() - start;
+        }
+    }
+
+    long getRawBytes() {
+        return rawBytes;
+    }
+
+    long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    double getRatio() {
+        return compressedBytes == 0 ? 0 : (double) rawBytes / compressedBytes;
+    }
+
+    double getMegabytesPerSecond() {
+        return elapsedNanos == 0 ? 0 : rawBytes / (1024.0 * 1024.0) / (elapsedNanos / 1e9);
+    }
+
+    private void submitBlock() throws IOException {
+        byte[] raw = block;
+        int length = blockLength;
+        inFlight.add(new PendingBlock(length, ForkJoinPool.commonPool().submit(() -> deflate(raw, length))));
+        rawBytes += length;
+        block = new byte[blockSize];
+        blockLength = 0;
+        if (inFlight.size() >= maxInFlight) {
+            writeBlock(inFlight.poll());
+        }
+    }
+
+    private void writeBlock(PendingBlock pending) throws IOException {
+        byte[] compressed = join(pending.compressed);
+        index.add(new long[]{channel.position(), compressed.length, pending.rawLength});
+        writeFully(channel, ByteBuffer.wrap(compressed));
+        compressedBytes += compressed.length;
+    }
+
+    private static byte[] deflate(byte[] raw, int length) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(raw, 0, length);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(length / 2 + 64);
+            byte[] chunk = new byte[64 * 1024];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static <T> T join(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a compressed block");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static class PendingBlock {
+        final int rawLength;
+        final Future<byte[]> compressed;
+
+        PendingBlock(int rawLength, Future<byte[]> compressed) {
+            this.rawLength = rawLength;
+            this.compressed = compressed;
+        }
+    }
+}
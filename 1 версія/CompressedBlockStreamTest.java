@@ -0,0 +1,96 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+class CompressedBlockStreamTest extends LibraryDriverTest {
+    static void runAll(Path dir) {
+        run("compressed blocks round-trip across block edges", () -> blocksRoundTrip(dir.resolve("roundtrip")));
+        run("compressed reads can start at any block", () -> readsStartAtAnyBlock(dir.resolve("seek")));
+        run("a compressed library round-trips", () -> libraryRoundTrips(dir.resolve("library")));
+        run("a truncated compressed file is rejected", () -> truncatedFileIsRejected(dir.resolve("truncated")));
+    }
+
+    private static void blocksRoundTrip(Path dir) throws Exception {
+        Files.createDirectories(dir);
+        Path file = dir.resolve("data.z");
+        byte[] data = data(10_000);
+        CompressedBlockOutputStream out = new CompressedBlockOutputStream(file, 1024);
+        try (out) {
+            out.write(data, 0, 100);
+            for (int i = 100; i < 3000; i++) {
+                out.write(data[i]);
+            }
+            out.write(data, 3000, data.length - 3000);
+        }
+        check(out.getRawBytes() == data.length, "raw bytes " + out.getRawBytes());
+        check(out.getCompressedBytes() < data.length && out.getRatio() > 1, "ratio " + out.getRatio());
+
+        try (CompressedBlockInputStream in = new CompressedBlockInputStream(file)) {
+            check(in.getBlockCount() == 10, "block count " + in.getBlockCount());
+            check(Arrays.equals(in.readAllBytes(), data), "the data reads back");
+            check(in.read() == -1, "end of stream");
+        }
+    }
+
+    private static void readsStartAtAnyBlock(Path dir) throws Exception {
+        Files.createDirectories(dir);
+        Path file = dir.resolve("data.z");
+        byte[] data = data(5000);
+        try (OutputStream out = new CompressedBlockOutputStream(file, 1000)) {
+            out.write(data);
+        }
+        for (int block = 0; block <= 5; block++) {
+            try (CompressedBlockInputStream in = new CompressedBlockInputStream(file, block)) {
+                check(Arrays.equals(in.readAllBytes(), Arrays.copyOfRange(data, block * 1000, data.length)),
+                        "reading from block " + block);
+            }
+        }
+        try {
+            new CompressedBlockInputStream(file, 6).close();
+            throw new AssertionError("block 6 opened");
+        } catch (IOException e) {
+            check(e.getMessage().contains("out of range"), e.getMessage());
+        }
+    }
+
+    private static void libraryRoundTrips(Path dir) throws Exception {
+        Files.createDirectories(dir);
+        Path file = dir.resolve("library.serz");
+        Library library = new LibraryGenerator(5).stores(2).booksPerStore(300).authorsPerBook(2).authorPool(20)
+                .readers(20).loansPerReader(2).generate();
+        try (ObjectOutputStream out = new ObjectOutputStream(new CompressedBlockOutputStream(file, 4096))) {
+            out.writeObject(library);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new CompressedBlockInputStream(file))) {
+            assertSameLibrary(library, (Library) in.readObject());
+        }
+    }
+
+    private static void truncatedFileIsRejected(Path dir) throws Exception {
+        Files.createDirectories(dir);
+        Path file = dir.resolve("data.z");
+        try (OutputStream out = new CompressedBlockOutputStream(file, 1000)) {
+            out.write(data(3000));
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+        try {
+            new CompressedBlockInputStream(file).close();
+            throw new AssertionError("a truncated file opened");
+        } catch (IOException e) {
+            check(e.getMessage().startsWith("Not a compressed library file"), e.getMessage());
+        }
+    }
+
+    private static byte[] data(int length) {
+        Random random = new Random(length);
+        String[] words = {"library ", "book ", "reader ", "storage ", "author "};
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        while (bytes.size() < length) {
+            bytes.writeBytes(words[random.nextInt(words.length)].getBytes());
+        }
+        return Arrays.copyOf(bytes.toByteArray(), length);
+    }
+}
@@ -0,0 +1,171 @@
+import java.io.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+class ConcurrencyBenchmark {
+    private static final int STORES = 20;
+    private static final int BOOKS_PER_STORE = 5_000;
+    private static final int READERS = 10_000;
+    private static final int POPULAR_TITLES = 1_000;
+    private static final int POPULAR_COPIES = 3;
+    private static final int BORROWERS = 500;
+
+    static void run(double secondsPerStep, int maxThreads, PrintStream out) throws InterruptedException {
+        out.printf("Mixed workload (60%% lookups, 10%% listings, 15%% checkouts, 10%% returns, 5%% adds), %d processors%n",
+                Runtime.getRuntime().availableProcessors());
+        measure(new ConcurrentLibrary(new LibraryGenerator(7).stores(STORES).booksPerStore(BOOKS_PER_STORE)
+                .readers(READERS).generate()), Math.min(maxThreads, 4), secondsPerStep);
+        out.printf("%8s %14s %10s %12s%n", "threads", "ops/s", "speedup", "consistent");
+        double baseline = 0;
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            ConcurrentLibrary library = new ConcurrentLibrary(new LibraryGenerator(42).stores(STORES)
+                    .booksPerStore(BOOKS_PER_STORE).readers(READERS).loansPerReader(1).generate());
+            double throughput = measure(library, threads, secondsPerStep);
+            if (threads == 1) {
+                baseline = throughput;
+            }
+            out.printf("%8d %14.0f %9.2fx %12s%n", threads, throughput, throughput / baseline, verify(library));
+        }
+    }
+
+    static void runCheckouts(double secondsPerStep, int maxThreads, PrintStream out) throws InterruptedException {
+        out.printf("%d readers borrowing and returning 1-5 of %d skewed popular titles (%d copies each), %d processors%n",
+                BORROWERS, POPULAR_TITLES, POPULAR_COPIES, Runtime.getRuntime().availableProcessors());
+        out.printf("%8s %14s %12s %12s %12s %12s%n", "threads", "tx/s", "optimistic", "pessimistic", "rejected",
+                "consistent");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            ConcurrentLibrary library = new ConcurrentLibrary(new LibraryGenerator(42).stores(STORES)
+                    .booksPerStore(BOOKS_PER_STORE).readers(READERS).loansPerReader(0).generate());
+            library.setDefaultCopies(POPULAR_COPIES);
+            LongAdder transactions = new LongAdder();
+            long deadline = System.nanoTime() + (long) (secondsPerStep * 1e9);
+            List<Thread> workers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                Thread worker = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    long count = 0;
+                    while ((count & 255) != 0 || System.nanoTime() < deadline) {
+                        int registrationNumber = 1 + random.nextInt(BORROWERS);
+                        List<Book> borrowed = library.getBorrowedBooks(registrationNumber);
+                        if (!borrowed.isEmpty()) {
+                            for (Book book : borrowed) {
+                                library.returnBook(registrationNumber, book.getId());
+                            }
+                        } else {
+                            int[] bookIds = new int[1 + random.nextInt(5)];
+                            for (int j = 0; j < bookIds.length; j++) {
+                                bookIds[j] = 1 + (int) (POPULAR_TITLES * Math.pow(random.nextDouble(), 2));
+                            }
+                            library.checkoutAll(registrationNumber, bookIds);
+                        }
+                        count++;
+                    }
+                    transactions.add(count);
+                }, "checkout-" + i);
+                workers.add(worker);
+                worker.start();
+            }
+            long started = System.nanoTime();
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            double throughput = transactions.sum() / ((System.nanoTime() - started) / 1e9);
+            boolean withinCopies = true;
+            for (int bookId = 1; bookId <= POPULAR_TITLES; bookId++) {
+                withinCopies &= library.getLoanCount(bookId) <= library.getCopies(bookId);
+            }
+            out.printf("%8d %14.0f %12d %12d %12d %12s%n", threads, throughput, library.getOptimisticCheckouts(),
+                    library.getPessimisticCheckouts(), library.getRejectedCheckouts(), withinCopies && verify(library));
+        }
+    }
+
+    private static double measure(ConcurrentLibrary library, int threads, double seconds) throws InterruptedException {
+        LongAdder operations = new LongAdder();
+        long deadline = System.nanoTime() + (long) (seconds * 1e9);
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long count = 0;
+                while ((count & 255) != 0 || System.nanoTime() < deadline) {
+                    execute(library, random);
+                    count++;
+                }
+                operations.add(count);
+            }, "stress-" + i);
+            workers.add(worker);
+            worker.start();
+        }
+        long started = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return operations.sum() / ((System.nanoTime() - started) / 1e9);
+    }
+
+    private static void execute(ConcurrentLibrary library, ThreadLocalRandom random) {
+        int roll = random.nextInt(100);
+        int registrationNumber = 1 + random.nextInt(READERS);
+        if (roll < 60) {
+            int bookId = 1 + random.nextInt(STORES * BOOKS_PER_STORE);
+            Book book = library.getBook(bookId);
+            if (book != null) {
+                library.getLoanCount(bookId);
+            }
+        } else if (roll < 70) {
+            List<String> stores = library.getStoreNames();
+            library.getBooks(stores.get(random.nextInt(stores.size()))).size();
+        } else if (roll < 85) {
+            library.checkout(registrationNumber, 1 + random.nextInt(STORES * BOOKS_PER_STORE));
+        } else if (roll < 95) {
+            List<Book> borrowed = library.getBorrowedBooks(registrationNumber);
+            if (!borrowed.isEmpty()) {
+                library.returnBook(registrationNumber, borrowed.get(random.nextInt(borrowed.size())).getId());
+            }
+        } else {
+            List<String> stores = library.getStoreNames();
+            library.addBook(stores.get(random.nextInt(stores.size())), new Book(LibraryGenerator.title(random),
+                    List.of(new Author(LibraryGenerator.firstName(random), LibraryGenerator.lastName(random))),
+                    LibraryGenerator.publicationYear(random), 1 + random.nextInt(5)));
+        }
+    }
+
+    static boolean verify(ConcurrentLibrary library) {
+        LibraryStatistics statistics = library.getStatistics();
+        Map<Integer, Integer> loanCounts = new HashMap<>();
+        long loans = 0;
+        for (BookReader reader : library.getReaders()) {
+            List<Book> borrowed = library.getBorrowedBooks(reader.getRegistrationNumber());
+            for (Book book : borrowed) {
+                loanCounts.merge(book.getId(), 1, Integer::sum);
+            }
+            loans += borrowed.size();
+        }
+        if (loans != library.getActiveLoanCount() || loans != statistics.getActiveLoans()
+                || library.getReaderCount() != statistics.getReaderCount()) {
+            return false;
+        }
+        for (Map.Entry<Integer, Integer> entry : loanCounts.entrySet()) {
+            if (library.getLoanCount(entry.getKey()) != entry.getValue()
+                    || entry.getValue() > library.getCopies(entry.getKey())) {
+                return false;
+            }
+        }
+        Set<Integer> bookIds = new HashSet<>();
+        for (String storeName : library.getStoreNames()) {
+            for (Book book : library.getBooks(storeName)) {
+                if (library.getBook(book.getId()) != book) {
+                    return false;
+                }
+                bookIds.add(book.getId());
+            }
+        }
+        return bookIds.size() == statistics.getBookCount();
+    }
+}
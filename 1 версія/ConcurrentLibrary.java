@@ -0,0 +1,490 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+
+// Owns its stores, readers and loans once constructed: the seed library is only read by the constructor and is
+// not updated afterwards. Statistics are kept in stripes and merged by getStatistics().
+class ConcurrentLibrary {
+    private static final int READER_STRIPES = 64;
+    private static final int READER_RANGE_BITS = 6;
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int MAX_PAGES = 1 << 16;
+    private static final int BOOK_STRIPES = 256;
+    private static final int STATISTICS_STRIPES = 16;
+
+    enum CheckoutResult {
+        BORROWED, UNKNOWN_READER, UNKNOWN_BOOK, UNAVAILABLE
+    }
+
+    private final String libraryName;
+    private final Map<String, Shelf> shelves = new ConcurrentHashMap<>();
+    private final Object storeListLock = new Object();
+    private volatile List<String> storeNames = List.of();
+    private final Map<Integer, ReaderLoans> readers = new ConcurrentHashMap<>();
+    private final ReentrantLock[] readerLocks = new ReentrantLock[READER_STRIPES];
+    private final AtomicReferenceArray<BookPage> pages = new AtomicReferenceArray<>(MAX_PAGES);
+    private final AtomicInteger nextBookId;
+    private final LongAdder activeLoans = new LongAdder();
+    private final StampedLock[] bookLocks = new StampedLock[BOOK_STRIPES];
+    private volatile int defaultCopies = Integer.MAX_VALUE;
+    private final LongAdder optimisticCheckouts = new LongAdder();
+    private final LongAdder pessimisticCheckouts = new LongAdder();
+    private final LongAdder rejectedCheckouts = new LongAdder();
+    private final LibraryStatistics[] statistics = new LibraryStatistics[STATISTICS_STRIPES];
+
+    ConcurrentLibrary(Library library) {
+        this.libraryName = library.getLibraryName();
+        statistics[0] = library.getStatistics().copy();
+        for (int i = 1; i < statistics.length; i++) {
+            statistics[i] = new LibraryStatistics();
+        }
+        for (int i = 0; i < readerLocks.length; i++) {
+            readerLocks[i] = new ReentrantLock();
+        }
+        for (int i = 0; i < bookLocks.length; i++) {
+            bookLocks[i] = new StampedLock();
+        }
+        List<String> names = new ArrayList<>();
+        for (BookStore bookStore : library.getBookStores()) {
+            Shelf shelf = new Shelf();
+            for (Book book : bookStore.getBooks()) {
+                shelf.append(book);
+                publish(book);
+            }
+            shelves.put(bookStore.getStoreName(), shelf);
+            names.add(bookStore.getStoreName());
+        }
+        storeNames = List.copyOf(names);
+        for (BookReader reader : library.getReaders()) {
+            ReaderLoans loans = new ReaderLoans(reader);
+            for (Book book : reader.getBorrowedBooks()) {
+                loans.add(book);
+                page(book.getId(), true).loanCounts.incrementAndGet(book.getId() & PAGE_SIZE - 1);
+                activeLoans.increment();
+            }
+            readers.put(reader.getRegistrationNumber(), loans);
+        }
+        nextBookId = new AtomicInteger(library.getNextBookId());
+    }
+
+    public String getLibraryName() {
+        return libraryName;
+    }
+
+    public boolean addBookStore(String storeName) {
+        synchronized (storeListLock) {
+            if (shelves.containsKey(storeName)) {
+                return false;
+            }
+            shelves.put(storeName, new Shelf());
+            List<String> names = new ArrayList<>(storeNames);
+            names.add(storeName);
+            storeNames = List.copyOf(names);
+        }
+        return true;
+    }
+
+    public List<String> getStoreNames() {
+        return storeNames;
+    }
+
+    public List<Book> getBooks(String storeName) {
+        Shelf shelf = shelves.get(storeName);
+        return shelf != null ? shelf.snapshot() : List.of();
+    }
+
+    public boolean addBook(String storeName, Book book) {
+        Shelf shelf = shelves.get(storeName);
+        if (shelf == null) {
+            return false;
+        }
+        if (book.getId() != 0) {
+            throw new IllegalArgumentException("Book is already in a library catalog: " + book);
+        }
+        book.assignId(nextBookId.getAndIncrement());
+        publish(book);
+        shelf.lock.lock();
+        try {
+            shelf.append(book);
+        } finally {
+            shelf.lock.unlock();
+        }
+        LibraryStatistics stripe = statistics(book.getId());
+        synchronized (stripe) {
+            stripe.bookAdded(book);
+        }
+        return true;
+    }
+
+    public Book getBook(int id) {
+        BookPage page = id > 0 ? page(id, false) : null;
+        return page != null ? page.books.get(id & PAGE_SIZE - 1) : null;
+    }
+
+    public boolean addReader(BookReader reader) {
+        if (!reader.getBorrowedBooks().isEmpty()) {
+            throw new IllegalArgumentException("Reader " + reader.getRegistrationNumber() + " must join without loans");
+        }
+        ReentrantLock lock = readerLock(reader.getRegistrationNumber());
+        lock.lock();
+        try {
+            if (readers.putIfAbsent(reader.getRegistrationNumber(), new ReaderLoans(reader)) != null) {
+                return false;
+            }
+            LibraryStatistics stripe = statistics(reader.getRegistrationNumber());
+            synchronized (stripe) {
+                stripe.readerAdded(0);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return true;
+    }
+
+    public BookReader getReader(int registrationNumber) {
+        ReaderLoans loans = readers.get(registrationNumber);
+        return loans != null ? loans.reader : null;
+    }
+
+    public int getReaderCount() {
+        return readers.size();
+    }
+
+    public List<BookReader> getReaders() {
+        List<BookReader> list = new ArrayList<>(readers.size());
+        for (ReaderLoans loans : readers.values()) {
+            list.add(loans.reader);
+        }
+        list.sort(Comparator.comparingInt(BookReader::getRegistrationNumber));
+        return list;
+    }
+
+    public List<Book> getBorrowedBooks(int registrationNumber) {
+        ReaderLoans loans = readers.get(registrationNumber);
+        return loans != null ? Collections.unmodifiableList(Arrays.asList(loans.books)) : List.of();
+    }
+
+    public boolean checkout(int registrationNumber, int bookId) {
+        return checkoutAll(registrationNumber, bookId) == CheckoutResult.BORROWED;
+    }
+
+    public CheckoutResult checkoutAll(int registrationNumber, int... bookIds) {
+        ReaderLoans loans = readers.get(registrationNumber);
+        if (loans == null) {
+            return CheckoutResult.UNKNOWN_READER;
+        }
+        Book[] books = new Book[bookIds.length];
+        for (int i = 0; i < bookIds.length; i++) {
+            books[i] = getBook(bookIds[i]);
+            if (books[i] == null) {
+                return CheckoutResult.UNKNOWN_BOOK;
+            }
+        }
+        int[] ids = bookIds.clone();
+        Arrays.sort(ids);
+        int[] stripes = stripes(ids);
+
+        long[] stamps = new long[stripes.length];
+        for (int i = 0; i < stripes.length; i++) {
+            stamps[i] = bookLocks[stripes[i]].tryOptimisticRead();
+        }
+        boolean available = available(ids);
+        if (!available && validate(stripes, stamps)) {
+            rejectedCheckouts.increment();
+            return CheckoutResult.UNAVAILABLE;
+        }
+
+        ReentrantLock lock = readerLock(registrationNumber);
+        lock.lock();
+        try {
+            int locked = 0;
+            while (available && locked < stripes.length) {
+                long stamp = bookLocks[stripes[locked]].tryConvertToWriteLock(stamps[locked]);
+                if (stamp == 0L) {
+                    break;
+                }
+                stamps[locked++] = stamp;
+            }
+            if (available && locked == stripes.length) {
+                optimisticCheckouts.increment();
+            } else {
+                unlock(stripes, stamps, locked);
+                for (int i = 0; i < stripes.length; i++) {
+                    stamps[i] = bookLocks[stripes[i]].writeLock();
+                }
+                pessimisticCheckouts.increment();
+                if (!available(ids)) {
+                    unlock(stripes, stamps, stripes.length);
+                    rejectedCheckouts.increment();
+                    return CheckoutResult.UNAVAILABLE;
+                }
+            }
+            try {
+                for (int bookId : ids) {
+                    page(bookId, false).loanCounts.incrementAndGet(bookId & PAGE_SIZE - 1);
+                }
+            } finally {
+                unlock(stripes, stamps, stripes.length);
+            }
+            int before = loans.books.length;
+            for (Book book : books) {
+                loans.add(book);
+                activeLoans.increment();
+                LibraryStatistics stripe = statistics(book.getId());
+                synchronized (stripe) {
+                    stripe.bookBorrowed(book);
+                }
+            }
+            readerLoansChanged(registrationNumber, before, loans.books.length);
+        } finally {
+            lock.unlock();
+        }
+        return CheckoutResult.BORROWED;
+    }
+
+    public boolean returnBook(int registrationNumber, int bookId) {
+        ReaderLoans loans = readers.get(registrationNumber);
+        if (loans == null) {
+            return false;
+        }
+        ReentrantLock lock = readerLock(registrationNumber);
+        lock.lock();
+        try {
+            if (!loans.remove(bookId)) {
+                return false;
+            }
+            StampedLock bookLock = bookLocks[stripe(bookId)];
+            long stamp = bookLock.writeLock();
+            try {
+                page(bookId, false).loanCounts.decrementAndGet(bookId & PAGE_SIZE - 1);
+            } finally {
+                bookLock.unlockWrite(stamp);
+            }
+            activeLoans.decrement();
+            LibraryStatistics stripe = statistics(bookId);
+            synchronized (stripe) {
+                stripe.bookReturned();
+            }
+            readerLoansChanged(registrationNumber, loans.books.length + 1, loans.books.length);
+        } finally {
+            lock.unlock();
+        }
+        return true;
+    }
+
+    public int getLoanCount(int bookId) {
+        BookPage page = bookId > 0 ? page(bookId, false) : null;
+        return page != null ? page.loanCounts.get(bookId & PAGE_SIZE - 1) : 0;
+    }
+
+    public long getActiveLoanCount() {
+        return activeLoans.sum();
+    }
+
+    public void setDefaultCopies(int copies) {
+        if (copies < 1) {
+            throw new IllegalArgumentException("A book needs at least one copy: " + copies);
+        }
+        defaultCopies = copies;
+    }
+
+    public boolean setCopies(int bookId, int copies) {
+        if (copies < 1) {
+            throw new IllegalArgumentException("A book needs at least one copy: " + copies);
+        }
+        if (getBook(bookId) == null) {
+            return false;
+        }
+        StampedLock bookLock = bookLocks[stripe(bookId)];
+        long stamp = bookLock.writeLock();
+        try {
+            page(bookId, false).copies.set(bookId & PAGE_SIZE - 1, copies);
+        } finally {
+            bookLock.unlockWrite(stamp);
+        }
+        return true;
+    }
+
+    public int getCopies(int bookId) {
+        BookPage page = bookId > 0 ? page(bookId, false) : null;
+        int copies = page != null ? page.copies.get(bookId & PAGE_SIZE - 1) : 0;
+        return copies != 0 ? copies : defaultCopies;
+    }
+
+    public int getAvailableCopies(int bookId) {
+        return Math.max(0, getCopies(bookId) - getLoanCount(bookId));
+    }
+
+    public long getOptimisticCheckouts() {
+        return optimisticCheckouts.sum();
+    }
+
+    public long getPessimisticCheckouts() {
+        return pessimisticCheckouts.sum();
+    }
+
+    public long getRejectedCheckouts() {
+        return rejectedCheckouts.sum();
+    }
+
+    public LibraryStatistics getStatistics() {
+        LibraryStatistics merged;
+        synchronized (statistics[0]) {
+            merged = statistics[0].copy();
+        }
+        for (int i = 1; i < statistics.length; i++) {
+            synchronized (statistics[i]) {
+                merged.merge(statistics[i]);
+            }
+        }
+        return merged;
+    }
+
+    private void readerLoansChanged(int registrationNumber, int from, int to) {
+        LibraryStatistics stripe = statistics(registrationNumber);
+        synchronized (stripe) {
+            stripe.readerLoansChanged(from, to);
+        }
+    }
+
+    private LibraryStatistics statistics(int key) {
+        return statistics[(key * 0x9E3779B9 >>> 24) % STATISTICS_STRIPES];
+    }
+
+    private boolean available(int[] sortedIds) {
+        for (int i = 0; i < sortedIds.length; ) {
+            int bookId = sortedIds[i];
+            int wanted = 0;
+            while (i < sortedIds.length && sortedIds[i] == bookId) {
+                wanted++;
+                i++;
+            }
+            if ((long) getLoanCount(bookId) + wanted > getCopies(bookId)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int[] stripes(int[] sortedIds) {
+        int[] stripes = new int[sortedIds.length];
+        for (int i = 0; i < sortedIds.length; i++) {
+            stripes[i] = stripe(sortedIds[i]);
+        }
+        Arrays.sort(stripes);
+        int count = 0;
+        for (int i = 0; i < stripes.length; i++) {
+            if (count == 0 || stripes[count - 1] != stripes[i]) {
+                stripes[count++] = stripes[i];
+            }
+        }
+        return Arrays.copyOf(stripes, count);
+    }
+
+    private boolean validate(int[] stripes, long[] stamps) {
+        for (int i = 0; i < stripes.length; i++) {
+            if (!bookLocks[stripes[i]].validate(stamps[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void unlock(int[] stripes, long[] stamps, int count) {
+        for (int i = 0; i < count; i++) {
+            bookLocks[stripes[i]].unlockWrite(stamps[i]);
+        }
+    }
+
+    private static int stripe(int bookId) {
+        return (bookId * 0x9E3779B9 >>> 24) % BOOK_STRIPES;
+    }
+
+    private void publish(Book book) {
+        page(book.getId(), true).books.set(book.getId() & PAGE_SIZE - 1, book);
+    }
+
+    private BookPage page(int id, boolean create) {
+        int index = id >>> PAGE_BITS;
+        if (index >= MAX_PAGES) {
+            throw new IllegalStateException("Book id " + id + " is outside the concurrent book table");
+        }
+        BookPage page = pages.get(index);
+        if (page == null && create) {
+            pages.compareAndSet(index, null, new BookPage());
+            page = pages.get(index);
+        }
+        return page;
+    }
+
+    private ReentrantLock readerLock(int registrationNumber) {
+        return readerLocks[(registrationNumber >>> READER_RANGE_BITS) % READER_STRIPES];
+    }
+
+    private static class Shelf {
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile Book[] books = new Book[16];
+        private volatile int size;
+
+        void append(Book book) {
+            Book[] current = books;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size * 2);
+                books = current;
+            }
+            current[size] = book;
+            size = size + 1;
+        }
+
+        List<Book> snapshot() {
+            int count = size;
+            return Collections.unmodifiableList(Arrays.asList(books).subList(0, count));
+        }
+    }
+
+    private static class ReaderLoans {
+        private final BookReader reader;
+        private volatile Book[] books = new Book[0];
+
+        ReaderLoans(BookReader reader) {
+            this.reader = reader;
+        }
+
+        void add(Book book) {
+            Book[] current = Arrays.copyOf(books, books.length + 1);
+            current[current.length - 1] = book;
+            books = current;
+        }
+
+        boolean remove(int bookId) {
+            Book[] current = books;
+            for (int i = current.length - 1; i >= 0; i--) {
+                if (current[i].getId() == bookId) {
+                    Book[] remaining = new Book[current.length - 1];
+                    System.arraycopy(current, 0, remaining, 0, i);
+                    System.arraycopy(current, i + 1, remaining, i, current.length - i - 1);
+                    books = remaining;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static class BookPage {
+        private final AtomicReferenceArray<Book> books = new AtomicReferenceArray<>(PAGE_SIZE);
+        private final AtomicIntegerArray loanCounts = new AtomicIntegerArray(PAGE_SIZE);
+        private final AtomicIntegerArray copies = new AtomicIntegerArray(PAGE_SIZE);
+    }
+}
@@ -0,0 +1,212 @@
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+class ConcurrentLibraryTest extends LibraryDriverTest {
+    static void runAll(Path dir) {
+        run("concurrent library stays consistent under contention", ConcurrentLibraryTest::consistentUnderContention);
+        run("concurrent statistics follow every completed call", ConcurrentLibraryTest::statisticsDoNotLag);
+        run("lock-free readers see whole books while a store grows", ConcurrentLibraryTest::readersSeeWholeBooks);
+        run("batch checkout borrows all books or none", ConcurrentLibraryTest::batchCheckoutIsAllOrNothing);
+        run("racing checkouts never lend more copies than exist", ConcurrentLibraryTest::racingCheckoutsRespectCopies);
+    }
+
+    private static void consistentUnderContention() throws Exception {
+        Library seed = new LibraryGenerator(3).stores(4).booksPerStore(200).readers(100).loansPerReader(1).generate();
+        String seedText = seed.toString();
+        ConcurrentLibrary library = new ConcurrentLibrary(seed);
+        library.setDefaultCopies(2);
+        long seedBooks = library.getStatistics().getBookCount();
+        List<Thread> workers = new ArrayList<>();
+        int[] added = new int[8];
+        for (int i = 0; i < added.length; i++) {
+            int worker = i;
+            workers.add(new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int n = 0; n < 5_000; n++) {
+                    int registrationNumber = 1 + random.nextInt(100);
+                    int roll = random.nextInt(10);
+                    if (roll < 5) {
+                        library.checkoutAll(registrationNumber, 1 + random.nextInt(50), 1 + random.nextInt(50));
+                    } else if (roll < 9) {
+                        List<Book> borrowed = library.getBorrowedBooks(registrationNumber);
+                        if (!borrowed.isEmpty()) {
+                            library.returnBook(registrationNumber, borrowed.get(0).getId());
+                        }
+                    } else {
+                        List<String> stores = library.getStoreNames();
+                        library.addBook(stores.get(random.nextInt(stores.size())),
+                                new Book("T" + n, List.of(new Author("A", "B" + worker)), 1990 + worker, 1));
+                        added[worker]++;
+                    }
+                }
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        check(ConcurrencyBenchmark.verify(library), "loans, copies and statistics must agree after the run");
+        long expectedBooks = seedBooks;
+        for (int count : added) {
+            expectedBooks += count;
+        }
+        check(library.getStatistics().getBookCount() == expectedBooks,
+                "expected " + expectedBooks + " books but counted " + library.getStatistics().getBookCount());
+        for (int bookId = 1; bookId <= 50; bookId++) {
+            check(library.getLoanCount(bookId) <= 2, "book " + bookId + " lent beyond its copies");
+        }
+        check(seed.toString().equals(seedText), "the seed library is only read, never updated");
+    }
+
+    private static void statisticsDoNotLag() {
+        ConcurrentLibrary library = new ConcurrentLibrary(new Library("Lag"));
+        library.addBookStore("Main");
+        library.addReader(new BookReader("Ann", "Lee", 1));
+        for (int i = 0; i < 3_000; i++) {
+            library.addBook("Main", new Book("Title " + i, List.of(new Author("Bo", "Ray")), 1950 + i % 70, 1));
+        }
+        check(library.checkoutAll(1, 1, 2, 3) == ConcurrentLibrary.CheckoutResult.BORROWED, "checkout of free books");
+        check(library.returnBook(1, 2), "return of a borrowed book");
+        LibraryStatistics statistics = library.getStatistics();
+        check(statistics.getBookCount() == 3_000, "books counted: " + statistics.getBookCount());
+        check(statistics.getAuthorBookCount("Bo", "Ray") == 3_000, "author counts merge across stripes");
+        check(statistics.getMostProlificAuthors(1).get(0).getCount() == 3_000, "top authors use merged counts");
+        check(statistics.getBooksInDecade(195) == 3_000 / 70 * 10 + 10, "decades merge across stripes: "
+                + statistics.getBooksInDecade(195));
+        check(statistics.getActiveLoans() == 2 && statistics.getLoanEvents() == 3, "loans counted immediately");
+        check(statistics.getReadersWithLoans(2) == 1 && statistics.getReadersWithLoans(0) == 0,
+                "the reader moved to the two-loan bucket");
+        check(statistics.getTimesBorrowed(2) == 1, "borrow history is kept after the return");
+    }
+
+    private static void readersSeeWholeBooks() throws Exception {
+        ConcurrentLibrary library = new ConcurrentLibrary(new Library("Grow"));
+        library.addBookStore("Main");
+        int books = 20_000;
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < books; i++) {
+                library.addBook("Main", new Book("Title " + i, List.of(new Author("Cy", "Doe")), 2000, 1));
+            }
+        });
+        List<String> problems = new ArrayList<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            readers.add(new Thread(() -> {
+                int seen = 0;
+                while (seen < books) {
+                    List<Book> shelf = library.getBooks("Main");
+                    if (shelf.size() < seen) {
+                        synchronized (problems) {
+                            problems.add("the shelf shrank from " + seen + " to " + shelf.size());
+                        }
+                        return;
+                    }
+                    seen = shelf.size();
+                    for (int j = Math.max(0, seen - 64); j < seen; j++) {
+                        Book book = shelf.get(j);
+                        if (book == null || library.getBook(book.getId()) != book) {
+                            synchronized (problems) {
+                                problems.add("book " + j + " is listed before it can be found: " + book);
+                            }
+                            return;
+                        }
+                    }
+                }
+            }));
+        }
+        for (Thread reader : readers) {
+            reader.start();
+        }
+        writer.start();
+        writer.join();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        synchronized (problems) {
+            check(problems.isEmpty(), problems.toString());
+        }
+        check(library.getBooks("Main").size() == books, "every book is listed");
+    }
+
+    private static void batchCheckoutIsAllOrNothing() {
+        ConcurrentLibrary library = new ConcurrentLibrary(new Library("Batch"));
+        library.addBookStore("Main");
+        library.addReader(new BookReader("Ann", "Lee", 1));
+        library.addReader(new BookReader("Bo", "Ray", 2));
+        for (int i = 0; i < 4; i++) {
+            library.addBook("Main", new Book("Title " + i, List.of(new Author("Cy", "Doe")), 2000, 1));
+        }
+        library.setDefaultCopies(1);
+        library.setCopies(4, 2);
+
+        check(library.checkoutAll(3, 1) == ConcurrentLibrary.CheckoutResult.UNKNOWN_READER, "unknown reader");
+        check(library.checkoutAll(1, 1, 99) == ConcurrentLibrary.CheckoutResult.UNKNOWN_BOOK, "unknown book");
+        check(library.getActiveLoanCount() == 0, "nothing borrowed by a batch with an unknown book");
+
+        check(library.checkoutAll(2, 3) == ConcurrentLibrary.CheckoutResult.BORROWED, "a single free book");
+        check(library.checkoutAll(1, 1, 2, 3) == ConcurrentLibrary.CheckoutResult.UNAVAILABLE, "one book is taken");
+        check(library.getLoanCount(1) == 0 && library.getLoanCount(2) == 0, "a rejected batch borrows nothing");
+        check(library.getBorrowedBooks(1).isEmpty(), "a rejected batch leaves the reader untouched");
+        check(library.getOptimisticCheckouts() == 1 && library.getRejectedCheckouts() == 1,
+                "an uncontended batch validates without locking");
+
+        check(library.checkoutAll(1, 1, 1) == ConcurrentLibrary.CheckoutResult.UNAVAILABLE, "two of a single copy");
+        check(library.checkoutAll(1, 4, 4) == ConcurrentLibrary.CheckoutResult.BORROWED, "both copies of a book");
+        check(library.getAvailableCopies(4) == 0 && library.getBorrowedBooks(1).size() == 2, "both copies lent");
+        check(library.getStatistics().getActiveLoans() == 3, "statistics follow the batch");
+    }
+
+    private static void racingCheckoutsRespectCopies() throws Exception {
+        ConcurrentLibrary library = new ConcurrentLibrary(new Library("Race"));
+        library.addBookStore("Main");
+        for (int i = 0; i < 10; i++) {
+            library.addBook("Main", new Book("Title " + i, List.of(new Author("Cy", "Doe")), 2000, 1));
+        }
+        int readers = 8;
+        for (int reader = 1; reader <= readers; reader++) {
+            library.addReader(new BookReader("Reader", "No" + reader, reader));
+        }
+        library.setDefaultCopies(3);
+        List<Thread> workers = new ArrayList<>();
+        for (int reader = 1; reader <= readers; reader++) {
+            int registrationNumber = reader;
+            workers.add(new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int n = 0; n < 2_000; n++) {
+                    int first = 1 + random.nextInt(10);
+                    int second = 1 + random.nextInt(10);
+                    if (library.checkoutAll(registrationNumber, first, second)
+                            == ConcurrentLibrary.CheckoutResult.BORROWED) {
+                        library.returnBook(registrationNumber, first);
+                        library.returnBook(registrationNumber, second);
+                    }
+                    for (int bookId = 1; bookId <= 10; bookId++) {
+                        check(library.getLoanCount(bookId) <= 3, "book " + bookId + " lent beyond its copies");
+                    }
+                }
+            }));
+        }
+        List<Throwable> errors = new ArrayList<>();
+        for (Thread worker : workers) {
+            worker.setUncaughtExceptionHandler((thread, e) -> {
+                synchronized (errors) {
+                    errors.add(e);
+                }
+            });
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        check(errors.isEmpty(), "worker failed: " + errors);
+        check(library.getActiveLoanCount() == 0, "every borrowed book came back");
+        long attempts = library.getOptimisticCheckouts() + library.getPessimisticCheckouts()
+                + library.getRejectedCheckouts();
+        check(attempts >= readers * 2_000L, "every attempt is counted once it is decided: " + attempts);
+        check(ConcurrencyBenchmark.verify(library), "loans, copies and statistics must agree after the run");
+    }
+}
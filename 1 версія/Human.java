@@ -0,0 +1,24 @@
+import java.io.*;
+
+abstract class Human implements Serializable {
+    private String firstName;
+    private String lastName;
+
+    public Human(String firstName, String lastName) {
+        this.firstName = firstName;
+        this.lastName = lastName;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    @Override
+    public String toString() {
+        return "Name: " + firstName + " " + lastName;
+    }
+}
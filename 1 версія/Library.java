@@ -0,0 +1,416 @@
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class Library implements Serializable {
+    private String libraryName;
+    private List<BookStore> bookStores;
+    private transient ReaderRegistry readers = new ReaderRegistry();
+    private int nextBookId = 1;
+    private transient List<Book> booksById = new ArrayList<>();
+    private transient Map<String, BookStore> bookStoresByName = new HashMap<>();
+    private transient CatalogIndex catalogIndex = new CatalogIndex();
+    private transient YearIndex yearIndex;
+    private transient LoanIndex loans = new LoanIndex();
+    private transient List<BookCatalog> catalogs = new ArrayList<>();
+    private transient LibraryStatistics statistics = new LibraryStatistics();
+    private transient int[] storeCopies = new int[16];
+
+    public Library(String libraryName) {
+        this.libraryName = libraryName;
+        this.bookStores = new ArrayList<>();
+    }
+
+    public String getLibraryName() {
+        return libraryName;
+    }
+
+    public List<BookStore> getBookStores() {
+        return Collections.unmodifiableList(bookStores);
+    }
+
+    public List<BookReader> getReaders() {
+        return readers.asList();
+    }
+
+    public boolean addBookStore(BookStore bookStore) {
+        if (bookStoresByName.putIfAbsent(bookStore.getStoreName(), bookStore) != null) {
+            return false;
+        }
+        bookStores.add(bookStore);
+        bookStore.attach(this);
+        return true;
+    }
+
+    public BookStore removeBookStore(String storeName) {
+        BookStore bookStore = bookStoresByName.remove(storeName);
+        if (bookStore == null) {
+            return null;
+        }
+        bookStores.remove(bookStore);
+        List<Book> unstocked = new ArrayList<>();
+        for (Book book : bookStore.getBooks()) {
+            if (removeStoreCopy(book)) {
+                unstocked.add(book);
+            }
+        }
+        if (!unstocked.isEmpty()) {
+            catalogIndex.removeAll(unstocked);
+            if (yearIndex != null) {
+                yearIndex.removeAll(unstocked);
+            }
+            statistics.booksRemoved(unstocked);
+        }
+        bookStore.detach();
+        return bookStore;
+    }
+
+    public BookStore getBookStore(String storeName) {
+        return bookStoresByName.get(storeName);
+    }
+
+    public boolean hasBookStore(String storeName) {
+        return bookStoresByName.containsKey(storeName);
+    }
+
+    public boolean addReader(BookReader reader) {
+        if (!readers.add(reader)) {
+            return false;
+        }
+        reader.attach(this);
+        statistics.readerAdded(reader.getBorrowedBooks().size());
+        return true;
+    }
+
+    public BookReader getReader(int registrationNumber) {
+        return readers.get(registrationNumber);
+    }
+
+    public BookReader removeReader(int registrationNumber) {
+        BookReader reader = readers.remove(registrationNumber);
+        if (reader != null) {
+            statistics.readerRemoved(reader.getBorrowedBooks().size());
+            for (Book book : reader.getBorrowedBooks()) {
+                releaseLoan(reader, book);
+            }
+            reader.detach();
+        }
+        return reader;
+    }
+
+    public boolean checkout(int registrationNumber, int bookId) {
+        BookReader reader = readers.get(registrationNumber);
+        Book book = findBook(bookId);
+        if (reader == null || book == null) {
+            return false;
+        }
+        reader.borrowBook(book);
+        return true;
+    }
+
+    public boolean returnBook(int registrationNumber, int bookId) {
+        BookReader reader = readers.get(registrationNumber);
+        Book book = findBook(bookId);
+        return reader != null && book != null && reader.returnBook(book);
+    }
+
+    public int getLoanCount(int bookId) {
+        return loans.getLoanCount(bookId);
+    }
+
+    public int[] getBorrowers(int bookId) {
+        return loans.getBorrowers(bookId);
+    }
+
+    public int getActiveLoanCount() {
+        return loans.getActiveLoanCount();
+    }
+
+    public LibraryStatistics getStatistics() {
+        return statistics;
+    }
+
+    void recordLoan(BookReader reader, Book book) {
+        loans.add(book.getId(), reader.getRegistrationNumber());
+        statistics.bookBorrowed(book);
+    }
+
+    void releaseLoan(BookReader reader, Book book) {
+        if (loans.remove(book.getId(), reader.getRegistrationNumber())) {
+            statistics.bookReturned();
+            forgetIfUnused(book.getId());
+        }
+    }
+
+    void readerLoansChanged(int from, int to) {
+        statistics.readerLoansChanged(from, to);
+    }
+
+    int[] getBorrowedBookIds() {
+        return loans.getBorrowedBookIds();
+    }
+
+    LoanIndex getLoanIndex() {
+        return loans;
+    }
+
+    ReaderRegistry getReaderRegistry() {
+        return readers;
+    }
+
+    public Book getBook(int id) {
+        Book book = id > 0 && id < booksById.size() ? booksById.get(id) : null;
+        for (int i = 0; book == null && i < catalogs.size(); i++) {
+            book = catalogs.get(i).findBook(id);
+        }
+        if (book instanceof BookCatalog.Row && !isStocked(id) && loans.getLoanCount(id) == 0) {
+            return null;
+        }
+        return book;
+    }
+
+    private Book findBook(int id) {
+        Book book = getBook(id);
+        if (book == null && id > 0 && id < nextBookId) {
+            loadAllStores();
+            book = getBook(id);
+        }
+        return book;
+    }
+
+    int getNextBookId() {
+        return nextBookId;
+    }
+
+    void reserveBookIds(int nextBookId) {
+        this.nextBookId = Math.max(this.nextBookId, nextBookId);
+    }
+
+    void register(Book book) {
+        if (book instanceof BookCatalog.Row) {
+            return;
+        }
+        if (book.getId() == 0) {
+            book.assignId(nextBookId++);
+        } else {
+            reserveBookIds(book.getId() + 1);
+        }
+        while (booksById.size() <= book.getId()) {
+            booksById.add(null);
+        }
+        if (booksById.get(book.getId()) == null) {
+            booksById.set(book.getId(), book);
+        }
+    }
+
+    void stock(Book book) {
+        stock(book, null);
+    }
+
+    void stock(Book book, String[] tokens) {
+        if (book instanceof BookCatalog.Row) {
+            return;
+        }
+        register(book);
+        addStoreCopy(book, tokens);
+    }
+
+    void registerExternal(Book book) {
+        if (book.getId() == 0) {
+            book.assignId(nextBookId++);
+        } else {
+            reserveBookIds(book.getId() + 1);
+        }
+        addStoreCopy(book, null);
+    }
+
+    private void addStoreCopy(Book book, String[] tokens) {
+        int id = book.getId();
+        if (id >= storeCopies.length) {
+            storeCopies = Arrays.copyOf(storeCopies, Math.max(id + 1, storeCopies.length * 2));
+        }
+        if (storeCopies[id]++ == 0) {
+            catalogIndex.add(book, tokens != null ? tokens : CatalogIndex.tokens(book));
+            statistics.bookAdded(book);
+            if (yearIndex != null) {
+                yearIndex.add(book);
+            }
+        }
+    }
+
+    private boolean removeStoreCopy(Book book) {
+        int id = book.getId();
+        if (!isStocked(id) || --storeCopies[id] > 0) {
+            return false;
+        }
+        forgetIfUnused(id);
+        return true;
+    }
+
+    private void forgetIfUnused(int id) {
+        if (id < booksById.size() && !isStocked(id) && loans.getLoanCount(id) == 0) {
+            booksById.set(id, null);
+        }
+    }
+
+    private boolean isStocked(int id) {
+        return id < storeCopies.length && storeCopies[id] > 0;
+    }
+
+    void attachCatalog(BookCatalog catalog) {
+        if (!catalogs.contains(catalog)) {
+            catalogs.add(catalog);
+        }
+    }
+
+    public List<Book> searchBooks(String query) {
+        return toBooks(searchBookIds(query));
+    }
+
+    public BookQuery query() {
+        return new BookQuery(this);
+    }
+
+    int[] searchBookIds(String query) {
+        loadAllStores();
+        return catalogIndex.search(query);
+    }
+
+    long estimateSearch(List<String> terms) {
+        long estimate = catalogIndex.estimate(terms);
+        for (BookStore bookStore : bookStores) {
+            if (!bookStore.isLoaded()) {
+                estimate += bookStore.getBookCount();
+            }
+        }
+        return estimate;
+    }
+
+    public List<Book> fuzzySearchBooks(String query, int limit) {
+        loadAllStores();
+        return toBooks(catalogIndex.fuzzySearch(query, limit));
+    }
+
+    public int countBooksPublished(int fromYear, int toYear) {
+        return yearIndex().count(fromYear, toYear);
+    }
+
+    public List<Book> findBooksPublished(int fromYear, int toYear, int editionNumber) {
+        return toBooks(yearIndex().scan(fromYear, toYear, editionNumber));
+    }
+
+    YearIndex getYearIndex() {
+        return yearIndex;
+    }
+
+    YearIndex yearIndex() {
+        if (yearIndex == null) {
+            loadAllStores();
+            YearIndex index = new YearIndex(true);
+            for (Book book : booksById) {
+                if (book != null && isStocked(book.getId())) {
+                    index.append(book);
+                }
+            }
+            for (BookStore bookStore : bookStores) {
+                bookStore.forEachBook(book -> {
+                    if (book instanceof BookCatalog.Row) {
+                        index.append(book);
+                    }
+                });
+            }
+            index.merge();
+            yearIndex = index;
+        }
+        return yearIndex;
+    }
+
+    private void loadAllStores() {
+        for (BookStore bookStore : bookStores) {
+            bookStore.getBooks();
+        }
+    }
+
+    private List<Book> toBooks(int[] ids) {
+        List<Book> books = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            books.add(getBook(id));
+        }
+        return books;
+    }
+
+    CatalogIndex getCatalogIndex() {
+        return catalogIndex;
+    }
+
+    Library capture() {
+        Library view = new Library(libraryName);
+        view.nextBookId = nextBookId;
+        for (BookStore bookStore : bookStores) {
+            BookStore captured = bookStore.capture();
+            view.bookStores.add(captured);
+            view.bookStoresByName.put(captured.getStoreName(), captured);
+        }
+        for (BookReader reader : readers.asList()) {
+            view.readers.add(reader.capture());
+        }
+        return view;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        BitSet stocked = new BitSet();
+        for (BookStore bookStore : bookStores) {
+            for (Book book : bookStore.getBooks()) {
+                stocked.set(book.getId());
+            }
+        }
+        List<Book> looseBooks = new ArrayList<>();
+        for (BookReader reader : readers.asList()) {
+            for (Book book : reader.getBorrowedBooks()) {
+                if (!stocked.get(book.getId())) {
+                    stocked.set(book.getId());
+                    looseBooks.add(book);
+                }
+            }
+        }
+        out.writeObject(new ArrayList<>(readers.asList()));
+        out.writeObject(looseBooks);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        List<BookReader> readerList = (List<BookReader>) in.readObject();
+        List<Book> looseBooks = (List<Book>) in.readObject();
+        readers = new ReaderRegistry();
+        loans = new LoanIndex();
+        catalogs = new ArrayList<>();
+        statistics = new LibraryStatistics();
+        storeCopies = new int[16];
+        booksById = new ArrayList<>();
+        bookStoresByName = new HashMap<>();
+        catalogIndex = new CatalogIndex();
+        for (BookStore bookStore : bookStores) {
+            bookStoresByName.putIfAbsent(bookStore.getStoreName(), bookStore);
+            bookStore.attach(this);
+        }
+        for (Book book : looseBooks) {
+            register(book);
+        }
+        for (BookReader reader : readerList) {
+            reader.resolveLoans(this);
+            addReader(reader);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return ReportRenderer.render(renderer -> renderer.library(this));
+    }
+}
@@ -1,141 +1,33 @@
 import java.io.*;
-import java.util.ArrayList;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.Scanner;
-
-abstract class Human implements Serializable {
-    private String firstName;
-    private String lastName;
-
-    public Human(String firstName, String lastName) {
-        this.firstName = firstName;
-        this.lastName = lastName;
-    }
-
-    @Override
-    public String toString() {
-        return "Name: " + firstName + " " + lastName;
-    }
-}
-
-class Author extends Human {
-    public Author(String firstName, String lastName) {
-        super(firstName, lastName);
-    }
-}
-
-class Book implements Serializable {
-    private String title;
-    private List<Author> authors;
-    private int publicationYear;
-    private int editionNumber;
-    private String storageName;
-
-    public Book(String title, List<Author> authors, int publicationYear, int editionNumber) {
-        this.title = title;
-        this.authors = authors;
-        this.publicationYear = publicationYear;
-        this.editionNumber = editionNumber;
-    }
-
-    public Book(String title, List<Author> authors, int publicationYear, int editionNumber, String storageName) {
-        this(title, authors, publicationYear, editionNumber);
-        this.storageName = storageName;
-    }
-
-    @Override
-    public String toString() {
-        StringBuilder authorsString = new StringBuilder();
-        for (Author author : authors) {
-            authorsString.append(author).append(", ");
-        }
-        authorsString.delete(authorsString.length() - 2, authorsString.length());
-
-        String storageInfo = (storageName != null) ? ", Storage: " + storageName : "";
-
-        return "Book: " + title + ", Authors: " + authorsString + ", Year: " + publicationYear +
-                ", Edition: " + editionNumber + storageInfo;
-    }
-
-    public String getStorageName() {
-        return storageName;
-    }
-}
-
-
-class BookStore implements Serializable {
-    private static final long serialVersionUID = 987654321L;
-    private String storeName;
-    private List<Book> books;
-
-    public BookStore(String storeName) {
-        this.storeName = storeName;
-        this.books = new ArrayList<>();
-    }
-
-    public String getStoreName() {
-        return storeName;
-    }
-
-    public List<Book> getBooks() {
-        return books;
-    }
-
-    @Override
-    public String toString() {
-        return "Store: " + storeName + "\nBooks: " + books;
-    }
-}
-
-class BookReader extends Human implements Serializable {
-    private int registrationNumber;
-    private List<Book> borrowedBooks;
-
-    public BookReader(String firstName, String lastName, int registrationNumber) {
-        super(firstName, lastName);
-        this.registrationNumber = registrationNumber;
-        this.borrowedBooks = new ArrayList<>();
-    }
-
-    public void borrowBook(Book book) {
-        borrowedBooks.add(book);
-    }
-
-    @Override
-    public String toString() {
-        return super.toString() + ", Registration Number: " + registrationNumber + "\nBorrowed Books: " + borrowedBooks;
-    }
-}
-
-class Library implements Serializable {
-    private String libraryName;
-    private List<BookStore> bookStores;
-    private List<BookReader> readers;
-
-    public Library(String libraryName) {
-        this.libraryName = libraryName;
-        this.bookStores = new ArrayList<>();
-        this.readers = new ArrayList<>();
-    }
-
-    public List<BookStore> getBookStores() {
-        return bookStores;
-    }
-
-    public List<BookReader> getReaders() {
-        return readers;
-    }
-
-    @Override
-    public String toString() {
-        return "Library: " + libraryName + "\nBook Stores: " + bookStores + "\nReaders: " + readers;
-    }
-}
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class LibraryDriver {
     private static final Scanner scanner = new Scanner(System.in);
+    private static final String JOURNAL_FILE = "library.journal";
+    private static final int PAGE_SIZE = 50;
+    private static final long REPORT_LIMIT = 1_000_000;
+    private static final AsyncSnapshotter snapshotter = new AsyncSnapshotter();
+    private static final Queue<Runnable> snapshotReports = new ConcurrentLinkedQueue<>();
+    private static LibraryJournal journal;
+    private static OffHeapCatalog catalog;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && !args[0].equals("--catalog")) {
+            runCommand(args);
+            return;
+        }
 
-    public static void main(String[] args) {
         Author author1 = new Author("John", "Doe");
         Author author2 = new Author("Jane", "Smith");
 
@@ -147,39 +39,51 @@ public class LibraryDriver {
         BookStore mysteryNovels = new BookStore("Mystery Novels");
         BookStore fantasyLibrary = new BookStore("Fantasy Library");
         BookStore scienceFictionCollection = new BookStore("Science Fiction Collection");
-        bookStore.getBooks().add(book1);
-        bookStore.getBooks().add(book2);
-        adventureBooks.getBooks().add(new Book("The Hobbit", List.of(new Author("J.R.R.", "Tolkien")), 1937, 1));
-        adventureBooks.getBooks().add(new Book("Treasure Island", List.of(new Author("Robert Louis", "Stevenson")), 1883, 1));
+        bookStore.addBook(book1);
+        bookStore.addBook(book2);
+        adventureBooks.addBook(new Book("The Hobbit", List.of(new Author("J.R.R.", "Tolkien")), 1937, 1));
+        adventureBooks.addBook(new Book("Treasure Island", List.of(new Author("Robert Louis", "Stevenson")), 1883, 1));
 
-        mysteryNovels.getBooks().add(new Book("The Hound of the Baskervilles", List.of(new Author("Arthur Conan", "Doyle")), 1902, 1));
-        mysteryNovels.getBooks().add(new Book("Gone Girl", List.of(new Author("Gillian", "Flynn")), 2012, 1));
+        mysteryNovels.addBook(new Book("The Hound of the Baskervilles", List.of(new Author("Arthur Conan", "Doyle")), 1902, 1));
+        mysteryNovels.addBook(new Book("Gone Girl", List.of(new Author("Gillian", "Flynn")), 2012, 1));
 
-        fantasyLibrary.getBooks().add(new Book("Harry Potter and the Philosopher's Stone", List.of(new Author("J.K.", "Rowling")), 1997, 1));
-        fantasyLibrary.getBooks().add(new Book("The Name of the Wind", List.of(new Author("Patrick", "Rothfuss")), 2007, 1));
+        fantasyLibrary.addBook(new Book("Harry Potter and the Philosopher's Stone", List.of(new Author("J.K.", "Rowling")), 1997, 1));
+        fantasyLibrary.addBook(new Book("The Name of the Wind", List.of(new Author("Patrick", "Rothfuss")), 2007, 1));
 
-        scienceFictionCollection.getBooks().add(new Book("Dune", List.of(new Author("Frank", "Herbert")), 1965, 1));
-        scienceFictionCollection.getBooks().add(new Book("Neuromancer", List.of(new Author("William", "Gibson")), 1984, 1));
+        scienceFictionCollection.addBook(new Book("Dune", List.of(new Author("Frank", "Herbert")), 1965, 1));
+        scienceFictionCollection.addBook(new Book("Neuromancer", List.of(new Author("William", "Gibson")), 1984, 1));
         BookReader reader1 = new BookReader("Alice", "Johnson", 12345);
         reader1.borrowBook(book1);
 
         Library library = new Library("City Library");
-        library.getBookStores().add(bookStore);
-        library.getReaders().add(reader1);
-        library.getBookStores().add(adventureBooks);
-        library.getBookStores().add(mysteryNovels);
-        library.getBookStores().add(fantasyLibrary);
-        library.getBookStores().add(scienceFictionCollection);
+        library.addBookStore(bookStore);
+        library.addReader(reader1);
+        library.addBookStore(adventureBooks);
+        library.addBookStore(mysteryNovels);
+        library.addBookStore(fantasyLibrary);
+        library.addBookStore(scienceFictionCollection);
+        if (args.length > 1) {
+            catalog = OffHeapCatalog.open(Paths.get(args[1]));
+            for (String storeName : catalog.getStoreNames()) {
+                if (!library.addBookStore(new BookStore(storeName, catalog))) {
+                    System.out.println("Off-heap storage " + storeName + " is shadowed by a built-in storage.");
+                }
+            }
+            System.out.println("Opened off-heap catalog " + args[1] + " with " + catalog.getBookCount() + " books.");
+        }
 
         int choice;
         do {
+            printSnapshotReports();
             System.out.println("\nMenu:");
             System.out.println("1) Add a reader");
             System.out.println("2) Library Report");
             System.out.println("3) Serialize Library");
             System.out.println("4) Deserialize Library");
             System.out.println("5) Add Book or Storage");
-            System.out.println("6) Exit");
+            System.out.println("6) Search Books");
+            System.out.println("7) Borrow or Return a Book");
+            System.out.println("8) Exit");
             System.out.print("Enter your choice: ");
             choice = scanner.nextInt();
             scanner.nextLine();
@@ -193,11 +97,40 @@ public class LibraryDriver {
                     showTotalReaders(library);
                     break;
                 case 3:
-                    serializeLibrary(library, "library.ser");
+                    switch (chooseFormat()) {
+                        case 1:
+                            serializeLibrary(library, "library.ser");
+                            break;
+                        case 2:
+                            saveSnapshot(library, "library.snap");
+                            break;
+                        case 3:
+                            serializeCompressedLibrary(library, "library.serz");
+                            break;
+                        default:
+                            System.out.println("Invalid choice. Please try again.");
+                    }
                     break;
                 case 4:
-                    library = deserializeLibrary("library.ser");
-                    if (library != null) {
+                    Library loaded;
+                    snapshotter.awaitIdle();
+                    printSnapshotReports();
+                    switch (chooseFormat()) {
+                        case 1:
+                            loaded = deserializeLibrary("library.ser");
+                            break;
+                        case 2:
+                            loaded = loadSnapshot("library.snap");
+                            break;
+                        case 3:
+                            loaded = deserializeCompressedLibrary("library.serz");
+                            break;
+                        default:
+                            loaded = null;
+                            System.out.println("Invalid choice. Please try again.");
+                    }
+                    if (loaded != null) {
+                        library = loaded;
                         System.out.println("Library deserialized successfully.");
                     }
                     break;
@@ -205,12 +138,232 @@ public class LibraryDriver {
                     addBookOrStorage(library);
                     break;
                 case 6:
+                    searchBooks(library);
+                    break;
+                case 7:
+                    borrowOrReturnBook(library);
+                    break;
+                case 8:
+                    closeJournal();
+                    snapshotter.close();
+                    printSnapshotReports();
+                    if (catalog != null) {
+                        catalog.close();
+                    }
                     System.out.println("Exiting the program.");
                     break;
                 default:
                     System.out.println("Invalid choice. Please try again.");
             }
-        } while (choice != 6);
+        } while (choice != 8);
+    }
+
+    private static void runCommand(String[] args) throws IOException {
+        switch (args[0]) {
+            case "--generate-script":
+                ScriptedLoadDriver.generateScript(Paths.get(args[1]), Integer.parseInt(args[2]),
+                        args.length > 3 ? Integer.parseInt(args[3]) : 10, args.length > 4 ? Long.parseLong(args[4]) : 42);
+                System.out.println("Script written to " + args[1]);
+                break;
+            case "--load":
+                int stores = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+                Library library = new LibraryGenerator(args.length > 5 ? Long.parseLong(args[5]) : 42)
+                        .stores(stores)
+                        .booksPerStore(args.length > 4 ? Integer.parseInt(args[4]) : 1_000)
+                        .generate();
+                ScriptedLoadDriver.run(library, Paths.get(args[1]),
+                        args.length > 2 ? Double.parseDouble(args[2]) : 0, System.out);
+                break;
+            case "--fill-catalog":
+                int books = args.length > 2 ? Integer.parseInt(args[2]) : 1_000_000;
+                try (OffHeapCatalog offHeap = OffHeapCatalog.open(Paths.get(args[1]))) {
+                    long started = System.nanoTime();
+                    new LibraryGenerator(args.length > 3 ? Long.parseLong(args[3]) : 42).catalog(offHeap)
+                            .stores(Math.max(1, books / 10_000)).booksPerStore(Math.min(books, 10_000))
+                            .readers(0).generate();
+                    offHeap.persist();
+                    System.out.printf("Stored %d books off-heap in %s (%d MB mapped, %.1f s)%n", offHeap.getBookCount(),
+                            args[1], offHeap.getOffHeapBytes() >> 20, (System.nanoTime() - started) / 1e9);
+                }
+                break;
+            case "--footprint":
+                printFootprint(args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000);
+                break;
+            case "--query":
+                runQuery(Arrays.copyOfRange(args, 1, args.length));
+                break;
+            case "--generate-feed":
+                CatalogImporter.generateFeed(Paths.get(args[1]), Integer.parseInt(args[2]),
+                        args.length > 3 ? Integer.parseInt(args[3]) : 100, args.length > 4 ? Long.parseLong(args[4]) : 42);
+                System.out.println("Feed written to " + args[1]);
+                break;
+            case "--import":
+                Library imported = new Library("Imported Library");
+                CatalogImporter importer = new CatalogImporter(imported);
+                if (args.length > 2) {
+                    importer.threads(Integer.parseInt(args[2]));
+                }
+                System.out.println(importer.importFile(Paths.get(args[1])));
+                System.out.println(imported.getBookStores().size() + " storages, "
+                        + imported.getStatistics().getBookCount() + " books, "
+                        + imported.getStatistics().getAuthorCount() + " authors");
+                break;
+            case "--serve":
+                int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+                ConcurrentLibrary served = new ConcurrentLibrary(new LibraryGenerator(42)
+                        .stores(args.length > 2 ? Integer.parseInt(args[2]) : 10)
+                        .booksPerStore(args.length > 3 ? Integer.parseInt(args[3]) : 1_000).generate());
+                LibraryHttpServer httpServer = new LibraryHttpServer(served, port);
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    System.out.println("Stopping; waiting up to 5 s for requests in flight");
+                    httpServer.stop(5);
+                    System.out.print(httpServer.describeMetrics());
+                }, "http-shutdown"));
+                httpServer.start();
+                System.out.println("Serving on http://localhost:" + httpServer.getPort() + "/ ("
+                        + (httpServer.usesVirtualThreads() ? "virtual threads" : "cached thread pool") + "), Ctrl-C to stop");
+                break;
+            case "--stress":
+            case "--checkout-stress":
+                try {
+                    double secondsPerStep = args.length > 1 ? Double.parseDouble(args[1]) : 2;
+                    int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : 32;
+                    if (args[0].equals("--stress")) {
+                        ConcurrencyBenchmark.run(secondsPerStep, maxThreads, System.out);
+                    } else {
+                        ConcurrencyBenchmark.runCheckouts(secondsPerStep, maxThreads, System.out);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                break;
+            default:
+                System.out.println("Usage: LibraryDriver [--generate-script <file> <operations> [stores] [seed]]");
+                System.out.println("                     [--load <file> [opsPerSecond] [stores] [booksPerStore] [seed]]");
+                System.out.println("                     [--fill-catalog <directory> [books] [seed]]");
+                System.out.println("                     [--catalog <directory>]");
+                System.out.println("                     [--footprint [books]]");
+                System.out.println("                     [--query [books=N] [title=..] [author=..] [from=Y] [to=Y] [store=..]");
+                System.out.println("                              [borrowed=true|false] [order=id|title|year] [limit=N] [yearIndex=true]]");
+                System.out.println("                     [--stress [secondsPerStep] [maxThreads]]");
+                System.out.println("                     [--checkout-stress [secondsPerStep] [maxThreads]]");
+                System.out.println("                     [--serve [port] [stores] [booksPerStore]]");
+                System.out.println("                     [--generate-feed <file.csv|file.tsv> <rows> [stores] [seed]]");
+                System.out.println("                     [--import <file.csv|file.tsv> [threads]]");
+        }
+    }
+
+    private static void printFootprint(int books) {
+        int stores = Math.max(1, books / 10_000);
+        LibraryGenerator generator = new LibraryGenerator(42).stores(stores).booksPerStore(books / stores)
+                .authorPool(Math.max(1, books / 50)).readers(0);
+        long baseline = usedHeap();
+        Library objects = generator.generate();
+        long objectBytes = usedHeap() - baseline;
+        int[] objectDecades = new int[300];
+        long objectScan = scanDecades(objects, objectDecades);
+        objects = null;
+
+        baseline = usedHeap();
+        BookTable table = new BookTable();
+        Library tabled = generator.catalog(table).generate();
+        long tableBytes = usedHeap() - baseline;
+        int[] tableDecades = new int[300];
+        long tableScan = scanDecades(tabled, tableDecades);
+
+        System.out.printf("%-12s %12s %14s %12s%n", "catalog", "books", "heap bytes", "scan ms");
+        System.out.printf("%-12s %12d %14d %12.2f%n", "objects", table.size(), objectBytes, objectScan / 1e6);
+        System.out.printf("%-12s %12d %14d %12.2f%n", "book-table", table.size(), tableBytes, tableScan / 1e6);
+        System.out.println("Both include the library indexes; scans agree: " + Arrays.equals(objectDecades, tableDecades));
+    }
+
+    private static long scanDecades(Library library, int[] decades) {
+        long started = System.nanoTime();
+        for (BookStore bookStore : library.getBookStores()) {
+            bookStore.forEachBook(book -> decades[book.getPublicationYear() / 10]++);
+        }
+        return System.nanoTime() - started;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void runQuery(String[] options) {
+        Map<String, String> values = new HashMap<>();
+        for (String option : options) {
+            int separator = option.indexOf('=');
+            if (separator < 0) {
+                System.out.println("Ignoring option without a value: " + option);
+            } else {
+                values.put(option.substring(0, separator), option.substring(separator + 1));
+            }
+        }
+        int books = Integer.parseInt(values.getOrDefault("books", "100000"));
+        Library library = new LibraryGenerator(42).stores(Math.max(1, books / 10_000))
+                .booksPerStore(Math.min(books, 10_000)).generate();
+        if (Boolean.parseBoolean(values.get("yearIndex"))) {
+            library.countBooksPublished(0, 0);
+        }
+
+        BookQuery query = library.query();
+        if (values.containsKey("title")) {
+            query.titleContains(values.get("title"));
+        }
+        if (values.containsKey("author")) {
+            query.byAuthor(values.get("author"));
+        }
+        if (values.containsKey("from") || values.containsKey("to")) {
+            query.publishedBetween(Integer.parseInt(values.getOrDefault("from", String.valueOf(Integer.MIN_VALUE))),
+                    Integer.parseInt(values.getOrDefault("to", String.valueOf(Integer.MAX_VALUE))));
+        }
+        if (values.containsKey("store")) {
+            query.inStore(values.get("store"));
+        }
+        if (values.containsKey("borrowed")) {
+            query.borrowed(Boolean.parseBoolean(values.get("borrowed")));
+        }
+        if (values.containsKey("limit")) {
+            query.limit(Integer.parseInt(values.get("limit")));
+        }
+        switch (values.getOrDefault("order", "")) {
+            case "id":
+                query.orderBy(Comparator.comparingInt(Book::getId));
+                break;
+            case "title":
+                query.orderBy(Comparator.comparing(Book::getTitle).thenComparingInt(Book::getId));
+                break;
+            case "year":
+                query.orderBy(Comparator.comparingInt(Book::getPublicationYear).thenComparingInt(Book::getId));
+                break;
+            default:
+        }
+
+        System.out.println(query.explain());
+        long started = System.nanoTime();
+        List<String> rows = query.select(book -> "#" + book.getId() + " " + book);
+        long micros = (System.nanoTime() - started) / 1_000;
+        System.out.println(rows.size() + " books (" + micros + " us):");
+        for (int i = 0; i < Math.min(rows.size(), 20); i++) {
+            System.out.println("    - " + rows.get(i));
+        }
+        if (rows.size() > 20) {
+            System.out.println("    ... and " + (rows.size() - 20) + " more");
+        }
+    }
+
+    private static int chooseFormat() {
+        System.out.println("Choose format:");
+        System.out.println("1) Java Serialization (library.ser)");
+        System.out.println("2) Binary Snapshot (library.snap)");
+        System.out.println("3) Compressed Java Serialization (library.serz)");
+        int choice = scanner.nextInt();
+        scanner.nextLine();
+        return choice;
     }
 
     private static void showTotalReaders(Library library) {
@@ -222,6 +375,8 @@ public class LibraryDriver {
         System.out.println("Choose what to add:");
         System.out.println("1) Book");
         System.out.println("2) Storage");
+        System.out.println("3) Import Books from a CSV/TSV File");
+        System.out.println("4) Remove a Storage");
         int choice = scanner.nextInt();
         scanner.nextLine();
 
@@ -232,6 +387,12 @@ public class LibraryDriver {
             case 2:
                 addStorage(library);
                 break;
+            case 3:
+                importBooks(library);
+                break;
+            case 4:
+                removeStorage(library);
+                break;
             default:
                 System.out.println("Invalid choice. Please try again.");
         }
@@ -241,18 +402,47 @@ public class LibraryDriver {
         System.out.print("Enter the name of the new Book Storage: ");
         String storageName = scanner.nextLine();
 
-
-        for (BookStore existingStore : library.getBookStores()) {
-            if (existingStore.getStoreName().equals(storageName)) {
-                System.out.println("Error: Storage with this name already exists.");
-                return;
-            }
+        if (addStorage(library, storageName) == null) {
+            System.out.println("Error: Storage with this name already exists.");
+            return;
         }
+        System.out.println("Storage added successfully: " + storageName);
+    }
 
+    private static void removeStorage(Library library) {
+        System.out.print("Enter the name of the Book Storage to remove: ");
+        String storageName = scanner.nextLine();
 
-        BookStore newStorage = new BookStore(storageName);
-        library.getBookStores().add(newStorage);
-        System.out.println("Storage added successfully: " + storageName);
+        BookStore removed = removeStorage(library, storageName);
+        if (removed == null) {
+            System.out.println("Error: The specified storage does not exist.");
+            return;
+        }
+        System.out.println("Storage removed: " + storageName + " (" + removed.getBookCount() + " books)");
+    }
+
+    private static void importBooks(Library library) {
+        System.out.print("File to import (title, authors, year, edition, storage per line): ");
+        String fileName = scanner.nextLine();
+
+        try {
+            CatalogImporter.Report report = new CatalogImporter(library)
+                    .storeFactory(storageName -> addStorage(library, storageName))
+                    .listener((bookStore, book) -> {
+                        LibraryJournal libraryJournal = journalOf(library);
+                        if (libraryJournal != null) {
+                            try {
+                                libraryJournal.logAddBook(bookStore, book);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        }
+                    })
+                    .importFile(Paths.get(fileName));
+            System.out.println(report);
+        } catch (IOException | UncheckedIOException e) {
+            e.printStackTrace();
+        }
     }
 
     private static void addBook(Library library) {
@@ -272,30 +462,11 @@ public class LibraryDriver {
         System.out.print("Enter the name of the Book Storage: ");
         String storageName = scanner.nextLine();
 
-
-        boolean storageExists = false;
-        for (BookStore bookStore : library.getBookStores()) {
-            if (bookStore.getStoreName().equals(storageName)) {
-                storageExists = true;
-                break;
-            }
-        }
-
-        if (!storageExists) {
+        if (addBook(library, title, authorFirstName, authorLastName, publicationYear, editionNumber, storageName) == null) {
             System.out.println("Error: The specified storage does not exist.");
             return;
         }
-
-
-        for (BookStore bookStore : library.getBookStores()) {
-            if (bookStore.getStoreName().equals(storageName)) {
-                Author author = new Author(authorFirstName, authorLastName);
-                Book book = new Book(title, List.of(author), publicationYear, editionNumber, storageName);
-                bookStore.getBooks().add(book);
-                System.out.println("Book added successfully to storage: " + storageName);
-                return;
-            }
-        }
+        System.out.println("Book added successfully to storage: " + storageName);
     }
 
 
@@ -308,12 +479,110 @@ public class LibraryDriver {
         System.out.print("Registration Number: ");
         int registrationNumber = scanner.nextInt();
 
-        BookReader reader = new BookReader(firstName, lastName, registrationNumber);
+        if (addReader(library, firstName, lastName, registrationNumber) == null) {
+            System.out.println("Error: A reader with this registration number already exists.");
+            return;
+        }
+        System.out.println("Reader added successfully.");
+    }
 
+    static BookStore addStorage(Library library, String storageName) {
+        if (library.hasBookStore(storageName)) {
+            return null;
+        }
+        BookStore newStorage = catalog != null ? new BookStore(storageName, catalog) : new BookStore(storageName);
+        if (!library.addBookStore(newStorage)) {
+            return null;
+        }
+        LibraryJournal libraryJournal = journalOf(library);
+        if (libraryJournal != null) {
+            try {
+                libraryJournal.logAddStorage(newStorage);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return newStorage;
+    }
+
+    static BookStore removeStorage(Library library, String storageName) {
+        BookStore removed = library.removeBookStore(storageName);
+        LibraryJournal libraryJournal = journalOf(library);
+        if (removed != null && libraryJournal != null) {
+            try {
+                libraryJournal.logRemoveStorage(removed);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return removed;
+    }
 
-        library.getReaders().add(reader);
+    static Book addBook(Library library, String title, String authorFirstName, String authorLastName,
+                        int publicationYear, int editionNumber, String storageName) {
+        BookStore bookStore = library.getBookStore(storageName);
+        if (bookStore == null) {
+            return null;
+        }
 
-        System.out.println("Reader added successfully.");
+        Author author = new Author(authorFirstName, authorLastName);
+        Book book = new Book(title, List.of(author), publicationYear, editionNumber, storageName);
+        bookStore.addBook(book);
+        LibraryJournal libraryJournal = journalOf(library);
+        if (libraryJournal != null) {
+            try {
+                libraryJournal.logAddBook(bookStore, book);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return book;
+    }
+
+    static boolean checkoutBook(Library library, int registrationNumber, int bookId) {
+        if (!library.checkout(registrationNumber, bookId)) {
+            return false;
+        }
+        LibraryJournal libraryJournal = journalOf(library);
+        if (libraryJournal != null) {
+            try {
+                libraryJournal.logCheckout(registrationNumber, bookId);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return true;
+    }
+
+    static boolean returnBook(Library library, int registrationNumber, int bookId) {
+        if (!library.returnBook(registrationNumber, bookId)) {
+            return false;
+        }
+        LibraryJournal libraryJournal = journalOf(library);
+        if (libraryJournal != null) {
+            try {
+                libraryJournal.logReturn(registrationNumber, bookId);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return true;
+    }
+
+    static BookReader addReader(Library library, String firstName, String lastName, int registrationNumber) {
+        BookReader reader = new BookReader(firstName, lastName, registrationNumber);
+        if (!library.addReader(reader)) {
+            return null;
+        }
+        LibraryJournal libraryJournal = journalOf(library);
+        if (libraryJournal != null) {
+            try {
+                libraryJournal.logAddReader(reader);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return reader;
     }
 
     private static void displayLibraryReport(Library library) {
@@ -323,7 +592,10 @@ public class LibraryDriver {
             System.out.println("1) Display Book Storages");
             System.out.println("2) Display Readers");
             System.out.println("3) Display Total Readers");
-            System.out.println("4) Back to Main Menu");
+            System.out.println("4) Display Books Published Between Years");
+            System.out.println("5) Display Statistics");
+            System.out.println("6) Display Full Report");
+            System.out.println("7) Back to Main Menu");
             System.out.print("Enter your choice: ");
             subChoice = scanner.nextInt();
 
@@ -338,12 +610,21 @@ public class LibraryDriver {
                     showTotalReaders(library);
                     break;
                 case 4:
+                    displayBooksPublished(library);
+                    break;
+                case 5:
+                    displayStatistics(library);
+                    break;
+                case 6:
+                    displayFullReport(library);
+                    break;
+                case 7:
                     System.out.println("Returning to the main menu.");
                     break;
                 default:
                     System.out.println("Invalid choice. Please try again.");
             }
-        } while (subChoice != 4);
+        } while (subChoice != 7);
     }
 
     private static void displayBookStorages(Library library) {
@@ -351,7 +632,8 @@ public class LibraryDriver {
         System.out.println("Book Storages:");
 
         for (int i = 0; i < bookStorages.size(); i++) {
-            System.out.println((i + 1) + ") " + bookStorages.get(i).getStoreName());
+            BookStore bookStore = bookStorages.get(i);
+            System.out.println((i + 1) + ") " + bookStore.getStoreName() + " (" + bookStore.getBookCount() + " books)");
         }
 
         System.out.print("Enter the number of the BookStorage to display books (0 to go back): ");
@@ -363,32 +645,174 @@ public class LibraryDriver {
     }
 
     private static void displayBooksInStorage(BookStore bookStorage) {
-        System.out.println("Books in " + bookStorage.getStoreName() + ":");
+        System.out.println("Books in " + bookStorage.getStoreName() + " (" + bookStorage.getBookCount() + "):");
 
         List<Book> books = bookStorage.getBooks();
-        for (Book book : books) {
-            System.out.println("    - " + book);
+        ReportRenderer renderer = new ReportRenderer(System.out);
+        scanner.nextLine();
+        try {
+            int cursor = 0;
+            do {
+                cursor = renderer.books(books, cursor, PAGE_SIZE);
+            } while (cursor >= 0 && morePages());
+        } catch (IOException e) {
+            e.printStackTrace();
         }
         System.out.println();
     }
 
-    private static void displayReaders(Library library) {
-        List<BookReader> readers = library.getReaders();
-        System.out.println("Readers:");
-        for (BookReader reader : readers) {
-            System.out.println(reader);
+    private static boolean morePages() {
+        System.out.print("-- Enter for more, q to stop: ");
+        return !scanner.nextLine().trim().equalsIgnoreCase("q");
+    }
+
+    private static void displayFullReport(Library library) {
+        ReportRenderer renderer = new ReportRenderer(System.out, ReportRenderer.DEFAULT_BUFFER_SIZE, REPORT_LIMIT);
+        try {
+            renderer.library(library).append("\n").flush();
+        } catch (IOException e) {
+            e.printStackTrace();
         }
     }
 
-    private static void serializeLibrary(Library library, String fileName) {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(fileName))) {
-            oos.writeObject(library);
-            System.out.println("Library serialized successfully.");
+    private static void searchBooks(Library library) {
+        System.out.print("Enter search terms (end a term with * to match a prefix): ");
+        String query = scanner.nextLine();
+
+        long started = System.nanoTime();
+        List<Book> books = library.searchBooks(query);
+        boolean fuzzy = books.isEmpty() && !query.contains("*");
+        if (fuzzy) {
+            books = library.fuzzySearchBooks(query, 20);
+        }
+        long micros = (System.nanoTime() - started) / 1_000;
+
+        System.out.println((fuzzy ? "No exact matches. Closest " : "Found ") + books.size() + " books (" + micros + " us):");
+        for (int i = 0; i < Math.min(books.size(), 50); i++) {
+            System.out.println("    - #" + books.get(i).getId() + " " + books.get(i));
+        }
+        if (books.size() > 50) {
+            System.out.println("    ... and " + (books.size() - 50) + " more");
+        }
+    }
+
+    private static void borrowOrReturnBook(Library library) {
+        System.out.println("1) Borrow a Book");
+        System.out.println("2) Return a Book");
+        System.out.println("3) Show Borrowers of a Book");
+        System.out.print("Enter your choice: ");
+        int action = scanner.nextInt();
+        System.out.print("Book number: ");
+        int bookId = scanner.nextInt();
+
+        if (action == 3) {
+            Book book = library.getBook(bookId);
+            System.out.println((book != null ? book.getTitle() : "Book #" + bookId) + " is on loan to "
+                    + library.getLoanCount(bookId) + " readers: " + Arrays.toString(library.getBorrowers(bookId)));
+            return;
+        }
+        System.out.print("Reader registration number: ");
+        int registrationNumber = scanner.nextInt();
+
+        if (action == 1) {
+            if (checkoutBook(library, registrationNumber, bookId)) {
+                System.out.println("Book borrowed successfully.");
+            } else {
+                System.out.println("Error: Unknown reader or book.");
+            }
+        } else if (action == 2) {
+            if (returnBook(library, registrationNumber, bookId)) {
+                System.out.println("Book returned successfully.");
+            } else {
+                System.out.println("Error: This reader has not borrowed that book.");
+            }
+        } else {
+            System.out.println("Invalid choice. Please try again.");
+        }
+    }
+
+    private static void displayBooksPublished(Library library) {
+        System.out.print("From year: ");
+        int fromYear = scanner.nextInt();
+        System.out.print("To year: ");
+        int toYear = scanner.nextInt();
+        System.out.print("Edition number (0 for any): ");
+        int editionNumber = scanner.nextInt();
+
+        List<Book> books = library.findBooksPublished(fromYear, toYear, editionNumber);
+        System.out.println(library.countBooksPublished(fromYear, toYear) + " books published " + fromYear + "-" + toYear
+                + (editionNumber != 0 ? ", " + books.size() + " of them edition " + editionNumber : "") + ":");
+        for (int i = 0; i < Math.min(books.size(), 50); i++) {
+            System.out.println("    - #" + books.get(i).getId() + " " + books.get(i));
+        }
+        if (books.size() > 50) {
+            System.out.println("    ... and " + (books.size() - 50) + " more");
+        }
+    }
+
+    private static void displayStatistics(Library library) {
+        LibraryStatistics statistics = library.getStatistics();
+        System.out.println("Books: " + statistics.getBookCount() + ", Authors: " + statistics.getAuthorCount()
+                + ", Readers: " + statistics.getReaderCount() + ", Books on loan: " + statistics.getActiveLoans());
+
+        System.out.println("Books per storage:");
+        for (BookStore bookStore : library.getBookStores()) {
+            System.out.println("    " + bookStore.getStoreName() + ": " + bookStore.getBookCount());
+        }
+
+        System.out.println("Books per decade:");
+        for (int decade = statistics.getFirstDecade(); decade <= statistics.getLastDecade(); decade++) {
+            if (statistics.getBooksInDecade(decade) > 0) {
+                System.out.println("    " + decade * 10 + "s: " + statistics.getBooksInDecade(decade));
+            }
+        }
+
+        System.out.println("Readers by number of borrowed books:");
+        for (int loans = 0; loans <= statistics.getMaxLoansPerReader(); loans++) {
+            if (statistics.getReadersWithLoans(loans) > 0) {
+                System.out.println("    " + loans + ": " + statistics.getReadersWithLoans(loans));
+            }
+        }
+
+        System.out.println("Most prolific authors:");
+        for (TopKTracker.Entry<String> entry : statistics.getMostProlificAuthors(10)) {
+            System.out.println("    " + entry.getKey() + ": " + entry.getCount() + " books");
+        }
+
+        System.out.println("Most borrowed books:");
+        for (TopKTracker.Entry<Integer> entry : statistics.getMostBorrowedBooks(10)) {
+            Book book = library.getBook(entry.getKey());
+            System.out.println("    " + (book != null ? book.getTitle() : "#" + entry.getKey()) + ": "
+                    + entry.getCount() + " loans");
+        }
+    }
+
+    private static void displayReaders(Library library) {
+        List<BookReader> readers = library.getReaders();
+        System.out.println("Readers (" + readers.size() + "):");
+        ReportRenderer renderer = new ReportRenderer(System.out);
+        scanner.nextLine();
+        try {
+            int cursor = 0;
+            do {
+                cursor = renderer.readers(readers, cursor, PAGE_SIZE);
+            } while (cursor >= 0 && morePages());
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    private static void serializeLibrary(Library library, String fileName) {
+        snapshotter.save(library, fileName, (view, listener) -> {
+            Path temp = Paths.get(fileName + ".tmp");
+            try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                oos.writeObject(view);
+            }
+            Files.move(temp, Paths.get(fileName), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }, new SnapshotReport("Library serialized successfully"));
+        System.out.println("Serializing library in the background...");
+    }
+
     private static Library deserializeLibrary(String fileName) {
         try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(fileName))) {
             return (Library) ois.readObject();
@@ -397,8 +821,111 @@ public class LibraryDriver {
             return null;
         }
     }
-}
 
+    private static void serializeCompressedLibrary(Library library, String fileName) {
+        snapshotter.save(library, fileName, (view, listener) -> writeCompressed(view, fileName, listener),
+                new SnapshotReport("Library serialized successfully"));
+        System.out.println("Serializing compressed library in the background...");
+    }
 
+    static void writeCompressed(Library view, String fileName, SnapshotListener listener) throws IOException {
+        Path temp = Paths.get(fileName + ".tmp");
+        CompressedBlockOutputStream compressed = new CompressedBlockOutputStream(temp);
+        try (ObjectOutputStream oos = new ObjectOutputStream(compressed)) {
+            oos.writeObject(view);
+        }
+        Files.move(temp, Paths.get(fileName), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        listener.onCompressed(compressed.getRawBytes(), compressed.getCompressedBytes(),
+                compressed.getMegabytesPerSecond());
+    }
 
+    private static Library deserializeCompressedLibrary(String fileName) {
+        try (CompressedBlockInputStream compressed = new CompressedBlockInputStream(Paths.get(fileName));
+             ObjectInputStream ois = new ObjectInputStream(compressed)) {
+            Library library = (Library) ois.readObject();
+            System.out.printf("Decompressed %d -> %d bytes at %.1f MB/s.%n", compressed.getCompressedBytes(),
+                    compressed.getRawBytes(), compressed.getMegabytesPerSecond());
+            return library;
+        } catch (IOException | ClassNotFoundException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
 
+    private static void saveSnapshot(Library library, String fileName) {
+        try {
+            LibraryJournal libraryJournal = journalOf(library);
+            if (libraryJournal != null) {
+                libraryJournal.sync();
+                System.out.println("Library changes saved to journal.");
+            } else {
+                closeJournal();
+                journal = LibraryJournal.create(library, fileName, JOURNAL_FILE, snapshotter,
+                        new SnapshotReport("Library snapshot saved successfully"));
+                System.out.println("Saving library snapshot in the background...");
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static Library loadSnapshot(String fileName) {
+        try {
+            closeJournal();
+            journal = LibraryJournal.open(fileName, JOURNAL_FILE);
+            return journal.getLibrary();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private static LibraryJournal journalOf(Library library) {
+        return journal != null && journal.getLibrary() == library && !journal.hasFailedBase() ? journal : null;
+    }
+
+    private static void closeJournal() {
+        if (journal != null) {
+            snapshotter.awaitIdle();
+            try {
+                journal.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            journal = null;
+        }
+    }
+
+    private static void printSnapshotReports() {
+        Runnable report;
+        while ((report = snapshotReports.poll()) != null) {
+            report.run();
+        }
+    }
+
+    // Snapshot callbacks run on the snapshotter thread, so they queue what they report for the menu thread to print.
+    private static class SnapshotReport implements SnapshotListener {
+        private final String success;
+
+        SnapshotReport(String success) {
+            this.success = success;
+        }
+
+        @Override
+        public void onCompressed(long rawBytes, long compressedBytes, double megabytesPerSecond) {
+            snapshotReports.add(() -> System.out.printf("Compressed %d -> %d bytes (ratio %.2f) at %.1f MB/s.%n",
+                    rawBytes, compressedBytes, compressedBytes == 0 ? 0 : (double) rawBytes / compressedBytes,
+                    megabytesPerSecond));
+        }
+
+        @Override
+        public void onComplete(String fileName, long millis) {
+            snapshotReports.add(() -> System.out.println(success + " (" + millis + " ms)."));
+        }
+
+        @Override
+        public void onFailure(String fileName, IOException e) {
+            snapshotReports.add(e::printStackTrace);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class LibraryDriverTest {
+    private static int passed;
+    private static final List<String> failures = new ArrayList<>();
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Files.createTempDirectory("library-test");
+        LibraryTest.runAll(dir.resolve("library"));
+        LibraryJournalTest.runAll(dir.resolve("journal"));
+        LibrarySnapshotTest.runAll(dir.resolve("snapshot"));
+        CatalogImporterTest.runAll(dir.resolve("import"));
+        SerializationBenchmarkTest.runAll(dir.resolve("benchmark"));
+        LibraryHttpServerTest.runAll(dir.resolve("http"));
+        BookQueryTest.runAll(dir.resolve("query"));
+        OffHeapCatalogTest.runAll(dir.resolve("offheap"));
+        BookTableTest.runAll(dir.resolve("table"));
+        ReportRendererTest.runAll(dir.resolve("report"));
+        ReaderRegistryTest.runAll(dir.resolve("registry"));
+        ConcurrentLibraryTest.runAll(dir.resolve("concurrent"));
+        AsyncSnapshotterTest.runAll(dir.resolve("async"));
+        CompressedBlockStreamTest.runAll(dir.resolve("compressed"));
+        ScriptedLoadDriverTest.runAll(dir.resolve("load"));
+        CatalogIndexTest.runAll(dir.resolve("index"));
+        TrigramIndexTest.runAll(dir.resolve("trigram"));
+        YearIndexTest.runAll(dir.resolve("years"));
+        LoanIndexTest.runAll(dir.resolve("loans"));
+
+        System.out.println(passed + " passed, " + failures.size() + " failed");
+        for (String failure : failures) {
+            System.out.println("FAILED: " + failure);
+        }
+        if (!failures.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    static void assertSameLibrary(Library expected, Library actual) {
+        check(expected.toString().equals(actual.toString()), "expected\n" + expected + "\nbut was\n" + actual);
+    }
+
+    static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    static void run(String name, Check test) {
+        try {
+            test.run();
+            passed++;
+        } catch (Throwable e) {
+            failures.add(name + ": " + e);
+            e.printStackTrace();
+        }
+    }
+
+    interface Check {
+        void run() throws Exception;
+    }
+}
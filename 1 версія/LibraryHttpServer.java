@@ -0,0 +1,427 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+class LibraryHttpServer implements Closeable {
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1_000;
+
+    private final ConcurrentLibrary library;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final Map<String, RouteMetrics> metrics = new ConcurrentHashMap<>();
+    private final long startedAt = System.nanoTime();
+
+    LibraryHttpServer(ConcurrentLibrary library, int port) throws IOException {
+        this.library = library;
+        ExecutorService virtual = virtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "http-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    void start() {
+        server.start();
+    }
+
+    int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    void stop(int graceSeconds) {
+        server.stop(graceSeconds);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(graceSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        stop(5);
+    }
+
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        long started = System.nanoTime();
+        String route = exchange.getRequestMethod() + " unknown";
+        int status = 500;
+        boolean aborted = false;
+        try {
+            String method = exchange.getRequestMethod();
+            List<String> path = new ArrayList<>();
+            for (String segment : exchange.getRequestURI().getRawPath().split("/")) {
+                if (!segment.isEmpty()) {
+                    path.add(URLDecoder.decode(segment, StandardCharsets.UTF_8));
+                }
+            }
+            Map<String, String> params = parameters(exchange);
+            String resource = String.join("/", path.subList(0, Math.min(path.size(), 1)));
+            route = method + " /" + resource + (path.size() > 1 ? "/{}" : "") + (path.size() > 2 ? "/" + path.get(2) : "");
+
+            if (method.equals("GET") && path.size() <= 1 && (path.isEmpty() || resource.equals("storages"))) {
+                status = listStorages(exchange, params);
+            } else if (method.equals("POST") && path.size() == 1 && resource.equals("storages")) {
+                status = addStorage(exchange, params);
+            } else if (method.equals("GET") && path.size() == 3 && resource.equals("storages") && path.get(2).equals("books")) {
+                status = listBooks(exchange, path.get(1), params);
+            } else if (method.equals("POST") && path.size() == 3 && resource.equals("storages") && path.get(2).equals("books")) {
+                status = addBook(exchange, path.get(1), params);
+            } else if (method.equals("GET") && path.size() == 1 && resource.equals("readers")) {
+                status = listReaders(exchange, params);
+            } else if (method.equals("POST") && path.size() == 1 && resource.equals("readers")) {
+                status = addReader(exchange, params);
+            } else if (path.size() == 1 && resource.equals("loans") && (method.equals("POST") || method.equals("DELETE"))) {
+                status = changeLoan(exchange, method.equals("POST"), params);
+            } else if (method.equals("GET") && path.size() == 1 && resource.equals("report")) {
+                status = report(exchange);
+            } else if (method.equals("GET") && path.size() == 1 && resource.equals("metrics")) {
+                status = metrics(exchange);
+            } else {
+                route = method + " unknown";
+                status = error(exchange, 404, "No such resource: " + exchange.getRequestURI().getPath());
+            }
+        } catch (IOException | RuntimeException e) {
+            if (exchange.getResponseCode() != -1) {
+                status = 500;
+                aborted = true;
+                throw e;
+            }
+            if (e instanceof IOException) {
+                throw e;
+            }
+            status = e instanceof IllegalArgumentException ? error(exchange, 400, e.getMessage())
+                    : error(exchange, 500, e.toString());
+        } finally {
+            if (!aborted) {
+                exchange.close();
+            }
+            metrics.computeIfAbsent(route, key -> new RouteMetrics()).record(System.nanoTime() - started, status);
+        }
+    }
+
+    private int listStorages(HttpExchange exchange, Map<String, String> params) throws IOException {
+        List<String> storeNames = library.getStoreNames();
+        return page(exchange, params, storeNames.size(), (out, index) -> {
+            String storeName = storeNames.get(index);
+            out.write("{\"name\":" + json(storeName) + ",\"books\":" + library.getBooks(storeName).size() + "}");
+        });
+    }
+
+    private int addStorage(HttpExchange exchange, Map<String, String> params) throws IOException {
+        String storeName = required(params, "name");
+        if (!library.addBookStore(storeName)) {
+            return error(exchange, 409, "Storage already exists: " + storeName);
+        }
+        return respond(exchange, 201, out -> out.write("{\"name\":" + json(storeName) + "}"));
+    }
+
+    private int listBooks(HttpExchange exchange, String storeName, Map<String, String> params) throws IOException {
+        if (!library.getStoreNames().contains(storeName)) {
+            return error(exchange, 404, "No such storage: " + storeName);
+        }
+        List<Book> books = library.getBooks(storeName);
+        return page(exchange, params, books.size(), (out, index) -> writeBook(out, books.get(index)));
+    }
+
+    private int addBook(HttpExchange exchange, String storeName, Map<String, String> params) throws IOException {
+        Book book = new Book(required(params, "title"),
+                List.of(new Author(required(params, "firstName"), required(params, "lastName"))),
+                Integer.parseInt(required(params, "year")), Integer.parseInt(params.getOrDefault("edition", "1")),
+                storeName);
+        if (!library.addBook(storeName, book)) {
+            return error(exchange, 404, "No such storage: " + storeName);
+        }
+        return respond(exchange, 201, out -> writeBook(out, book));
+    }
+
+    private int listReaders(HttpExchange exchange, Map<String, String> params) throws IOException {
+        List<BookReader> readers = library.getReaders();
+        return page(exchange, params, readers.size(), (out, index) -> {
+            BookReader reader = readers.get(index);
+            out.write("{\"registrationNumber\":" + reader.getRegistrationNumber() + ",\"name\":"
+                    + json(reader.getFirstName() + " " + reader.getLastName()) + ",\"borrowed\":[");
+            List<Book> borrowed = library.getBorrowedBooks(reader.getRegistrationNumber());
+            for (int i = 0; i < borrowed.size(); i++) {
+                out.write((i > 0 ? "," : "") + borrowed.get(i).getId());
+            }
+            out.write("]}");
+        });
+    }
+
+    private int addReader(HttpExchange exchange, Map<String, String> params) throws IOException {
+        BookReader reader = new BookReader(required(params, "firstName"), required(params, "lastName"),
+                Integer.parseInt(required(params, "registrationNumber")));
+        if (!library.addReader(reader)) {
+            return error(exchange, 409, "Reader already exists: " + reader.getRegistrationNumber());
+        }
+        return respond(exchange, 201, out -> out.write("{\"registrationNumber\":" + reader.getRegistrationNumber() + "}"));
+    }
+
+    private int changeLoan(HttpExchange exchange, boolean borrow, Map<String, String> params) throws IOException {
+        int registrationNumber = Integer.parseInt(required(params, "reader"));
+        if (!borrow) {
+            int bookId = Integer.parseInt(required(params, "book"));
+            if (!library.returnBook(registrationNumber, bookId)) {
+                return error(exchange, 404, "This reader has not borrowed that book");
+            }
+            return respond(exchange, 200, out -> out.write("{\"reader\":" + registrationNumber + ",\"book\":" + bookId
+                    + ",\"available\":" + library.getAvailableCopies(bookId) + "}"));
+        }
+
+        String[] fields = required(params, "book").split(",");
+        int[] bookIds = new int[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            bookIds[i] = Integer.parseInt(fields[i].trim());
+        }
+        switch (library.checkoutAll(registrationNumber, bookIds)) {
+            case UNKNOWN_READER:
+                return error(exchange, 404, "No such reader: " + registrationNumber);
+            case UNKNOWN_BOOK:
+                return error(exchange, 404, "No such book in " + Arrays.toString(bookIds));
+            case UNAVAILABLE:
+                return error(exchange, 409, "Not enough copies available for " + Arrays.toString(bookIds));
+            default:
+                return respond(exchange, 201, out -> out.write("{\"reader\":" + registrationNumber + ",\"books\":"
+                        + Arrays.toString(bookIds) + "}"));
+        }
+    }
+
+    private int report(HttpExchange exchange) throws IOException {
+        LibraryStatistics statistics = library.getStatistics();
+        StringBuilder json = new StringBuilder();
+        json.append("{\"library\":").append(json(library.getLibraryName()))
+                .append(",\"storages\":").append(library.getStoreNames().size())
+                .append(",\"books\":").append(statistics.getBookCount())
+                .append(",\"authors\":").append(statistics.getAuthorCount())
+                .append(",\"readers\":").append(statistics.getReaderCount())
+                .append(",\"activeLoans\":").append(statistics.getActiveLoans())
+                .append(",\"loanEvents\":").append(statistics.getLoanEvents())
+                .append(",\"mostBorrowed\":[");
+        List<TopKTracker.Entry<Integer>> books = statistics.getMostBorrowedBooks(10);
+        for (int i = 0; i < books.size(); i++) {
+            json.append(i > 0 ? "," : "").append("{\"book\":").append(books.get(i).getKey())
+                    .append(",\"loans\":").append(books.get(i).getCount()).append('}');
+        }
+        json.append("],\"mostProlificAuthors\":[");
+        List<TopKTracker.Entry<String>> authors = statistics.getMostProlificAuthors(10);
+        for (int i = 0; i < authors.size(); i++) {
+            json.append(i > 0 ? "," : "").append("{\"author\":").append(json(authors.get(i).getKey()))
+                    .append(",\"books\":").append(authors.get(i).getCount()).append('}');
+        }
+        json.append("]}");
+        return respond(exchange, 200, out -> out.append(json));
+    }
+
+    private int metrics(HttpExchange exchange) throws IOException {
+        return respond(exchange, 200, out -> {
+            out.write("{\"uptimeSeconds\":" + (System.nanoTime() - startedAt) / 1_000_000_000L
+                    + ",\"virtualThreads\":" + virtualThreads + ",\"routes\":{");
+            boolean first = true;
+            for (Map.Entry<String, RouteMetrics> entry : new TreeMap<>(metrics).entrySet()) {
+                out.write((first ? "" : ",") + json(entry.getKey()) + ":" + entry.getValue().toJson());
+                first = false;
+            }
+            out.write("}}");
+        });
+    }
+
+    String describeMetrics() {
+        StringBuilder text = new StringBuilder(String.format("%-32s %10s %8s %10s %10s %10s %10s%n",
+                "route", "requests", "errors", "p50 us", "p90 us", "p99 us", "max us"));
+        for (Map.Entry<String, RouteMetrics> entry : new TreeMap<>(metrics).entrySet()) {
+            RouteMetrics route = entry.getValue();
+            text.append(String.format("%-32s %10d %8d %10d %10d %10d %10d%n", entry.getKey(), route.count.sum(),
+                    route.errors.sum(), route.percentile(50), route.percentile(90), route.percentile(99), route.max.get()));
+        }
+        return text.toString();
+    }
+
+    private int page(HttpExchange exchange, Map<String, String> params, int total, Item item) throws IOException {
+        int offset = Integer.parseInt(params.getOrDefault("offset", "0"));
+        int limit = Integer.parseInt(params.getOrDefault("limit", String.valueOf(DEFAULT_PAGE_SIZE)));
+        if (offset < 0 || limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("offset must be >= 0 and limit between 1 and " + MAX_PAGE_SIZE);
+        }
+        int end = (int) Math.min(total, (long) offset + limit);
+        return respond(exchange, 200, out -> {
+            out.write("{\"offset\":" + offset + ",\"limit\":" + limit + ",\"total\":" + total
+                    + (end < total ? ",\"next\":" + end : "") + ",\"items\":[");
+            for (int i = offset; i < end; i++) {
+                if (i > offset) {
+                    out.write(',');
+                }
+                item.write(out, i);
+            }
+            out.write("]}");
+        });
+    }
+
+    private static void writeBook(Writer out, Book book) throws IOException {
+        out.write("{\"id\":" + book.getId() + ",\"title\":" + json(book.getTitle()) + ",\"authors\":[");
+        List<Author> authors = book.getAuthors();
+        for (int i = 0; i < authors.size(); i++) {
+            out.write((i > 0 ? "," : "") + json(authors.get(i).getFirstName() + " " + authors.get(i).getLastName()));
+        }
+        out.write("],\"year\":" + book.getPublicationYear() + ",\"edition\":" + book.getEditionNumber() + "}");
+    }
+
+    private static int error(HttpExchange exchange, int status, String message) throws IOException {
+        return respond(exchange, status, out -> out.write("{\"error\":" + json(message) + "}"));
+    }
+
+    private static int respond(HttpExchange exchange, int status, Body body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, 0);
+        Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8));
+        body.write(out);
+        out.close();
+        return status;
+    }
+
+    private static Map<String, String> parameters(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        parseForm(exchange.getRequestURI().getRawQuery(), params);
+        if (exchange.getRequestMethod().equals("POST") || exchange.getRequestMethod().equals("DELETE")) {
+            try (InputStream in = exchange.getRequestBody()) {
+                parseForm(new String(in.readAllBytes(), StandardCharsets.UTF_8), params);
+            }
+        }
+        return params;
+    }
+
+    private static void parseForm(String form, Map<String, String> params) {
+        if (form == null || form.isEmpty()) {
+            return;
+        }
+        for (String pair : form.split("&")) {
+            int separator = pair.indexOf('=');
+            String key = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(separator + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String required(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        }
+        return value;
+    }
+
+    static String json(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    private interface Body {
+        void write(Writer out) throws IOException;
+    }
+
+    private interface Item {
+        void write(Writer out, int index) throws IOException;
+    }
+
+    private static class RouteMetrics {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+        private final AtomicLongArray buckets = new AtomicLongArray(256);
+
+        void record(long nanos, int status) {
+            long micros = nanos / 1_000;
+            count.increment();
+            if (status >= 500) {
+                errors.increment();
+            }
+            max.accumulate(micros);
+            buckets.incrementAndGet(bucket(micros));
+        }
+
+        long percentile(double percentile) {
+            long total = count.sum();
+            long threshold = (long) Math.ceil(percentile / 100 * total);
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= threshold && seen > 0) {
+                    return Math.min(upperBound(i), max.get());
+                }
+            }
+            return 0;
+        }
+
+        String toJson() {
+            return "{\"requests\":" + count.sum() + ",\"errors\":" + errors.sum() + ",\"p50Micros\":" + percentile(50)
+                    + ",\"p90Micros\":" + percentile(90) + ",\"p99Micros\":" + percentile(99) + ",\"maxMicros\":"
+                    + max.get() + "}";
+        }
+
+        private static int bucket(long micros) {
+            if (micros < 4) {
+                return (int) micros;
+            }
+            int log = 63 - Long.numberOfLeadingZeros(micros);
+            return log * 4 + (int) (micros >>> (log - 2) & 3);
+        }
+
+        private static long upperBound(int bucket) {
+            if (bucket < 4) {
+                return bucket;
+            }
+            int log = bucket / 4;
+            return ((4L | bucket % 4) + 1 << log - 2) - 1;
+        }
+    }
+}
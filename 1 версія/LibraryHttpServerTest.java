@@ -0,0 +1,80 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+class LibraryHttpServerTest extends LibraryDriverTest {
+    static void runAll(Path dir) {
+        run("http aborts a response that fails while streaming", LibraryHttpServerTest::httpAbortsFailedStream);
+        run("http report renders from a detached statistics copy", LibraryHttpServerTest::reportUsesStatisticsCopy);
+    }
+
+    private static void httpAbortsFailedStream() throws Exception {
+        ConcurrentLibrary library = new ConcurrentLibrary(new Library("Http"));
+        library.addBookStore("Main");
+        AtomicBoolean unreadable = new AtomicBoolean();
+        library.addBook("Main", new Book("Fine", List.of(new Author("Ann", "Lee")), 2000, 1));
+        library.addBook("Main", new Book("Broken", List.of(new Author("Bo", "Ray")), 2001, 1) {
+            @Override
+            public String getTitle() {
+                if (unreadable.get()) {
+                    throw new IllegalStateException("unreadable title");
+                }
+                return super.getTitle();
+            }
+        });
+        unreadable.set(true);
+
+        LibraryHttpServer server = new LibraryHttpServer(library, 0);
+        server.start();
+        try {
+            String base = "http://localhost:" + server.getPort();
+            HttpURLConnection books = (HttpURLConnection) new URL(base + "/storages/Main/books").openConnection();
+            boolean failed = false;
+            try (InputStream in = books.getInputStream()) {
+                in.readAllBytes();
+            } catch (IOException e) {
+                failed = true;
+            }
+            check(failed, "a body that fails midway must not arrive as a complete response");
+
+            HttpURLConnection storages = (HttpURLConnection) new URL(base + "/storages").openConnection();
+            check(storages.getResponseCode() == 200, "the server keeps serving after an aborted response");
+            storages.getInputStream().readAllBytes();
+            String metrics = server.describeMetrics();
+            check(metrics.lines().anyMatch(line -> line.startsWith("GET /storages/{}/books")
+                    && line.split("\\s+")[3].equals("1")), "the aborted request counts as an error:\n" + metrics);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static void reportUsesStatisticsCopy() throws Exception {
+        ConcurrentLibrary library = new ConcurrentLibrary(new Library("Report"));
+        library.addBookStore("Main");
+        library.addBook("Main", new Book("First", List.of(new Author("Ann", "Lee")), 2000, 1));
+        LibraryStatistics copy = library.getStatistics();
+        library.addBook("Main", new Book("Second", List.of(new Author("Ann", "Lee")), 2010, 1));
+        check(copy.getBookCount() == 1, "a copy must not follow later changes: " + copy.getBookCount());
+        check(copy.getAuthorBookCount("Ann", "Lee") == 1, "author counts are copied, not shared");
+        check(copy.getMostProlificAuthors(1).get(0).getCount() == 1, "top authors are copied, not shared");
+
+        LibraryHttpServer server = new LibraryHttpServer(library, 0);
+        server.start();
+        try {
+            URL report = new URL("http://localhost:" + server.getPort() + "/report");
+            String body;
+            try (InputStream in = report.openStream()) {
+                body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            check(body.startsWith("{\"library\":\"Report\",\"storages\":1,\"books\":2,"), body);
+            check(body.contains("{\"author\":\"Ann Lee\",\"books\":2}"), body);
+        } finally {
+            server.stop(0);
+        }
+    }
+}
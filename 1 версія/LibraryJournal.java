@@ -0,0 +1,549 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+class LibraryJournal implements Closeable {
+    private static final byte ADD_READER = 1;
+    private static final byte ADD_STORAGE = 2;
+    private static final byte ADD_BOOK = 3;
+    private static final byte BORROW_BOOK = 4;
+    private static final byte ADD_BOOK_WITH_ID = 5;
+    private static final byte CHECKOUT_BOOK = 6;
+    private static final byte RETURN_BOOK = 7;
+    private static final byte ADD_READER_NULLABLE = 8;
+    private static final byte ADD_STORAGE_NULLABLE = 9;
+    private static final byte ADD_BOOK_NULLABLE = 10;
+    private static final byte BORROW_BOOK_NULLABLE = 11;
+    private static final byte REMOVE_STORAGE = 12;
+
+    private static final int GROUP_COMMIT_BYTES = 64 * 1024;
+    private static final long GROUP_COMMIT_MILLIS = 200;
+    private static final long COMPACTION_THRESHOLD = 16 * 1024 * 1024;
+
+    private final Library library;
+    private final Path snapshotPath;
+    private final Path sparePath;
+    private Path newestBase;
+    private final Path journalPath;
+    private final Path compactingPath;
+    private final long compactionThreshold;
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+    private final DataOutputStream recordOut = new DataOutputStream(record);
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private final DataOutputStream pendingOut = new DataOutputStream(pending);
+    private final CRC32 crc = new CRC32();
+    private final ScheduledExecutorService syncer;
+    private final ExecutorService compactor;
+    private FileChannel channel;
+    private long sequence;
+    private boolean dirty;
+    private Future<Void> compaction;
+    private IOException compactionFailure;
+    private IOException syncFailure;
+    private IOException baseFailure;
+    private boolean closed;
+
+    private LibraryJournal(Library library, Path basePath, String snapshotFile, String journalFile, long sequence,
+                           long compactionThreshold) {
+        this.library = library;
+        this.snapshotPath = Paths.get(snapshotFile);
+        this.sparePath = basePath.equals(snapshotPath) ? nextPath(snapshotFile) : snapshotPath;
+        this.newestBase = basePath;
+        this.journalPath = Paths.get(journalFile);
+        this.compactingPath = Paths.get(journalFile + ".old");
+        this.sequence = sequence;
+        this.compactionThreshold = compactionThreshold;
+
+        syncer = Executors.newSingleThreadScheduledExecutor(runnable -> daemon(runnable, "library-journal-sync"));
+        compactor = Executors.newSingleThreadExecutor(runnable -> daemon(runnable, "library-journal-compactor"));
+        syncer.scheduleWithFixedDelay(() -> {
+            try {
+                groupCommit();
+            } catch (IOException | RuntimeException e) {
+                recordSyncFailure(e);
+            }
+        }, GROUP_COMMIT_MILLIS, GROUP_COMMIT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void start(long validLength) throws IOException {
+        if (closed) {
+            return;
+        }
+        channel = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.truncate(validLength);
+        channel.position(validLength);
+        if (Files.exists(compactingPath)) {
+            compaction = compactor.submit(this::compact);
+        }
+    }
+
+    static LibraryJournal create(Library library, String snapshotFile, String journalFile) throws IOException {
+        Files.deleteIfExists(Paths.get(journalFile + ".old"));
+        Files.deleteIfExists(nextPath(snapshotFile));
+        LibrarySnapshot.write(library, snapshotFile, 0);
+        LibraryJournal journal = new LibraryJournal(library, Paths.get(snapshotFile), snapshotFile, journalFile, 0,
+                COMPACTION_THRESHOLD);
+        journal.start(0);
+        return journal;
+    }
+
+    // The base is written from a view captured on the calling thread, and records logged while it is being written
+    // wait in memory until the completion callback opens the journal file, so they replay on top of that view.
+    static LibraryJournal create(Library library, String snapshotFile, String journalFile,
+                                 AsyncSnapshotter snapshotter, SnapshotListener listener) throws IOException {
+        Files.deleteIfExists(Paths.get(journalFile + ".old"));
+        Files.deleteIfExists(nextPath(snapshotFile));
+        LibraryJournal journal = new LibraryJournal(library, Paths.get(snapshotFile), snapshotFile, journalFile, 0,
+                COMPACTION_THRESHOLD);
+        snapshotter.save(library, snapshotFile, (view, progress) -> LibrarySnapshot.write(view, snapshotFile, 0, progress),
+                new SnapshotListener() {
+                    @Override
+                    public void onProgress(long done, long total) {
+                        listener.onProgress(done, total);
+                    }
+
+                    @Override
+                    public void onComplete(String fileName, long millis) {
+                        try {
+                            journal.start(0);
+                        } catch (IOException e) {
+                            onFailure(fileName, e);
+                            return;
+                        }
+                        listener.onComplete(fileName, millis);
+                    }
+
+                    @Override
+                    public void onFailure(String fileName, IOException e) {
+                        journal.recordBaseFailure(e);
+                        listener.onFailure(fileName, e);
+                    }
+                });
+        return journal;
+    }
+
+    static LibraryJournal open(String snapshotFile, String journalFile) throws IOException {
+        return open(snapshotFile, journalFile, COMPACTION_THRESHOLD);
+    }
+
+    static LibraryJournal open(String snapshotFile, String journalFile, long compactionThreshold) throws IOException {
+        Path basePath = newestBase(snapshotFile);
+        LibrarySnapshot snapshot = LibrarySnapshot.open(basePath.toString());
+        Library library = snapshot.toLazyLibrary();
+        Replay compacting = replay(library, Paths.get(journalFile + ".old"), snapshot.getJournalSequence());
+        Replay active = replay(library, Paths.get(journalFile), compacting.sequence);
+        LibraryJournal journal = new LibraryJournal(library, basePath, snapshotFile, journalFile, active.sequence,
+                compactionThreshold);
+        journal.start(active.validLength);
+        return journal;
+    }
+
+    private static Path newestBase(String snapshotFile) throws IOException {
+        Path snapshotPath = Paths.get(snapshotFile);
+        Path nextPath = nextPath(snapshotFile);
+        if (!Files.exists(nextPath)) {
+            return snapshotPath;
+        }
+        if (Files.exists(snapshotPath)
+                && LibrarySnapshot.readJournalSequence(nextPath.toString())
+                <= LibrarySnapshot.readJournalSequence(snapshotFile)) {
+            deleteQuietly(nextPath);
+            return snapshotPath;
+        }
+        return promote(nextPath, snapshotPath) ? snapshotPath : nextPath;
+    }
+
+    private static boolean promote(Path nextPath, Path snapshotPath) {
+        try {
+            Files.move(nextPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+        }
+    }
+
+    private static Path nextPath(String snapshotFile) {
+        return Paths.get(snapshotFile + ".next");
+    }
+
+    Library getLibrary() {
+        return library;
+    }
+
+    synchronized boolean hasFailedBase() {
+        return baseFailure != null;
+    }
+
+    private synchronized void recordBaseFailure(IOException e) {
+        baseFailure = e;
+    }
+
+    synchronized void logAddReader(BookReader reader) throws IOException {
+        DataOutputStream out = begin(ADD_READER_NULLABLE);
+        writeString(out, reader.getFirstName());
+        writeString(out, reader.getLastName());
+        out.writeInt(reader.getRegistrationNumber());
+        end();
+    }
+
+    synchronized void logAddStorage(BookStore bookStore) throws IOException {
+        DataOutputStream out = begin(ADD_STORAGE_NULLABLE);
+        writeString(out, bookStore.getStoreName());
+        end();
+    }
+
+    synchronized void logRemoveStorage(BookStore bookStore) throws IOException {
+        DataOutputStream out = begin(REMOVE_STORAGE);
+        writeString(out, bookStore.getStoreName());
+        end();
+    }
+
+    synchronized void logAddBook(BookStore bookStore, Book book) throws IOException {
+        DataOutputStream out = begin(ADD_BOOK_NULLABLE);
+        out.writeInt(book.getId());
+        writeString(out, bookStore.getStoreName());
+        writeString(out, book.getTitle());
+        out.writeInt(book.getAuthors().size());
+        for (Author author : book.getAuthors()) {
+            writeString(out, author.getFirstName());
+            writeString(out, author.getLastName());
+        }
+        out.writeInt(book.getPublicationYear());
+        out.writeInt(book.getEditionNumber());
+        writeString(out, book.getStorageName());
+        end();
+    }
+
+    synchronized void logBorrowBook(BookReader reader, BookStore bookStore, int bookIndex) throws IOException {
+        DataOutputStream out = begin(BORROW_BOOK_NULLABLE);
+        out.writeInt(reader.getRegistrationNumber());
+        writeString(out, bookStore.getStoreName());
+        out.writeInt(bookIndex);
+        end();
+    }
+
+    synchronized void logCheckout(int registrationNumber, int bookId) throws IOException {
+        DataOutputStream out = begin(CHECKOUT_BOOK);
+        out.writeInt(registrationNumber);
+        out.writeInt(bookId);
+        end();
+    }
+
+    synchronized void logReturn(int registrationNumber, int bookId) throws IOException {
+        DataOutputStream out = begin(RETURN_BOOK);
+        out.writeInt(registrationNumber);
+        out.writeInt(bookId);
+        end();
+    }
+
+    synchronized void sync() throws IOException {
+        if (baseFailure != null) {
+            throw new IOException("The base snapshot was not written; logged changes are only in memory", baseFailure);
+        }
+        groupCommit();
+        IOException syncFailed = syncFailure;
+        if (syncFailed != null) {
+            syncFailure = null;
+            throw new IOException("A background journal sync failed; records logged before it may not be durable",
+                    syncFailed);
+        }
+        IOException failure = compactionFailure;
+        if (failure != null) {
+            if (compaction == null) {
+                compaction = compactor.submit(this::compact);
+            }
+            throw new IOException("Compaction of " + compactingPath + " failed and will be retried", failure);
+        }
+    }
+
+    private synchronized void recordSyncFailure(Exception e) {
+        if (syncFailure == null) {
+            syncFailure = e instanceof IOException ? (IOException) e : new IOException(e);
+        } else {
+            syncFailure.addSuppressed(e);
+        }
+    }
+
+    private synchronized void groupCommit() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        flush();
+        if (dirty) {
+            channel.force(false);
+            dirty = false;
+        }
+        if (compaction != null && compaction.isDone()) {
+            collectCompaction();
+        }
+        if (compaction == null && channel.size() >= compactionThreshold) {
+            if (!Files.exists(compactingPath)) {
+                channel.close();
+                Files.move(journalPath, compactingPath);
+                channel = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+            }
+            compaction = compactor.submit(this::compact);
+        }
+    }
+
+    private void collectCompaction() {
+        try {
+            compaction.get();
+            compactionFailure = null;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            compactionFailure = cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        compaction = null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        syncer.shutdown();
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            closed = true;
+            if (channel == null) {
+                return;
+            }
+            try {
+                flush();
+                channel.force(false);
+            } finally {
+                channel.close();
+            }
+            if (compaction != null && compaction.isDone()) {
+                collectCompaction();
+            }
+            if (!newestBase.equals(snapshotPath) && promote(newestBase, snapshotPath)) {
+                newestBase = snapshotPath;
+            }
+            if (syncFailure != null) {
+                throw new IOException("A background journal sync failed; records logged before it may not be durable",
+                        syncFailure);
+            }
+            if (compactionFailure != null) {
+                throw new IOException("Compaction of " + compactingPath + " failed; it will be retried on open",
+                        compactionFailure);
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in, boolean nullable) throws IOException {
+        return !nullable || in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private DataOutputStream begin(byte type) throws IOException {
+        record.reset();
+        recordOut.writeLong(++sequence);
+        recordOut.writeByte(type);
+        return recordOut;
+    }
+
+    private void end() throws IOException {
+        byte[] body = record.toByteArray();
+        crc.reset();
+        crc.update(body);
+        pendingOut.writeInt(body.length);
+        pendingOut.write(body);
+        pendingOut.writeInt((int) crc.getValue());
+        if (pending.size() >= GROUP_COMMIT_BYTES) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        if (channel == null || pending.size() == 0) {
+            return;
+        }
+        ByteBuffer data = ByteBuffer.wrap(pending.toByteArray());
+        long start = channel.position();
+        try {
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.position(start);
+            throw e;
+        }
+        pending.reset();
+        dirty = true;
+    }
+
+    // The live library keeps the base it was opened from mapped until its lazy stores have loaded, so compaction
+    // never replaces that file. It reads the newest base into the heap and writes the other slot. close() moves a
+    // newer ".next" slot over the snapshot file where the platform allows it, and open() starts from the newer slot.
+    private Void compact() throws IOException {
+        Path source;
+        synchronized (this) {
+            source = newestBase;
+        }
+        LibrarySnapshot base = LibrarySnapshot.load(source.toString());
+        Library compacted = base.toLazyLibrary();
+        Replay replay = replay(compacted, compactingPath, base.getJournalSequence());
+        LibrarySnapshot.write(compacted, sparePath.toString(), replay.sequence);
+        synchronized (this) {
+            newestBase = sparePath;
+        }
+        Files.delete(compactingPath);
+        return null;
+    }
+
+    private static Replay replay(Library library, Path journal, long afterSequence) throws IOException {
+        Replay replay = new Replay();
+        replay.sequence = afterSequence;
+        if (!Files.exists(journal)) {
+            return replay;
+        }
+        long size = Files.size(journal);
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(journal)))) {
+            while (true) {
+                byte[] body;
+                try {
+                    int length = in.readInt();
+                    if (length < 9 || length > size - replay.validLength - 8) {
+                        break;
+                    }
+                    body = new byte[length];
+                    in.readFully(body);
+                    crc.reset();
+                    crc.update(body);
+                    if (in.readInt() != (int) crc.getValue()) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(body));
+                long sequence = record.readLong();
+                if (sequence > replay.sequence) {
+                    apply(library, record.readByte(), record);
+                    replay.sequence = sequence;
+                }
+                replay.validLength += 8 + body.length;
+            }
+        }
+        return replay;
+    }
+
+    private static void apply(Library library, byte type, DataInputStream in) throws IOException {
+        boolean nullable = type >= ADD_READER_NULLABLE;
+        switch (type) {
+            case ADD_READER:
+            case ADD_READER_NULLABLE:
+                library.addReader(new BookReader(readString(in, nullable), readString(in, nullable), in.readInt()));
+                break;
+            case ADD_STORAGE:
+            case ADD_STORAGE_NULLABLE:
+                library.addBookStore(new BookStore(readString(in, nullable)));
+                break;
+            case REMOVE_STORAGE:
+                String removedName = readString(in, nullable);
+                if (library.removeBookStore(removedName) == null) {
+                    throw new IOException("Journal removes unknown storage: " + removedName);
+                }
+                break;
+            case ADD_BOOK:
+            case ADD_BOOK_WITH_ID:
+            case ADD_BOOK_NULLABLE:
+                int id = type != ADD_BOOK ? in.readInt() : 0;
+                BookStore bookStore = findStore(library, readString(in, nullable));
+                String title = readString(in, nullable);
+                Author[] authors = new Author[in.readInt()];
+                for (int i = 0; i < authors.length; i++) {
+                    authors[i] = new Author(readString(in, nullable), readString(in, nullable));
+                }
+                int publicationYear = in.readInt();
+                int editionNumber = in.readInt();
+                String storageName = readString(in, true);
+                Book book = new Book(title, List.of(authors), publicationYear, editionNumber, storageName);
+                book.assignId(id);
+                bookStore.addBook(book);
+                break;
+            case BORROW_BOOK:
+            case BORROW_BOOK_NULLABLE:
+                BookReader reader = findReader(library, in.readInt());
+                reader.borrowBook(findStore(library, readString(in, nullable)).getBooks().get(in.readInt()));
+                break;
+            case CHECKOUT_BOOK:
+                int borrower = in.readInt();
+                int borrowedId = in.readInt();
+                if (!library.checkout(borrower, borrowedId)) {
+                    throw new IOException("Journal checkout refers to unknown reader " + borrower + " or book " + borrowedId);
+                }
+                break;
+            case RETURN_BOOK:
+                int returner = in.readInt();
+                int returnedId = in.readInt();
+                if (!library.returnBook(returner, returnedId)) {
+                    throw new IOException("Journal return does not match a loan of book " + returnedId + " by " + returner);
+                }
+                break;
+            default:
+                throw new IOException("Unknown journal record type " + type);
+        }
+    }
+
+    private static BookStore findStore(Library library, String storeName) throws IOException {
+        BookStore bookStore = library.getBookStore(storeName);
+        if (bookStore != null) {
+            return bookStore;
+        }
+        throw new IOException("Journal refers to unknown storage: " + storeName);
+    }
+
+    private static BookReader findReader(Library library, int registrationNumber) throws IOException {
+        BookReader reader = library.getReader(registrationNumber);
+        if (reader != null) {
+            return reader;
+        }
+        throw new IOException("Journal refers to unknown reader: " + registrationNumber);
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private static class Replay {
+        long sequence;
+        long validLength;
+    }
+}
@@ -0,0 +1,372 @@
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+class LibraryJournalTest extends LibraryDriverTest {
+    static void runAll(Path dir) {
+        run("journal replays every committed record", () -> journalReplaysCommittedRecords(dir.resolve("replay")));
+        run("journal drops a torn tail and keeps appending", () -> journalDropsTornTail(dir.resolve("torn")));
+        run("journal stops at a record with a bad checksum", () -> journalStopsAtBadChecksum(dir.resolve("crc")));
+        run("journal replays a rotated segment after the base", () -> journalReplaysRotatedSegment(dir.resolve("rotated")));
+        run("failed compaction keeps the rotated segment", () -> failedCompactionKeepsRotatedSegment(dir.resolve("retry")));
+        run("journal round-trips null names and titles", () -> journalKeepsNullNames(dir.resolve("nulls")));
+        run("a failed background sync surfaces from sync", () -> backgroundSyncFailureSurfaces(dir.resolve("fsync")));
+        run("compaction never rewrites the mapped base", () -> compactionLeavesMappedBase(dir.resolve("mapped")));
+        run("open starts from the newer base slot", () -> openPrefersNewerBase(dir.resolve("slots")));
+        run("journal replays a removed storage", () -> journalReplaysRemovedStorage(dir.resolve("removed")));
+    }
+
+    private static void journalReplaysCommittedRecords(Path dir) throws Exception {
+        Files.createDirectories(dir);
+        String snapshot = dir.resolve("library.snap").toString();
+        String journalFile = dir.resolve("library.journal").toString();
+
+        LibraryJournal journal = LibraryJournal.create(new Library("Test"), snapshot, journalFile);
+        perform(journal, 0, 40);
+        journal.close();
+
+        assertSameLibrary(expected(40), reopen(snapshot, journalFile));
+    }
+
+    private static void journalDropsTornTail(Path dir) throws Exception {
+        Files.createDirectories(dir);
+        String snapshot = dir.resolve("library.snap").toString();
+        String journalFile = dir.resolve("library.journal").toString();
+
+        LibraryJournal journal = LibraryJournal.create(new Library("Test"), snapshot, journalFile);
+        perform(journal, 0, 30);
+        journal.close();
+        ByteBuffer torn = ByteBuffer.allocate(14).putInt(200).putLong(31).put((byte) 1).put((byte) 0);
+        Files.write(Path.of(journalFile), torn.array(), StandardOpenOption.APPEND);
+
+        journal = LibraryJournal.open(snapshot, journalFile);
+        assertSameLibrary(expected(30), journal.getLibrary());
+        perform(journal, 30, 40);
+        journal.close();
+
+        assertSameLibrary(expected(40), reopen(snapshot, journalFile));
+    }
+
+    private static void journalStopsAtBadChecksum(Path dir) throws Exception {
+        Files.createDirectories(dir);
+        String snapshot = dir.resolve("library.snap").toString();
+        String journalFile = dir.resolve("library.journal").toString();
+
+        LibraryJournal journal = LibraryJournal.create(new Library("Test"), snapshot, journalFile);
+        perform(journal, 0, 30);
+        journal.sync();
+        long committed = Files.size(Path.of(journalFile));
+        perform(journal, 30, 35);
+        journal.close();
+        flipByte(Path.of(journalFile), committed + 14);
+
+        assertSameLibrary(expected(30), reopen(snapshot, journalFile));
+    }
+
+    private static void journalReplaysRotatedSegment(Path dir) throws Exception {
+        Files.createDirectories(dir);
+        Path snapshot = dir.resolve("library.snap");
+        Path journalFile = dir.resolve("library.journal");
+        Path rotated = dir.resolve("library.journal.old");
+
+        LibraryJournal journal = LibraryJournal.create(new Library("Test"), snapshot.toString(), journalFile.toString());
+        perform(journal, 0, 20);
+        journal.close();
+        Path base = Files.copy(snapshot, dir.resolve("base.snap"));
+        Files.move(journalFile, rotated);
+        Path segment = Files.copy(rotated, dir.resolve("segment"));
+
+        journal = LibraryJournal.open(snapshot.toString(), journalFile.toString());
+        perform(journal, 20, 40);
+        journal.close();
+        check(!Files.exists(rotated), "the rotated segment is removed once compacted");
+        check(LibrarySnapshot.open(snapshot.toString()).getJournalSequence() > 0, "compaction advances the base");
+        assertSameLibrary(expected(40), reopen(snapshot.toString(), journalFile.toString()));
+
+        Files.copy(segment, rotated);
+        assertSameLibrary(expected(40), reopen(snapshot.toString(), journalFile.toString()));
+
+        Files.copy(base, snapshot, StandardCopyOption.REPLACE_EXISTING);
+        Files.copy(segment, rotated, StandardCopyOption.REPLACE_EXISTING);
+        assertSameLibrary(expected(40), reopen(snapshot.toString(), journalFile.toString()));
+    }
+
+    private static void failedCompactionKeepsRotatedSegment(Path dir) throws Exception {
+        Files.createDirectories(dir);
+        Path snapshot = dir.resolve("library.snap");
+        Path hidden = dir.resolve("hidden.snap");
+        Path journalFile = dir.resolve("library.journal");
+        Path rotated = dir.resolve("library.journal.old");
+
+        LibraryJournal.create(new Library("Test"), snapshot.toString(), journalFile.toString()).close();
+        LibraryJournal journal = LibraryJournal.open(snapshot.toString(), journalFile.toString(), 512);
+        Files.move(snapshot, hidden);
+        perform(journal, 0, 30);
+        check(syncFails(journal), "a failed compaction surfaces from sync");
+        check(Files.exists(rotated), "the rotated segment survives a failed compaction");
+
+        byte[] segment = Files.readAllBytes(rotated);
+        perform(journal, 30, 60);
+        check(syncFails(journal), "the failure is reported again until compaction succeeds");
+        check(Arrays.equals(segment, Files.readAllBytes(rotated)), "the rotated segment is never overwritten");
+
+        Files.move(hidden, snapshot);
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!syncSucceeds(journal) || Files.exists(rotated)) {
+            check(System.nanoTime() < deadline, "compaction is retried once the base is readable");
+            Thread.sleep(20);
+        }
+        journal.close();
+
+        assertSameLibrary(expected(60), reopen(snapshot.toString(), journalFile.toString()));
+    }
+
+    private static void journalKeepsNullNames(Path dir) throws Exception {
+        Files.createDirectories(dir);
+        String snapshot = dir.resolve("library.snap").toString();
+        String journalFile = dir.resolve("library.journal").toString();
+
+        LibraryJournal journal = LibraryJournal.create(new Library("Nulls"), snapshot, journalFile);
+        Library library = journal.getLibrary();
+        BookStore unnamed = new BookStore(null);
+        library.addBookStore(unnamed);
+        journal.logAddStorage(unnamed);
+        Book book = new Book(null, List.of(new Author(null, "Lee"), new Author("Bo", null)), 2001, 1);
+        unnamed.addBook(book);
+        journal.logAddBook(unnamed, book);
+        BookReader reader = new BookReader(null, null, 7);
+        library.addReader(reader);
+        journal.logAddReader(reader);
+        reader.borrowBook(book);
+        journal.logBorrowBook(reader, unnamed, 0);
+        journal.sync();
+        journal.close();
+
+        Library loaded = reopen(snapshot, journalFile);
+        assertSameLibrary(library, loaded);
+        Book loadedBook = loaded.getBookStore(null).getBooks().get(0);
+        check(loadedBook.getTitle() == null, "null title");
+        check(loadedBook.getAuthors().get(0).getFirstName() == null, "null author first name");
+        check(loadedBook.getAuthors().get(1).getLastName() == null, "null author last name");
+        check(loaded.getReader(7).getFirstName() == null && loaded.getReader(7).getLastName() == null,
+                "null reader names");
+        check(loaded.getReader(7).getBorrowedBooks().get(0) == loadedBook, "loan of the unnamed store's book");
+    }
+
+    private static void backgroundSyncFailureSurfaces(Path dir) throws Exception {
+        Files.createDirectories(dir);
+        String snapshot = dir.resolve("library.snap").toString();
+        Path journalFile = dir.resolve("library.journal");
+
+        LibraryJournal journal = LibraryJournal.create(new Library("Test"), snapshot, journalFile.toString());
+        perform(journal, 0, 20);
+        journal.sync();
+        Field channelField = LibraryJournal.class.getDeclaredField("channel");
+        channelField.setAccessible(true);
+        Object writable = channelField.get(journal);
+        try (FileChannel readOnly = FileChannel.open(journalFile, StandardOpenOption.READ)) {
+            readOnly.position(readOnly.size());
+            synchronized (journal) {
+                channelField.set(journal, readOnly);
+            }
+            perform(journal, 20, 30);
+            Thread.sleep(600);
+            synchronized (journal) {
+                channelField.set(journal, writable);
+            }
+        }
+        check(!syncSucceeds(journal), "the background failure is reported by the next sync");
+        check(syncSucceeds(journal), "the journal keeps working once the failure has been reported");
+        journal.close();
+
+        assertSameLibrary(expected(30), reopen(snapshot, journalFile.toString()));
+    }
+
+    private static void compactionLeavesMappedBase(Path dir) throws Exception {
+        Files.createDirectories(dir);
+        Path snapshot = dir.resolve("library.snap");
+        Path next = dir.resolve("library.snap.next");
+        Path journalFile = dir.resolve("library.journal");
+        Path rotated = dir.resolve("library.journal.old");
+
+        Library expected = expected(20);
+        addArchive(expected);
+        LibraryJournal.create(expected, snapshot.toString(), journalFile.toString()).close();
+        expected = LibrarySnapshot.read(snapshot.toString());
+
+        LibraryJournal journal = LibraryJournal.open(snapshot.toString(), journalFile.toString(), 512);
+        byte[] base = Files.readAllBytes(snapshot);
+        for (int i = 0; i < 60; i++) {
+            BookReader reader = new BookReader("Late", "Reader" + i, 5000 + i);
+            journal.getLibrary().addReader(reader);
+            journal.logAddReader(reader);
+            expected.addReader(new BookReader("Late", "Reader" + i, 5000 + i));
+        }
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!syncSucceeds(journal) || Files.exists(rotated) || !Files.exists(next)) {
+            check(System.nanoTime() < deadline, "compaction finishes");
+            Thread.sleep(20);
+        }
+        check(Arrays.equals(base, Files.readAllBytes(snapshot)), "the mapped base is never rewritten");
+        check(LibrarySnapshot.readJournalSequence(next.toString()) > 0, "compaction writes the next slot");
+        BookStore archive = journal.getLibrary().getBookStore("Archive");
+        check(!archive.isLoaded(), "the archive is still lazy");
+        check(archive.getBooks().size() == 3 && archive.getBooks().get(2).getTitle().equals("Archive 2"),
+                "a lazy store loads from the original base after compaction");
+        journal.close();
+
+        check(!Files.exists(next), "close promotes the next slot");
+        check(LibrarySnapshot.readJournalSequence(snapshot.toString()) > 0, "the snapshot holds the compacted base");
+        assertSameLibrary(expected, reopen(snapshot.toString(), journalFile.toString()));
+    }
+
+    private static void openPrefersNewerBase(Path dir) throws Exception {
+        Files.createDirectories(dir);
+        Path snapshot = dir.resolve("library.snap");
+        Path next = dir.resolve("library.snap.next");
+        String journalFile = dir.resolve("library.journal").toString();
+
+        LibrarySnapshot.write(new Library("Test"), snapshot.toString(), 0);
+        LibrarySnapshot.write(expected(30), next.toString(), 100);
+        assertSameLibrary(expected(30), reopen(snapshot.toString(), journalFile));
+        check(!Files.exists(next), "open promotes a newer next slot");
+        check(LibrarySnapshot.readJournalSequence(snapshot.toString()) == 100, "the promoted base");
+
+        LibrarySnapshot.write(new Library("Test"), next.toString(), 50);
+        assertSameLibrary(expected(30), reopen(snapshot.toString(), journalFile));
+        check(!Files.exists(next), "open discards an older next slot");
+    }
+
+    private static void addArchive(Library library) {
+        BookStore archive = new BookStore("Archive");
+        library.addBookStore(archive);
+        for (int i = 0; i < 3; i++) {
+            archive.addBook(new Book("Archive " + i, List.of(new Author("Old", "Hand")), 1800 + i, 1));
+        }
+    }
+
+    private static void journalReplaysRemovedStorage(Path dir) throws Exception {
+        Files.createDirectories(dir);
+        String snapshot = dir.resolve("library.snap").toString();
+        String journalFile = dir.resolve("library.journal").toString();
+
+        LibraryJournal journal = LibraryJournal.create(new Library("Test"), snapshot, journalFile);
+        perform(journal, 0, 40);
+        journal.logRemoveStorage(journal.getLibrary().removeBookStore("Annex"));
+        BookStore annex = new BookStore("Annex");
+        journal.getLibrary().addBookStore(annex);
+        journal.logAddStorage(annex);
+        perform(journal, 40, 48);
+        journal.close();
+
+        Library expected = expected(40);
+        expected.removeBookStore("Annex");
+        expected.addBookStore(new BookStore("Annex"));
+        for (int step = 40; step < 48; step++) {
+            perform(expected, null, step);
+        }
+        Library replayed = reopen(snapshot, journalFile);
+        assertSameLibrary(expected, replayed);
+        check(replayed.getStatistics().getBookCount() == expected.getStatistics().getBookCount(),
+                "replayed book count " + replayed.getStatistics().getBookCount());
+    }
+
+    private static Library expected(int steps) throws IOException {
+        Library library = new Library("Test");
+        for (int step = 0; step < steps; step++) {
+            perform(library, null, step);
+        }
+        return library;
+    }
+
+    private static void perform(LibraryJournal journal, int from, int to) throws IOException {
+        for (int step = from; step < to; step++) {
+            perform(journal.getLibrary(), journal, step);
+        }
+    }
+
+    private static void perform(Library library, LibraryJournal journal, int step) throws IOException {
+        if (step < 2) {
+            BookStore bookStore = new BookStore(step == 0 ? "Main" : "Annex");
+            library.addBookStore(bookStore);
+            if (journal != null) {
+                journal.logAddStorage(bookStore);
+            }
+            return;
+        }
+        switch (step % 4) {
+            case 0:
+                BookReader reader = new BookReader("Reader", "No" + step, 1000 + step);
+                library.addReader(reader);
+                if (journal != null) {
+                    journal.logAddReader(reader);
+                }
+                break;
+            case 1:
+            case 2:
+                BookStore bookStore = library.getBookStore(step % 3 == 0 ? "Annex" : "Main");
+                Book book = new Book("Title " + step, List.of(new Author("First" + step, "Last")), 1900 + step,
+                        1 + step % 3, step % 2 == 0 ? bookStore.getStoreName() : null);
+                bookStore.addBook(book);
+                if (journal != null) {
+                    journal.logAddBook(bookStore, book);
+                }
+                break;
+            default:
+                int registrationNumber = 1000 + step - 3;
+                if (step >= 7 && library.checkout(registrationNumber, step / 4) && journal != null) {
+                    journal.logCheckout(registrationNumber, step / 4);
+                }
+                if (step % 8 == 7 && step >= 15 && library.returnBook(registrationNumber - 4, (step - 4) / 4)
+                        && journal != null) {
+                    journal.logReturn(registrationNumber - 4, (step - 4) / 4);
+                }
+                break;
+        }
+    }
+
+    private static Library reopen(String snapshot, String journalFile) throws IOException {
+        LibraryJournal journal = LibraryJournal.open(snapshot, journalFile);
+        journal.close();
+        return journal.getLibrary();
+    }
+
+    private static boolean syncFails(LibraryJournal journal) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (System.nanoTime() < deadline) {
+            try {
+                journal.sync();
+            } catch (IOException e) {
+                return true;
+            }
+            Thread.sleep(20);
+        }
+        return false;
+    }
+
+    private static boolean syncSucceeds(LibraryJournal journal) {
+        try {
+            journal.sync();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void flipByte(Path file, long position) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer value = ByteBuffer.allocate(1);
+            channel.read(value, position);
+            value.put(0, (byte) (value.get(0) ^ 0x5A));
+            value.rewind();
+            channel.write(value, position);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+class LibrarySnapshotTest extends LibraryDriverTest {
+    static void runAll(Path dir) {
+        run("version 1 snapshots still load", () -> legacySnapshotLoads(dir.resolve("v1"), 1));
+        run("version 2 snapshots still load", () -> legacySnapshotLoads(dir.resolve("v2"), 2));
+        run("version 3 snapshots still load", () -> legacySnapshotLoads(dir.resolve("v3"), 3));
+        run("snapshot keeps books shared between stores", () -> snapshotKeepsSharedBooks(dir.resolve("shared")));
+        run("snapshot round-trips null names", () -> snapshotKeepsNullNames(dir.resolve("nulls")));
+        run("lazy library loads each store on first touch", () -> lazyStoresLoadOnFirstTouch(dir.resolve("lazy")));
+    }
+
+    private static void lazyStoresLoadOnFirstTouch(Path dir) throws Exception {
+        Files.createDirectories(dir);
+        String file = dir.resolve("lazy.snap").toString();
+        Library library = new LibraryGenerator(7).stores(3).booksPerStore(50).authorsPerBook(2).authorPool(20)
+                .readers(10).loansPerReader(2).generate();
+        LibrarySnapshot.write(library, file);
+
+        Library lazy = LibrarySnapshot.open(file).toLazyLibrary();
+        List<BookStore> stores = lazy.getBookStores();
+        for (BookStore bookStore : stores) {
+            check(!bookStore.isLoaded(), bookStore.getStoreName() + " loaded on open");
+            check(bookStore.getBookCount() == 50, "counts come from the snapshot without loading");
+        }
+        check(lazy.getReaders().size() == 10, "readers are there straight away");
+
+        BookStore first = stores.get(0);
+        Book added = new Book("Late", List.of(new Author("Ann", "Lee")), 2020, 1);
+        first.addBook(added);
+        check(first.isLoaded() && !stores.get(1).isLoaded() && !stores.get(2).isLoaded(),
+                "adding a book loads only its own store");
+        check(first.getBookCount() == 51 && first.getBooks().get(50) == added, "the added book follows the stored ones");
+
+        check(lazy.searchBooks("late").contains(added), "search finds the added book");
+        for (BookStore bookStore : stores) {
+            check(bookStore.isLoaded(), "search loads " + bookStore.getStoreName());
+        }
+        library.getBookStore(first.getStoreName()).addBook(new Book("Late", List.of(new Author("Ann", "Lee")), 2020, 1));
+        assertSameLibrary(library, lazy);
+    }
+
+    private static void legacySnapshotLoads(Path dir, int version) throws Exception {
+        Files.createDirectories(dir);
+        Path file = dir.resolve("legacy.snap");
+        writeLegacySnapshot(file, version);
+
+        Library expected = new Library("Legacy");
+        BookStore main = new BookStore("Main");
+        expected.addBookStore(main);
+        main.addBook(new Book("Dune", List.of(new Author("Frank", "Herbert")), 1965, 1, "Main"));
+        main.addBook(new Book("Emma", List.of(new Author("Jane", "Austen")), 1815, 2));
+        BookReader reader = new BookReader("Ada", "Lovelace", 42);
+        expected.addReader(reader);
+        reader.borrowBook(main.getBooks().get(1));
+
+        Library loaded = LibrarySnapshot.read(file.toString());
+        assertSameLibrary(expected, loaded);
+        check(loaded.getReader(42).getBorrowedBooks().get(0) == loaded.getBookStore("Main").getBooks().get(1),
+                "loans resolve to the stored book instance");
+        long sequence = LibrarySnapshot.open(file.toString()).getJournalSequence();
+        check(sequence == (version >= 2 ? 7 : 0), "journal sequence of a version " + version + " snapshot: " + sequence);
+    }
+
+    private static void snapshotKeepsSharedBooks(Path dir) throws Exception {
+        Files.createDirectories(dir);
+        String file = dir.resolve("shared.snap").toString();
+        Library library = new Library("Shared");
+        BookStore first = new BookStore("First");
+        BookStore second = new BookStore("Second");
+        library.addBookStore(first);
+        library.addBookStore(second);
+        Book shared = new Book("Shared", List.of(new Author("Ann", "Lee")), 2001, 1);
+        Book twice = new Book("Twice", List.of(new Author("Bo", "Ray")), 2002, 1);
+        Book last = new Book("Last", List.of(new Author("Cy", "Day")), 2003, 1, "Second");
+        first.addBook(shared);
+        first.addBook(twice);
+        first.addBook(twice);
+        second.addBook(shared);
+        second.addBook(last);
+        BookReader reader = new BookReader("Di", "Fox", 7);
+        library.addReader(reader);
+        library.checkout(7, shared.getId());
+
+        LibrarySnapshot.write(library, file);
+        Library loaded = LibrarySnapshot.read(file);
+        assertSameLibrary(library, loaded);
+        assertSameLibrary(library, LibrarySnapshot.open(file).toLazyLibrary());
+        List<Book> firstBooks = loaded.getBookStore("First").getBooks();
+        List<Book> secondBooks = loaded.getBookStore("Second").getBooks();
+        check(firstBooks.get(0) == secondBooks.get(0), "a book in two stores loads as one instance");
+        check(firstBooks.get(1) == firstBooks.get(2), "a book listed twice loads as one instance");
+        check(loaded.getReader(7).getBorrowedBooks().get(0) == firstBooks.get(0), "loans keep the shared instance");
+    }
+
+    private static void snapshotKeepsNullNames(Path dir) throws Exception {
+        Files.createDirectories(dir);
+        String file = dir.resolve("nulls.snap").toString();
+        Library library = new Library("Nulls");
+        BookStore bookStore = new BookStore("Main");
+        library.addBookStore(bookStore);
+        bookStore.addBook(new Book(null, List.of(new Author(null, "Lee")), 2001, 1));
+        library.addReader(new BookReader("Di", null, 7));
+
+        LibrarySnapshot.write(library, file);
+        Library loaded = LibrarySnapshot.read(file);
+        Book book = loaded.getBookStore("Main").getBooks().get(0);
+        check(book.getTitle() == null, "null title");
+        check(book.getAuthors().get(0).getFirstName() == null, "null author first name");
+        check("Lee".equals(book.getAuthors().get(0).getLastName()), "author last name");
+        check(loaded.getReader(7).getLastName() == null && "Di".equals(loaded.getReader(7).getFirstName()),
+                "null reader last name");
+    }
+
+    private static void writeLegacySnapshot(Path file, int version) throws IOException {
+        String[] strings = {"Legacy", "Main", "Dune", "Frank", "Herbert", "Emma", "Jane", "Austen", "Ada", "Lovelace"};
+        int dataLength = 0;
+        for (String value : strings) {
+            dataLength += value.getBytes(StandardCharsets.UTF_8).length;
+        }
+        ByteBuffer out = ByteBuffer.allocate(512);
+        out.putInt(LibrarySnapshot.MAGIC).putInt(version).putInt(version == 1 ? 44 : version == 2 ? 52 : 56);
+        out.putInt(0).putInt(1).putInt(2).putInt(2).putInt(1).putInt(1).putInt(strings.length).putInt(dataLength);
+        if (version >= 2) {
+            out.putLong(7);
+        }
+        if (version >= 3) {
+            out.putInt(3);
+        }
+        out.putInt(1).putInt(0).putInt(2);
+        out.putInt(2).putInt(1).putInt(1965).putInt(1).putInt(0).putInt(1);
+        if (version >= 3) {
+            out.putInt(1);
+        }
+        out.putInt(5).putInt(-1).putInt(1815).putInt(2).putInt(1).putInt(1);
+        if (version >= 3) {
+            out.putInt(2);
+        }
+        out.putInt(3).putInt(4).putInt(6).putInt(7);
+        out.putInt(8).putInt(9).putInt(42).putInt(0).putInt(1);
+        out.putInt(1);
+        int offset = 0;
+        for (String value : strings) {
+            out.putInt(offset);
+            offset += value.getBytes(StandardCharsets.UTF_8).length;
+        }
+        out.putInt(offset);
+        for (String value : strings) {
+            out.put(value.getBytes(StandardCharsets.UTF_8));
+        }
+        Files.write(file, Arrays.copyOf(out.array(), out.position()));
+    }
+}
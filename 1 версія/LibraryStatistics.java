@@ -0,0 +1,216 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class LibraryStatistics {
+    private static final int TOP_CAPACITY = 100;
+
+    private long bookCount;
+    private int readerCount;
+    private long activeLoans;
+    private long loanEvents;
+    private int decadeBase;
+    private long[] decadeCounts = new long[0];
+    private long[] readersByLoans = new long[8];
+    private int[] borrowCounts = new int[16];
+    private final Map<String, long[]> authorCounts;
+    private final TopKTracker<String> prolificAuthors;
+    private final TopKTracker<Integer> borrowedBooks;
+
+    LibraryStatistics() {
+        authorCounts = new HashMap<>();
+        prolificAuthors = new TopKTracker<>(TOP_CAPACITY);
+        borrowedBooks = new TopKTracker<>(TOP_CAPACITY);
+    }
+
+    private LibraryStatistics(LibraryStatistics other) {
+        bookCount = other.bookCount;
+        readerCount = other.readerCount;
+        activeLoans = other.activeLoans;
+        loanEvents = other.loanEvents;
+        decadeBase = other.decadeBase;
+        decadeCounts = other.decadeCounts.clone();
+        readersByLoans = other.readersByLoans.clone();
+        borrowCounts = other.borrowCounts.clone();
+        authorCounts = new HashMap<>(other.authorCounts.size() * 2);
+        for (Map.Entry<String, long[]> entry : other.authorCounts.entrySet()) {
+            authorCounts.put(entry.getKey(), entry.getValue().clone());
+        }
+        prolificAuthors = new TopKTracker<>(other.prolificAuthors);
+        borrowedBooks = new TopKTracker<>(other.borrowedBooks);
+    }
+
+    LibraryStatistics copy() {
+        return new LibraryStatistics(this);
+    }
+
+    void merge(LibraryStatistics other) {
+        bookCount += other.bookCount;
+        readerCount += other.readerCount;
+        activeLoans += other.activeLoans;
+        loanEvents += other.loanEvents;
+        for (int i = 0; i < other.decadeCounts.length; i++) {
+            int decade = other.decadeBase + i;
+            decadeCounts(decade)[decade - decadeBase] += other.decadeCounts[i];
+        }
+        for (int loans = other.readersByLoans.length - 1; loans >= 0; loans--) {
+            readersByLoans(loans)[loans] += other.readersByLoans[loans];
+        }
+        if (other.borrowCounts.length > borrowCounts.length) {
+            borrowCounts = Arrays.copyOf(borrowCounts, other.borrowCounts.length);
+        }
+        for (int id = 0; id < other.borrowCounts.length; id++) {
+            if (other.borrowCounts[id] != 0) {
+                borrowedBooks.update(id, borrowCounts[id] += other.borrowCounts[id]);
+            }
+        }
+        for (Map.Entry<String, long[]> entry : other.authorCounts.entrySet()) {
+            long[] count = authorCounts.computeIfAbsent(entry.getKey(), key -> new long[1]);
+            prolificAuthors.update(entry.getKey(), count[0] += entry.getValue()[0]);
+        }
+    }
+
+    void bookAdded(Book book) {
+        bookCount++;
+        int decade = Math.floorDiv(book.getPublicationYear(), 10);
+        decadeCounts(decade)[decade - decadeBase]++;
+        for (Author author : book.getAuthors()) {
+            String name = author.getFirstName() + " " + author.getLastName();
+            long[] count = authorCounts.computeIfAbsent(name, key -> new long[1]);
+            prolificAuthors.update(name, ++count[0]);
+        }
+    }
+
+    void booksRemoved(List<Book> books) {
+        for (Book book : books) {
+            bookCount--;
+            int decade = Math.floorDiv(book.getPublicationYear(), 10);
+            decadeCounts(decade)[decade - decadeBase]--;
+            for (Author author : book.getAuthors()) {
+                String name = author.getFirstName() + " " + author.getLastName();
+                long[] count = authorCounts.get(name);
+                if (count != null && --count[0] == 0) {
+                    authorCounts.remove(name);
+                }
+            }
+        }
+        prolificAuthors.clear();
+        for (Map.Entry<String, long[]> entry : authorCounts.entrySet()) {
+            prolificAuthors.update(entry.getKey(), entry.getValue()[0]);
+        }
+    }
+
+    void readerAdded(int loans) {
+        readerCount++;
+        readersByLoans(loans)[loans]++;
+    }
+
+    void readerRemoved(int loans) {
+        readerCount--;
+        readersByLoans[loans]--;
+    }
+
+    void readerLoansChanged(int from, int to) {
+        readersByLoans(from)[from]--;
+        readersByLoans(to)[to]++;
+    }
+
+    void bookBorrowed(Book book) {
+        activeLoans++;
+        loanEvents++;
+        int id = book.getId();
+        if (id >= borrowCounts.length) {
+            borrowCounts = Arrays.copyOf(borrowCounts, Math.max(id + 1, borrowCounts.length * 2));
+        }
+        borrowedBooks.update(id, ++borrowCounts[id]);
+    }
+
+    void bookReturned() {
+        activeLoans--;
+    }
+
+    public long getBookCount() {
+        return bookCount;
+    }
+
+    public int getReaderCount() {
+        return readerCount;
+    }
+
+    public long getActiveLoans() {
+        return activeLoans;
+    }
+
+    public long getLoanEvents() {
+        return loanEvents;
+    }
+
+    public long getBooksInDecade(int decade) {
+        int index = decade - decadeBase;
+        return index >= 0 && index < decadeCounts.length ? decadeCounts[index] : 0;
+    }
+
+    public int getFirstDecade() {
+        return decadeBase;
+    }
+
+    public int getLastDecade() {
+        return decadeBase + decadeCounts.length - 1;
+    }
+
+    public long getAuthorBookCount(String firstName, String lastName) {
+        long[] count = authorCounts.get(firstName + " " + lastName);
+        return count != null ? count[0] : 0;
+    }
+
+    public int getAuthorCount() {
+        return authorCounts.size();
+    }
+
+    public int getTimesBorrowed(int bookId) {
+        return bookId >= 0 && bookId < borrowCounts.length ? borrowCounts[bookId] : 0;
+    }
+
+    public long getReadersWithLoans(int loans) {
+        return loans >= 0 && loans < readersByLoans.length ? readersByLoans[loans] : 0;
+    }
+
+    public int getMaxLoansPerReader() {
+        int max = readersByLoans.length - 1;
+        while (max > 0 && readersByLoans[max] == 0) {
+            max--;
+        }
+        return max;
+    }
+
+    public List<TopKTracker.Entry<String>> getMostProlificAuthors(int k) {
+        return prolificAuthors.top(k);
+    }
+
+    public List<TopKTracker.Entry<Integer>> getMostBorrowedBooks(int k) {
+        return borrowedBooks.top(k);
+    }
+
+    private long[] decadeCounts(int decade) {
+        if (decadeCounts.length == 0) {
+            decadeBase = decade;
+            decadeCounts = new long[1];
+        } else if (decade < decadeBase) {
+            long[] grown = new long[decadeCounts.length + decadeBase - decade];
+            System.arraycopy(decadeCounts, 0, grown, decadeBase - decade, decadeCounts.length);
+            decadeCounts = grown;
+            decadeBase = decade;
+        } else if (decade - decadeBase >= decadeCounts.length) {
+            decadeCounts = Arrays.copyOf(decadeCounts, decade - decadeBase + 1);
+        }
+        return decadeCounts;
+    }
+
+    private long[] readersByLoans(int loans) {
+        if (loans >= readersByLoans.length) {
+            readersByLoans = Arrays.copyOf(readersByLoans, Math.max(loans + 1, readersByLoans.length * 2));
+        }
+        return readersByLoans;
+    }
+}
@@ -0,0 +1,211 @@
+import java.io.*;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+class LibraryTest extends LibraryDriverTest {
+    static void runAll(Path dir) {
+        run("library statistics count only stocked books", LibraryTest::statisticsCountStockedBooks);
+        run("removing a storage unindexes and uncounts its books", LibraryTest::removeBookStoreCleansUp);
+        run("book ids survive serialization and loans resolve by id", LibraryTest::bookIdsSurviveSerialization);
+        run("incremental statistics match a recount after churn", LibraryTest::statisticsMatchRecount);
+    }
+
+    private static void bookIdsSurviveSerialization() throws Exception {
+        Library library = new LibraryGenerator(3).stores(2).booksPerStore(40).authorsPerBook(1).authorPool(10)
+                .readers(15).loansPerReader(2).generate();
+        BookReader reader = library.getReaders().get(0);
+        Book loose = new Book("Loose", List.of(new Author("Bo", "Ray")), 1999, 1);
+        reader.borrowBook(loose);
+        Set<Integer> ids = new HashSet<>();
+        for (BookStore bookStore : library.getBookStores()) {
+            for (Book book : bookStore.getBooks()) {
+                check(book.getId() > 0 && ids.add(book.getId()), "each stored book gets its own id: " + book.getId());
+            }
+        }
+        check(loose.getId() > 0 && !ids.contains(loose.getId()), "a loose loan gets an id of its own");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(library);
+        }
+        Library loaded;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            loaded = (Library) in.readObject();
+        }
+        assertSameLibrary(library, loaded);
+        for (BookStore bookStore : loaded.getBookStores()) {
+            for (Book book : bookStore.getBooks()) {
+                check(loaded.getBook(book.getId()) == book, "id " + book.getId() + " resolves to the stored book");
+            }
+        }
+        for (BookReader loadedReader : loaded.getReaders()) {
+            for (Book book : loadedReader.getBorrowedBooks()) {
+                check(loaded.getBook(book.getId()) == book, "loan " + book.getId() + " resolves to the catalog book");
+            }
+        }
+        Book reloaded = loaded.getReader(reader.getRegistrationNumber()).getBorrowedBooks().get(2);
+        check(reloaded.getId() == loose.getId() && reloaded.getTitle().equals("Loose"), "the loose loan keeps its id");
+
+        Book added = new Book("Added", List.of(new Author("Cy", "Day")), 2020, 1);
+        loaded.getBookStores().get(0).addBook(added);
+        check(!ids.contains(added.getId()) && added.getId() != loose.getId(), "new books after a load get unused ids");
+    }
+
+    private static void statisticsCountStockedBooks() {
+        Library library = new Library("Stock");
+        BookStore main = new BookStore("Main");
+        BookStore annex = new BookStore("Annex");
+        library.addBookStore(main);
+        library.addBookStore(annex);
+        BookReader reader = new BookReader("Ann", "Lee", 1);
+        library.addReader(reader);
+
+        Book loose = new Book("Loose", List.of(new Author("Bo", "Ray")), 1999, 1);
+        reader.borrowBook(loose);
+        check(loose.getId() != 0 && library.getBook(loose.getId()) == loose, "a loaned book still gets an id");
+        check(library.getStatistics().getBookCount() == 0, "a loose loan is not a library book");
+        check(library.getStatistics().getAuthorBookCount("Bo", "Ray") == 0, "a loose loan has no author count");
+        check(library.searchBooks("Loose").isEmpty(), "a loose loan is not in the catalog");
+        check(library.getStatistics().getActiveLoans() == 1, "the loan itself is still counted");
+
+        main.addBook(loose);
+        annex.addBook(loose);
+        Book shared = new Book("Shared", List.of(new Author("Bo", "Ray")), 2001, 1);
+        main.addBook(shared);
+        annex.addBook(shared);
+        check(library.getStatistics().getBookCount() == 2, "each stocked book counts once: "
+                + library.getStatistics().getBookCount());
+        check(library.getStatistics().getAuthorBookCount("Bo", "Ray") == 2, "author counts follow stocked books");
+        check(library.searchBooks("Loose").equals(List.of(loose)), "stocking a loaned book indexes it");
+        check(library.countBooksPublished(1990, 2010) == 2, "the year index holds stocked books only once");
+    }
+
+    private static void removeBookStoreCleansUp() {
+        Library library = new Library("Remove");
+        BookStore main = new BookStore("Main");
+        BookStore annex = new BookStore("Annex");
+        library.addBookStore(main);
+        library.addBookStore(annex);
+        Book lent = new Book("Lent Tale", List.of(new Author("Cy", "Lord")), 1961, 1);
+        Book gone = new Book("Gone Tale", List.of(new Author("Cy", "Lord")), 1962, 1);
+        Book shared = new Book("Shared Tale", List.of(new Author("Di", "Moss")), 1963, 1);
+        Book kept = new Book("Kept Tale", List.of(new Author("Di", "Moss")), 1964, 1);
+        main.addBooks(List.of(lent, gone, shared));
+        annex.addBooks(List.of(shared, kept));
+        BookReader reader = new BookReader("Ann", "Lee", 1);
+        library.addReader(reader);
+        reader.borrowBook(lent);
+        check(library.countBooksPublished(1960, 1969) == 4, "all four books indexed before the removal");
+
+        check(library.removeBookStore("Main") == main, "removal returns the storage");
+        check(library.removeBookStore("Main") == null, "a second removal finds nothing");
+        check(library.getBookStore("Main") == null && library.getBookStores().equals(List.of(annex)),
+                "the storage leaves both the list and the name index");
+        LibraryStatistics statistics = library.getStatistics();
+        check(statistics.getBookCount() == 2, "only the annex books remain counted: " + statistics.getBookCount());
+        check(statistics.getAuthorBookCount("Cy", "Lord") == 0, "authors of removed books are uncounted");
+        check(statistics.getMostProlificAuthors(5).size() == 1
+                && statistics.getMostProlificAuthors(5).get(0).getKey().equals("Di Moss"), "top authors are rebuilt");
+        check(statistics.getBooksInDecade(196) == 2, "decade counts follow the removal");
+        check(library.searchBooks("Tale").equals(List.of(shared, kept)), "removed books leave the catalog index");
+        check(library.countBooksPublished(1960, 1969) == 2, "removed books leave the year index");
+        check(library.getBook(gone.getId()) == null, "an unstocked book without loans is forgotten");
+        check(library.getBook(shared.getId()) == shared, "a book still in another storage stays");
+        check(library.getBook(lent.getId()) == lent, "a book still on loan stays reachable");
+
+        main.addBook(new Book("Late", List.of(new Author("Ed", "Nye")), 2000, 1));
+        check(library.getStatistics().getBookCount() == 2, "a detached storage no longer feeds the library");
+        check(library.returnBook(1, lent.getId()), "the loan of a removed book can still be returned");
+        check(library.getBook(lent.getId()) == null, "the returned book is forgotten once nothing holds it");
+    }
+
+    private static void statisticsMatchRecount() {
+        Random random = new Random(8);
+        Library library = new LibraryGenerator(8).stores(3).booksPerStore(300).authorsPerBook(2).authorPool(40)
+                .readers(60).loansPerReader(2).generate();
+        int nextReader = 1_000;
+        int loanEvents = 0;
+        for (BookReader reader : library.getReaders()) {
+            loanEvents += reader.getBorrowedBooks().size();
+        }
+        for (int n = 0; n < 3_000; n++) {
+            List<BookStore> stores = library.getBookStores();
+            List<BookReader> readers = library.getReaders();
+            int roll = random.nextInt(20);
+            if (roll < 8 && !readers.isEmpty()) {
+                BookReader reader = readers.get(random.nextInt(readers.size()));
+                BookStore store = stores.get(random.nextInt(stores.size()));
+                if (store.getBookCount() > 0) {
+                    Book book = store.getBooks().get(random.nextInt(store.getBookCount()));
+                    if (library.checkout(reader.getRegistrationNumber(), book.getId())) {
+                        loanEvents++;
+                    }
+                }
+            } else if (roll < 14 && !readers.isEmpty()) {
+                BookReader reader = readers.get(random.nextInt(readers.size()));
+                if (!reader.getBorrowedBooks().isEmpty()) {
+                    library.returnBook(reader.getRegistrationNumber(), reader.getBorrowedBooks().get(0).getId());
+                }
+            } else if (roll < 17) {
+                stores.get(random.nextInt(stores.size())).addBook(new Book("Churn " + n,
+                        List.of(new Author("Au", "Thor" + random.nextInt(5))), 1900 + random.nextInt(120), 1));
+            } else if (roll < 19) {
+                library.addReader(new BookReader("New", "Reader", nextReader++));
+            } else if (random.nextBoolean() && !readers.isEmpty()) {
+                library.removeReader(readers.get(random.nextInt(readers.size())).getRegistrationNumber());
+            } else if (stores.size() > 1 && random.nextInt(10) == 0) {
+                library.removeBookStore(stores.get(random.nextInt(stores.size())).getStoreName());
+                library.addBookStore(new BookStore("Store " + n));
+            }
+        }
+
+        LibraryStatistics statistics = library.getStatistics();
+        Set<Book> stocked = new HashSet<>();
+        for (BookStore bookStore : library.getBookStores()) {
+            stocked.addAll(bookStore.getBooks());
+        }
+        Map<String, Long> authors = new HashMap<>();
+        Map<Integer, Long> decades = new HashMap<>();
+        for (Book book : stocked) {
+            decades.merge(book.getPublicationYear() / 10, 1L, Long::sum);
+            for (Author author : book.getAuthors()) {
+                authors.merge(author.getFirstName() + " " + author.getLastName(), 1L, Long::sum);
+            }
+        }
+        Map<Integer, Long> readersByLoans = new HashMap<>();
+        long loans = 0;
+        int maxLoans = 0;
+        for (BookReader reader : library.getReaders()) {
+            int count = reader.getBorrowedBooks().size();
+            readersByLoans.merge(count, 1L, Long::sum);
+            loans += count;
+            maxLoans = Math.max(maxLoans, count);
+        }
+
+        check(statistics.getBookCount() == stocked.size(), "books " + statistics.getBookCount() + " vs " + stocked.size());
+        check(statistics.getReaderCount() == library.getReaders().size(), "readers " + statistics.getReaderCount());
+        check(statistics.getActiveLoans() == loans, "active loans " + statistics.getActiveLoans() + " vs " + loans);
+        check(statistics.getLoanEvents() == loanEvents, "loan events " + statistics.getLoanEvents());
+        check(statistics.getMaxLoansPerReader() == maxLoans, "max loans per reader " + statistics.getMaxLoansPerReader());
+        for (int count = 0; count <= maxLoans + 1; count++) {
+            check(statistics.getReadersWithLoans(count) == readersByLoans.getOrDefault(count, 0L),
+                    "readers with " + count + " loans");
+        }
+        for (int decade = 180; decade <= 205; decade++) {
+            check(statistics.getBooksInDecade(decade) == decades.getOrDefault(decade, 0L), "decade " + decade);
+        }
+        check(statistics.getAuthorCount() == authors.size(), "authors " + statistics.getAuthorCount());
+        for (Map.Entry<String, Long> author : authors.entrySet()) {
+            String[] name = author.getKey().split(" ");
+            check(statistics.getAuthorBookCount(name[0], name[1]) == author.getValue(), "books by " + author.getKey());
+        }
+        TopKTracker.Entry<String> top = statistics.getMostProlificAuthors(1).get(0);
+        check(top.getCount() == authors.values().stream().mapToLong(Long::longValue).max().getAsLong(),
+                "the most prolific author has the highest recount");
+    }
+}
@@ -0,0 +1,90 @@
+import java.util.Arrays;
+
+class LoanIndex {
+    private int[] loanCounts = new int[16];
+    private int[] firstLoans = new int[16];
+    private int[] loanReaders = new int[16];
+    private int[] nextLoans = new int[16];
+    private int loanSlots;
+    private int freeLoans;
+    private int activeLoans;
+
+    void add(int bookId, int registrationNumber) {
+        if (bookId >= loanCounts.length) {
+            int capacity = Math.max(loanCounts.length * 2, bookId + 1);
+            loanCounts = Arrays.copyOf(loanCounts, capacity);
+            firstLoans = Arrays.copyOf(firstLoans, capacity);
+        }
+        int slot;
+        if (freeLoans != 0) {
+            slot = freeLoans - 1;
+            freeLoans = nextLoans[slot];
+        } else {
+            if (loanSlots == loanReaders.length) {
+                loanReaders = Arrays.copyOf(loanReaders, loanSlots * 2);
+                nextLoans = Arrays.copyOf(nextLoans, loanSlots * 2);
+            }
+            slot = loanSlots++;
+        }
+        loanReaders[slot] = registrationNumber;
+        nextLoans[slot] = firstLoans[bookId];
+        firstLoans[bookId] = slot + 1;
+        loanCounts[bookId]++;
+        activeLoans++;
+    }
+
+    boolean remove(int bookId, int registrationNumber) {
+        if (bookId >= loanCounts.length) {
+            return false;
+        }
+        int previous = 0;
+        for (int loan = firstLoans[bookId]; loan != 0; loan = nextLoans[loan - 1]) {
+            if (loanReaders[loan - 1] == registrationNumber) {
+                if (previous == 0) {
+                    firstLoans[bookId] = nextLoans[loan - 1];
+                } else {
+                    nextLoans[previous - 1] = nextLoans[loan - 1];
+                }
+                nextLoans[loan - 1] = freeLoans;
+                freeLoans = loan;
+                loanCounts[bookId]--;
+                activeLoans--;
+                return true;
+            }
+            previous = loan;
+        }
+        return false;
+    }
+
+    int getLoanCount(int bookId) {
+        return bookId < loanCounts.length ? loanCounts[bookId] : 0;
+    }
+
+    int[] getBorrowers(int bookId) {
+        int[] borrowers = new int[getLoanCount(bookId)];
+        int count = 0;
+        for (int loan = borrowers.length > 0 ? firstLoans[bookId] : 0; loan != 0; loan = nextLoans[loan - 1]) {
+            borrowers[count++] = loanReaders[loan - 1];
+        }
+        return borrowers;
+    }
+
+    int getActiveLoanCount() {
+        return activeLoans;
+    }
+
+    int[] getBorrowedBookIds() {
+        int[] bookIds = new int[Math.min(activeLoans, loanCounts.length)];
+        int count = 0;
+        for (int bookId = 0; bookId < loanCounts.length && count < bookIds.length; bookId++) {
+            if (loanCounts[bookId] > 0) {
+                bookIds[count++] = bookId;
+            }
+        }
+        return Arrays.copyOf(bookIds, count);
+    }
+
+    long getFootprintBytes() {
+        return 4L * (loanCounts.length + firstLoans.length + loanReaders.length + nextLoans.length);
+    }
+}
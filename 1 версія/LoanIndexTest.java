@@ -0,0 +1,80 @@
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+class LoanIndexTest extends LibraryDriverTest {
+    static void runAll(Path dir) {
+        run("loan index matches a map of borrowers", LoanIndexTest::matchesBorrowerMap);
+        run("checkout and return keep readers and the index in step", LoanIndexTest::checkoutAndReturn);
+    }
+
+    private static void matchesBorrowerMap() {
+        Random random = new Random(7);
+        LoanIndex index = new LoanIndex();
+        Map<Integer, List<Integer>> borrowers = new TreeMap<>();
+        for (int n = 0; n < 50_000; n++) {
+            int bookId = 1 + random.nextInt(n < 25_000 ? 200 : 2_000);
+            int registrationNumber = 1 + random.nextInt(50);
+            List<Integer> expected = borrowers.computeIfAbsent(bookId, id -> new ArrayList<>());
+            if (random.nextInt(5) < 3) {
+                index.add(bookId, registrationNumber);
+                expected.add(registrationNumber);
+            } else {
+                boolean removed = expected.remove(Integer.valueOf(registrationNumber));
+                check(index.remove(bookId, registrationNumber) == removed, "remove " + bookId + "/" + registrationNumber);
+            }
+        }
+        check(!index.remove(1_000_000, 1), "a book beyond the index");
+
+        int active = 0;
+        List<Integer> borrowed = new ArrayList<>();
+        for (Map.Entry<Integer, List<Integer>> entry : borrowers.entrySet()) {
+            int bookId = entry.getKey();
+            List<Integer> expected = entry.getValue();
+            check(index.getLoanCount(bookId) == expected.size(), "loan count of " + bookId);
+            int[] found = index.getBorrowers(bookId);
+            Arrays.sort(found);
+            check(Arrays.equals(found, expected.stream().mapToInt(Integer::intValue).sorted().toArray()),
+                    "borrowers of " + bookId);
+            active += expected.size();
+            if (!expected.isEmpty()) {
+                borrowed.add(bookId);
+            }
+        }
+        check(index.getActiveLoanCount() == active, "active loans " + index.getActiveLoanCount());
+        check(Arrays.equals(index.getBorrowedBookIds(), borrowed.stream().mapToInt(Integer::intValue).toArray()),
+                "borrowed book ids");
+        check(index.getBorrowers(1_000_000).length == 0, "no borrowers beyond the index");
+    }
+
+    private static void checkoutAndReturn() {
+        Library library = new Library("Loans");
+        BookStore main = new BookStore("Main");
+        library.addBookStore(main);
+        Book first = new Book("First", List.of(new Author("Ann", "Lee")), 2001, 1);
+        Book second = new Book("Second", List.of(new Author("Ann", "Lee")), 2002, 1);
+        main.addBook(first);
+        main.addBook(second);
+        library.addReader(new BookReader("Bo", "Ray", 1));
+        library.addReader(new BookReader("Cy", "Doe", 2));
+
+        check(library.checkout(1, first.getId()) && library.checkout(2, first.getId()), "two readers borrow a book");
+        check(library.checkout(1, second.getId()), "a second book");
+        check(!library.checkout(3, first.getId()) && !library.checkout(1, 99), "unknown reader or book");
+        int[] borrowers = library.getBorrowers(first.getId());
+        Arrays.sort(borrowers);
+        check(Arrays.equals(borrowers, new int[]{1, 2}), "both readers hold the book");
+        check(library.getActiveLoanCount() == 3, "three loans");
+        check(library.getReader(1).getBorrowedBooks().size() == 2, "the reader lists both books");
+
+        check(library.returnBook(1, first.getId()), "return a borrowed book");
+        check(!library.returnBook(1, first.getId()), "a book cannot come back twice");
+        check(Arrays.equals(library.getBorrowers(first.getId()), new int[]{2}), "the other reader keeps it");
+        check(library.getLoanCount(first.getId()) == 1 && library.getActiveLoanCount() == 2, "counts follow returns");
+        check(library.getReader(1).getBorrowedBooks().equals(List.of(second)), "the reader keeps the other book");
+    }
+}
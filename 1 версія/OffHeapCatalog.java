@@ -0,0 +1,343 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+class OffHeapCatalog extends BookCatalog implements Closeable {
+    static final int MAGIC = 0x4C4F4843;
+    static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 32;
+    private static final int BOOK_RECORD_SIZE = 32;
+    private static final int AUTHOR_RECORD_SIZE = 8;
+    private static final int NO_STRING = -1;
+    private static final int INITIAL_CAPACITY = 1 << 16;
+
+    private final OffHeapRegion books;
+    private final OffHeapRegion authors;
+    private final OffHeapRegion strings;
+    private final OffHeapRegion stores;
+    private final OffHeapRegion ids;
+    private int bookCount;
+    private int authorCount;
+    private int stringLength;
+    private final List<String> storeNames = new ArrayList<>();
+    private final Map<String, Integer> storeIndexes = new HashMap<>();
+    private int[][] storeRows = new int[0][];
+    private int[] storeRowCounts = new int[0];
+
+    private OffHeapCatalog(OffHeapRegion books, OffHeapRegion authors, OffHeapRegion strings, OffHeapRegion stores,
+                           OffHeapRegion ids) {
+        this.books = books;
+        this.authors = authors;
+        this.strings = strings;
+        this.stores = stores;
+        this.ids = ids;
+    }
+
+    static OffHeapCatalog allocate() {
+        OffHeapCatalog catalog = new OffHeapCatalog(OffHeapRegion.allocate(INITIAL_CAPACITY),
+                OffHeapRegion.allocate(INITIAL_CAPACITY), OffHeapRegion.allocate(INITIAL_CAPACITY),
+                OffHeapRegion.allocate(INITIAL_CAPACITY), OffHeapRegion.allocate(INITIAL_CAPACITY));
+        catalog.writeHeader();
+        return catalog;
+    }
+
+    static OffHeapCatalog open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        OffHeapCatalog catalog = new OffHeapCatalog(
+                OffHeapRegion.map(directory.resolve("books.bin"), INITIAL_CAPACITY),
+                OffHeapRegion.map(directory.resolve("authors.bin"), INITIAL_CAPACITY),
+                OffHeapRegion.map(directory.resolve("strings.bin"), INITIAL_CAPACITY),
+                OffHeapRegion.map(directory.resolve("stores.bin"), INITIAL_CAPACITY),
+                OffHeapRegion.map(directory.resolve("ids.bin"), INITIAL_CAPACITY));
+        int magic = catalog.books.getInt(0);
+        if (magic == 0) {
+            catalog.writeHeader();
+            return catalog;
+        }
+        if (magic != MAGIC || catalog.books.getInt(4) != VERSION) {
+            catalog.close();
+            throw new IOException("Not an off-heap catalog: " + directory);
+        }
+        catalog.bookCount = catalog.books.getInt(8);
+        catalog.authorCount = catalog.books.getInt(12);
+        catalog.stringLength = catalog.books.getInt(16);
+        int storeCount = catalog.books.getInt(20);
+        for (int i = 0; i < storeCount; i++) {
+            catalog.addStore(catalog.readString(catalog.stores.getInt(i * 4)), false);
+        }
+        for (int row = 0; row < catalog.bookCount; row++) {
+            catalog.appendRow(catalog.books.getInt(record(row) + 20), row);
+        }
+        return catalog;
+    }
+
+    @Override
+    synchronized void addStore(String storeName) {
+        addStore(storeName, true);
+    }
+
+    @Override
+    synchronized void add(String storeName, Book book) {
+        if (book.getId() <= 0) {
+            throw new IllegalArgumentException("Book must have a catalog ID before it is stored off-heap: " + book);
+        }
+        int store = addStore(storeName, true);
+        int first = authorCount;
+        authors.ensureCapacity((long) (authorCount + book.getAuthors().size()) * AUTHOR_RECORD_SIZE);
+        for (Author author : book.getAuthors()) {
+            authors.putInt(authorCount * AUTHOR_RECORD_SIZE, writeString(author.getFirstName()));
+            authors.putInt(authorCount * AUTHOR_RECORD_SIZE + 4, writeString(author.getLastName()));
+            authorCount++;
+        }
+
+        int row = bookCount;
+        books.ensureCapacity(HEADER_SIZE + (long) (row + 1) * BOOK_RECORD_SIZE);
+        int record = record(row);
+        books.putInt(record, book.getId());
+        books.putInt(record + 4, book.getPublicationYear());
+        books.putInt(record + 8, book.getEditionNumber());
+        books.putInt(record + 12, writeString(book.getTitle()));
+        books.putInt(record + 16, writeString(book.getStorageName()));
+        books.putInt(record + 20, store);
+        books.putInt(record + 24, first);
+        books.putInt(record + 28, book.getAuthors().size());
+
+        ids.ensureCapacity((book.getId() + 1L) * 4);
+        ids.putInt(book.getId() * 4, row + 1);
+        bookCount++;
+        appendRow(store, row);
+    }
+
+    synchronized List<String> getStoreNames() {
+        return new ArrayList<>(storeNames);
+    }
+
+    synchronized int getBookCount() {
+        return bookCount;
+    }
+
+    @Override
+    synchronized int getBookCount(String storeName) {
+        Integer store = storeIndexes.get(storeName);
+        return store != null ? storeRowCounts[store] : 0;
+    }
+
+    @Override
+    synchronized List<Book> books(String storeName) {
+        Integer store = storeIndexes.get(storeName);
+        return store != null ? books(storeRows[store], storeRowCounts[store]) : Collections.emptyList();
+    }
+
+    @Override
+    List<Book> books(int[] rows, int count) {
+        return new AbstractList<Book>() {
+            @Override
+            public Book get(int index) {
+                if (index < 0 || index >= count) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+                }
+                return new Row(OffHeapCatalog.this, rows[index]);
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    @Override
+    void forEach(int[] rows, int count, Consumer<? super Book> action) {
+        Row row = new Row(this, 0);
+        for (int i = 0; i < count; i++) {
+            action.accept(row.at(rows[i]));
+        }
+    }
+
+    @Override
+    synchronized int[] storeRows(String storeName) {
+        Integer store = storeIndexes.get(storeName);
+        return store != null ? storeRows[store] : new int[0];
+    }
+
+    @Override
+    synchronized Book findBook(int id) {
+        if (id <= 0 || (id + 1L) * 4 > ids.capacity()) {
+            return null;
+        }
+        int row = ids.getInt(id * 4) - 1;
+        return row >= 0 ? new Row(this, row) : null;
+    }
+
+    synchronized long getOffHeapBytes() {
+        return (long) books.capacity() + authors.capacity() + strings.capacity() + stores.capacity() + ids.capacity();
+    }
+
+    synchronized void persist() {
+        writeHeader();
+        books.force();
+        authors.force();
+        strings.force();
+        stores.force();
+        ids.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (books.isClosed()) {
+            return;
+        }
+        writeHeader();
+        books.close();
+        authors.close();
+        strings.close();
+        stores.close();
+        ids.close();
+    }
+
+    private int addStore(String storeName, boolean persist) {
+        Integer store = storeIndexes.get(storeName);
+        if (store != null) {
+            return store;
+        }
+        store = storeNames.size();
+        if (persist) {
+            stores.ensureCapacity((store + 1L) * 4);
+            stores.putInt(store * 4, writeString(storeName));
+        }
+        storeNames.add(storeName);
+        storeIndexes.put(storeName, store);
+        storeRows = Arrays.copyOf(storeRows, store + 1);
+        storeRows[store] = new int[16];
+        storeRowCounts = Arrays.copyOf(storeRowCounts, store + 1);
+        return store;
+    }
+
+    private void appendRow(int store, int row) {
+        if (storeRowCounts[store] == storeRows[store].length) {
+            storeRows[store] = Arrays.copyOf(storeRows[store], storeRowCounts[store] * 2);
+        }
+        storeRows[store][storeRowCounts[store]++] = row;
+    }
+
+    private void writeHeader() {
+        books.putInt(0, MAGIC);
+        books.putInt(4, VERSION);
+        books.putInt(8, bookCount);
+        books.putInt(12, authorCount);
+        books.putInt(16, stringLength);
+        books.putInt(20, storeNames.size());
+    }
+
+    private int writeString(String string) {
+        if (string == null) {
+            return NO_STRING;
+        }
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        int offset = stringLength;
+        strings.ensureCapacity(offset + 4L + bytes.length);
+        strings.putInt(offset, bytes.length);
+        strings.put(offset + 4, bytes);
+        stringLength += 4 + bytes.length;
+        return offset;
+    }
+
+    private String readString(int offset) {
+        if (offset == NO_STRING) {
+            return null;
+        }
+        byte[] bytes = new byte[strings.getInt(offset)];
+        strings.get(offset + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int record(int row) {
+        return HEADER_SIZE + row * BOOK_RECORD_SIZE;
+    }
+
+    static class Row extends BookCatalog.Row {
+        private static final long serialVersionUID = 1L;
+
+        private final transient OffHeapCatalog catalog;
+        private int record;
+
+        private Row(OffHeapCatalog catalog, int row) {
+            this.catalog = catalog;
+            this.record = record(row);
+        }
+
+        private Row at(int row) {
+            record = record(row);
+            return this;
+        }
+
+        @Override
+        public int getId() {
+            synchronized (catalog) {
+                return catalog.books.getInt(record);
+            }
+        }
+
+        @Override
+        public String getTitle() {
+            synchronized (catalog) {
+                return catalog.readString(catalog.books.getInt(record + 12));
+            }
+        }
+
+        @Override
+        public List<Author> getAuthors() {
+            synchronized (catalog) {
+                int first = catalog.books.getInt(record + 24);
+                Author[] authors = new Author[catalog.books.getInt(record + 28)];
+                for (int i = 0; i < authors.length; i++) {
+                    int author = (first + i) * AUTHOR_RECORD_SIZE;
+                    authors[i] = new Author(catalog.readString(catalog.authors.getInt(author)),
+                            catalog.readString(catalog.authors.getInt(author + 4)));
+                }
+                return List.of(authors);
+            }
+        }
+
+        @Override
+        public int getPublicationYear() {
+            synchronized (catalog) {
+                return catalog.books.getInt(record + 4);
+            }
+        }
+
+        @Override
+        public int getEditionNumber() {
+            synchronized (catalog) {
+                return catalog.books.getInt(record + 8);
+            }
+        }
+
+        @Override
+        public String getStorageName() {
+            synchronized (catalog) {
+                return catalog.readString(catalog.books.getInt(record + 16));
+            }
+        }
+
+        @Override
+        Book detach() {
+            synchronized (catalog) {
+                Book book = new Book(getTitle(), getAuthors(), getPublicationYear(), getEditionNumber(),
+                        getStorageName());
+                book.assignId(getId());
+                return book;
+            }
+        }
+    }
+}
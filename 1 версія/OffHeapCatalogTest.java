@@ -0,0 +1,82 @@
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+class OffHeapCatalogTest extends LibraryDriverTest {
+    static void runAll(Path dir) {
+        run("off-heap lookups stay consistent while the catalog grows", OffHeapCatalogTest::offHeapLookupsDuringGrowth);
+        run("catalog scans reuse one row", OffHeapCatalogTest::catalogScansReuseOneRow);
+    }
+
+    private static void offHeapLookupsDuringGrowth() throws Exception {
+        try (OffHeapCatalog catalog = OffHeapCatalog.allocate()) {
+            AtomicInteger published = new AtomicInteger();
+            AtomicReference<String> failure = new AtomicReference<>();
+            Thread reader = new Thread(() -> {
+                Random random = new Random(3);
+                while (published.get() < 100_000 && failure.get() == null) {
+                    int count = published.get();
+                    if (count == 0) {
+                        continue;
+                    }
+                    int id = 1 + random.nextInt(count);
+                    Book book = catalog.findBook(id);
+                    if (book == null || book.getId() != id || !("Title " + id).equals(book.getTitle())
+                            || !("Last" + id).equals(book.getAuthors().get(0).getLastName())) {
+                        failure.set("lookup of " + id + " returned " + book);
+                    }
+                }
+            });
+            reader.start();
+            for (int id = 1; id <= 100_000; id++) {
+                Book book = new Book("Title " + id, List.of(new Author("First", "Last" + id)), 2000, 1);
+                book.assignId(id);
+                catalog.add(id % 2 == 0 ? "Even" : "Odd", book);
+                published.set(id);
+            }
+            reader.join();
+            check(failure.get() == null, String.valueOf(failure.get()));
+            check(catalog.getBookCount("Even") == 50_000, "store row counts");
+        }
+    }
+
+    private static void catalogScansReuseOneRow() throws Exception {
+        try (OffHeapCatalog catalog = OffHeapCatalog.allocate()) {
+            checkScan(catalog);
+        }
+        checkScan(new BookTable());
+    }
+
+    private static void checkScan(BookCatalog catalog) {
+        Library library = new Library("Scan");
+        BookStore bookStore = new BookStore("Main", catalog);
+        library.addBookStore(bookStore);
+        for (int i = 0; i < 10; i++) {
+            bookStore.addBook(new Book("Title " + i, List.of(new Author("First", "Last")), 2000 + i, 1));
+        }
+        Set<Book> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Integer> ids = new ArrayList<>();
+        int[] years = new int[1];
+        bookStore.forEachBook(book -> {
+            seen.add(book);
+            ids.add(book.getId());
+            years[0] += book.getPublicationYear();
+        });
+        check(seen.size() == 1, catalog.getClass().getSimpleName() + " scan allocated " + seen.size() + " rows");
+        check(ids.equals(List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10)) && years[0] == 20_045, "scan visits every row: " + ids);
+
+        Book first = bookStore.getBooks().get(0);
+        check(first != bookStore.getBooks().get(0) && first.getId() == bookStore.getBooks().get(0).getId(),
+                "lookups return new rows with the same id");
+        Book kept = ((BookCatalog.Row) first).detach();
+        check(!(kept instanceof BookCatalog.Row) && kept.getId() == 1 && kept.getTitle().equals("Title 0"),
+                "detach keeps a row as a plain book");
+        check(library.countBooksPublished(2000, 2004) == 5, "the year index is rebuilt from a row scan");
+    }
+}
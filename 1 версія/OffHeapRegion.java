@@ -0,0 +1,109 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+class OffHeapRegion implements Closeable {
+    private final FileChannel channel;
+    private volatile ByteBuffer buffer;
+
+    private OffHeapRegion(FileChannel channel, ByteBuffer buffer) {
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    static OffHeapRegion allocate(int capacity) {
+        return new OffHeapRegion(null, ByteBuffer.allocateDirect(capacity));
+    }
+
+    static OffHeapRegion map(Path file, int minimumCapacity) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long size = Math.max(channel.size(), minimumCapacity);
+        return new OffHeapRegion(channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+    }
+
+    int capacity() {
+        return open().capacity();
+    }
+
+    void ensureCapacity(long required) {
+        ByteBuffer current = open();
+        if (required <= current.capacity()) {
+            return;
+        }
+        if (required > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Off-heap region cannot grow beyond 2 GiB");
+        }
+        int capacity = (int) Math.min(Integer.MAX_VALUE, Math.max(required, current.capacity() * 2L));
+        if (channel != null) {
+            try {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        } else {
+            ByteBuffer grown = ByteBuffer.allocateDirect(capacity);
+            grown.put(current.duplicate().clear());
+            buffer = grown;
+        }
+    }
+
+    int getInt(int offset) {
+        return check(offset, 4).getInt(offset);
+    }
+
+    void putInt(int offset, int value) {
+        check(offset, 4).putInt(offset, value);
+    }
+
+    void get(int offset, byte[] bytes) {
+        check(offset, bytes.length).get(offset, bytes);
+    }
+
+    void put(int offset, byte[] bytes) {
+        check(offset, bytes.length).put(offset, bytes);
+    }
+
+    void force() {
+        ByteBuffer current = open();
+        if (current instanceof MappedByteBuffer) {
+            ((MappedByteBuffer) current).force();
+        }
+    }
+
+    boolean isClosed() {
+        return buffer == null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (buffer == null) {
+            return;
+        }
+        force();
+        buffer = null;
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private ByteBuffer check(int offset, int length) {
+        ByteBuffer current = open();
+        if (offset < 0 || length < 0 || offset > current.capacity() - length) {
+            throw new IndexOutOfBoundsException("Offset " + offset + " length " + length
+                    + " outside region of " + current.capacity() + " bytes");
+        }
+        return current;
+    }
+
+    private ByteBuffer open() {
+        ByteBuffer current = buffer;
+        if (current == null) {
+            throw new IllegalStateException("Off-heap region is closed");
+        }
+        return current;
+    }
+}
@@ -0,0 +1,138 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+class ReaderRegistry {
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys = new int[MIN_CAPACITY];
+    private int[] slots = new int[MIN_CAPACITY];
+    private BookReader[] readers = new BookReader[MIN_CAPACITY / 2];
+    private int size;
+
+    public boolean add(BookReader reader) {
+        int key = reader.getRegistrationNumber();
+        int mask = keys.length - 1;
+        int index = hash(key) & mask;
+        while (slots[index] != 0) {
+            if (keys[index] == key) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        if (size == readers.length) {
+            readers = Arrays.copyOf(readers, size * 2);
+        }
+        readers[size++] = reader;
+        keys[index] = key;
+        slots[index] = size;
+        if (size * 4 > keys.length * 3) {
+            rehash(keys.length * 2);
+        }
+        return true;
+    }
+
+    public BookReader get(int registrationNumber) {
+        int index = find(registrationNumber);
+        return index >= 0 ? readers[slots[index] - 1] : null;
+    }
+
+    public boolean contains(int registrationNumber) {
+        return find(registrationNumber) >= 0;
+    }
+
+    public BookReader remove(int registrationNumber) {
+        int index = find(registrationNumber);
+        if (index < 0) {
+            return null;
+        }
+        int position = slots[index] - 1;
+        BookReader removed = readers[position];
+        deleteSlot(index);
+
+        int last = --size;
+        if (position != last) {
+            BookReader moved = readers[last];
+            readers[position] = moved;
+            slots[find(moved.getRegistrationNumber())] = position + 1;
+        }
+        readers[last] = null;
+        return removed;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public List<BookReader> asList() {
+        return new AbstractList<BookReader>() {
+            @Override
+            public BookReader get(int index) {
+                if (index < 0 || index >= size) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+                }
+                return readers[index];
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    public long getFootprintBytes() {
+        return 16L + 4L * keys.length + 4L * slots.length + 4L * readers.length;
+    }
+
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int index = hash(key) & mask;
+        while (slots[index] != 0) {
+            if (keys[index] == key) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void deleteSlot(int index) {
+        int mask = keys.length - 1;
+        int hole = index;
+        int next = (hole + 1) & mask;
+        while (slots[next] != 0) {
+            int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                slots[hole] = slots[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        slots[hole] = 0;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldSlots = slots;
+        keys = new int[capacity];
+        slots = new int[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldSlots[i] != 0) {
+                int index = hash(oldKeys[i]) & mask;
+                while (slots[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                slots[index] = oldSlots[i];
+            }
+        }
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
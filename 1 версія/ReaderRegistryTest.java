@@ -0,0 +1,82 @@
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+class ReaderRegistryTest extends LibraryDriverTest {
+    static void runAll(Path dir) {
+        run("registry deletion keeps wrapped probe chains intact", ReaderRegistryTest::registryDeletionKeepsWrappedChains);
+        run("registry matches a hash map under random churn", ReaderRegistryTest::registryMatchesHashMap);
+    }
+
+    private static void registryDeletionKeepsWrappedChains() {
+        List<Integer> tail = keysWithHome(15, 4);
+        List<Integer> head = keysWithHome(0, 3);
+        ReaderRegistry registry = new ReaderRegistry();
+        List<Integer> keys = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            keys.add(tail.get(i));
+            if (i < 3) {
+                keys.add(head.get(i));
+            }
+        }
+        for (int key : keys) {
+            check(registry.add(new BookReader("Reader", String.valueOf(key), key)), "add " + key);
+        }
+        Map<Integer, BookReader> model = new HashMap<>();
+        for (BookReader reader : registry.asList()) {
+            model.put(reader.getRegistrationNumber(), reader);
+        }
+        for (int key : List.of(tail.get(0), head.get(0), tail.get(2), tail.get(1))) {
+            check(registry.remove(key) == model.remove(key), "remove " + key);
+            assertRegistry(model, registry);
+        }
+        for (int key : keys) {
+            if (!model.containsKey(key)) {
+                check(registry.remove(key) == null, "second remove of " + key);
+            }
+        }
+    }
+
+    private static void registryMatchesHashMap() {
+        Random random = new Random(7);
+        ReaderRegistry registry = new ReaderRegistry();
+        Map<Integer, BookReader> model = new HashMap<>();
+        for (int op = 0; op < 200_000; op++) {
+            int key = random.nextInt(op < 100_000 ? 2_000 : 64);
+            if (random.nextInt(3) > 0) {
+                BookReader reader = new BookReader("Reader", String.valueOf(key), key);
+                boolean added = registry.add(reader);
+                check(added == (model.putIfAbsent(key, reader) == null), "add " + key + " at op " + op);
+            } else {
+                check(registry.remove(key) == model.remove(key), "remove " + key + " at op " + op);
+            }
+            if (op % 997 == 0) {
+                assertRegistry(model, registry);
+            }
+        }
+        assertRegistry(model, registry);
+    }
+
+    private static List<Integer> keysWithHome(int home, int count) {
+        List<Integer> keys = new ArrayList<>();
+        for (int key = 1; keys.size() < count; key++) {
+            int h = key * 0x9E3779B9;
+            if (((h ^ (h >>> 16)) & 15) == home) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    private static void assertRegistry(Map<Integer, BookReader> model, ReaderRegistry registry) {
+        check(registry.size() == model.size(), "size " + registry.size() + " != " + model.size());
+        for (Map.Entry<Integer, BookReader> entry : model.entrySet()) {
+            check(registry.get(entry.getKey()) == entry.getValue(), "lookup of " + entry.getKey());
+        }
+        check(new HashSet<>(registry.asList()).equals(new HashSet<>(model.values())), "dense reader list");
+    }
+}
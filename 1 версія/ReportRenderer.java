@@ -0,0 +1,152 @@
+import java.io.*;
+import java.util.List;
+
+class ReportRenderer implements Flushable {
+    static final int DEFAULT_BUFFER_SIZE = 8_192;
+
+    private final Appendable out;
+    private final StringBuilder buffer;
+    private final int bufferSize;
+    private final long maxChars;
+    private long written;
+    private boolean truncated;
+
+    ReportRenderer(Appendable out) {
+        this(out, DEFAULT_BUFFER_SIZE, Long.MAX_VALUE);
+    }
+
+    ReportRenderer(Appendable out, int bufferSize, long maxChars) {
+        this.out = out;
+        this.bufferSize = bufferSize;
+        this.maxChars = maxChars;
+        this.buffer = new StringBuilder(bufferSize);
+    }
+
+    static String render(Section section) {
+        StringBuilder text = new StringBuilder();
+        try {
+            ReportRenderer renderer = new ReportRenderer(text);
+            section.render(renderer);
+            renderer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return text.toString();
+    }
+
+    boolean isTruncated() {
+        return truncated;
+    }
+
+    long getWritten() {
+        return written;
+    }
+
+    ReportRenderer book(Book book) throws IOException {
+        append("Book: ").append(book.getTitle()).append(", Authors: ");
+        List<Author> authors = book.getAuthors();
+        for (int i = 0; i < authors.size(); i++) {
+            append(i > 0 ? ", " : "").append(authors.get(i).toString());
+        }
+        append(", Year: ").append(String.valueOf(book.getPublicationYear()))
+                .append(", Edition: ").append(String.valueOf(book.getEditionNumber()));
+        if (book.getStorageName() != null) {
+            append(", Storage: ").append(book.getStorageName());
+        }
+        return this;
+    }
+
+    ReportRenderer bookStore(BookStore bookStore) throws IOException {
+        append("Store: ").append(bookStore.getStoreName()).append("\nBooks: [");
+        List<Book> books = bookStore.getBooks();
+        for (int i = 0; i < books.size() && !truncated; i++) {
+            append(i > 0 ? ", " : "").book(books.get(i));
+        }
+        return append("]");
+    }
+
+    ReportRenderer reader(BookReader reader) throws IOException {
+        append("Name: ").append(reader.getFirstName()).append(" ").append(reader.getLastName())
+                .append(", Registration Number: ").append(String.valueOf(reader.getRegistrationNumber()))
+                .append("\nBorrowed Books: [");
+        List<Book> books = reader.getBorrowedBooks();
+        for (int i = 0; i < books.size() && !truncated; i++) {
+            append(i > 0 ? ", " : "").book(books.get(i));
+        }
+        return append("]");
+    }
+
+    ReportRenderer library(Library library) throws IOException {
+        append("Library: ").append(library.getLibraryName()).append("\nBook Stores: [");
+        List<BookStore> bookStores = library.getBookStores();
+        for (int i = 0; i < bookStores.size() && !truncated; i++) {
+            append(i > 0 ? ", " : "").bookStore(bookStores.get(i));
+        }
+        append("]\nReaders: [");
+        List<BookReader> readers = library.getReaders();
+        for (int i = 0; i < readers.size() && !truncated; i++) {
+            append(i > 0 ? ", " : "").reader(readers.get(i));
+        }
+        return append("]");
+    }
+
+    int books(List<Book> books, int cursor, int pageSize) throws IOException {
+        int end = Math.min(books.size(), cursor + pageSize);
+        for (int i = cursor; i < end && !truncated; i++) {
+            append("    - ").book(books.get(i)).append("\n");
+        }
+        flush();
+        return end < books.size() && !truncated ? end : -1;
+    }
+
+    int readers(List<BookReader> readers, int cursor, int pageSize) throws IOException {
+        int end = Math.min(readers.size(), cursor + pageSize);
+        for (int i = cursor; i < end && !truncated; i++) {
+            reader(readers.get(i)).append("\n");
+        }
+        flush();
+        return end < readers.size() && !truncated ? end : -1;
+    }
+
+    ReportRenderer append(String text) throws IOException {
+        if (truncated) {
+            return this;
+        }
+        if (text == null) {
+            text = "null";
+        }
+        if (written + text.length() > maxChars) {
+            buffer.append(text, 0, (int) (maxChars - written));
+            buffer.append("\n... output truncated after ").append(maxChars).append(" characters\n");
+            written = maxChars;
+            truncated = true;
+            flush();
+            return this;
+        }
+        buffer.append(text);
+        written += text.length();
+        if (buffer.length() >= bufferSize) {
+            drain();
+        }
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        drain();
+        if (out instanceof Flushable) {
+            ((Flushable) out).flush();
+        }
+    }
+
+    private void drain() throws IOException {
+        if (buffer.length() > 0) {
+            out.append(buffer);
+            buffer.setLength(0);
+        }
+    }
+
+    interface Section {
+        void render(ReportRenderer renderer) throws IOException;
+    }
+}
@@ -0,0 +1,15 @@
+import java.nio.file.Path;
+import java.util.List;
+
+class ReportRendererTest extends LibraryDriverTest {
+    static void runAll(Path dir) {
+        run("reports render null names like string concatenation", ReportRendererTest::reportRendersNullNames);
+    }
+
+    private static void reportRendersNullNames() {
+        Book book = new Book(null, List.of(new Author(null, "Lee")), 2001, 1);
+        check(book.toString().equals("Book: null, Authors: Name: null Lee, Year: 2001, Edition: 1"), book.toString());
+        BookReader reader = new BookReader("Di", null, 7);
+        check(reader.toString().equals("Name: Di null, Registration Number: 7\nBorrowed Books: []"), reader.toString());
+    }
+}
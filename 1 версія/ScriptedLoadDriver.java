@@ -0,0 +1,136 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+class ScriptedLoadDriver {
+    static final String ADD_READER = "addReader";
+    static final String ADD_BOOK = "addBook";
+    static final String ADD_STORAGE = "addStorage";
+    static final String REPORT = "report";
+
+    private static final String[] OPERATIONS = {ADD_READER, ADD_BOOK, ADD_STORAGE, REPORT};
+
+    static void generateScript(Path script, int operations, int existingStores, long seed) throws IOException {
+        Random random = new Random(seed);
+        int stores = existingStores;
+        int nextReader = 1_000_000;
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(script))) {
+            for (int i = 0; i < operations; i++) {
+                int roll = random.nextInt(100);
+                if (roll < 60 && stores > 0) {
+                    out.println(String.join("\t", ADD_BOOK, LibraryGenerator.title(random),
+                            LibraryGenerator.firstName(random), LibraryGenerator.lastName(random),
+                            String.valueOf(LibraryGenerator.publicationYear(random)), String.valueOf(1 + random.nextInt(5)),
+                            LibraryGenerator.storeName(random.nextInt(stores))));
+                } else if (roll < 90) {
+                    out.println(String.join("\t", ADD_READER, LibraryGenerator.firstName(random),
+                            LibraryGenerator.lastName(random), String.valueOf(nextReader++)));
+                } else if (roll < 99) {
+                    out.println(String.join("\t", ADD_STORAGE, LibraryGenerator.storeName(stores++)));
+                } else {
+                    out.println(REPORT);
+                }
+            }
+        }
+    }
+
+    static void run(Library library, Path script, double operationsPerSecond, PrintStream out) throws IOException {
+        Map<String, LatencyRecorder> latencies = new HashMap<>();
+        for (String operation : OPERATIONS) {
+            latencies.put(operation, new LatencyRecorder());
+        }
+        long intervalNanos = operationsPerSecond > 0 ? (long) (1e9 / operationsPerSecond) : 0;
+        long start = System.nanoTime();
+        long count = 0;
+        int failures = 0;
+        try (BufferedReader in = Files.newBufferedReader(script)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                long scheduled = start + count * intervalNanos;
+                long wait = scheduled - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                String[] fields = line.split("\t");
+                LatencyRecorder recorder = latencies.get(fields[0]);
+                if (recorder == null) {
+                    throw new IOException("Unknown operation in " + script + ": " + fields[0]);
+                }
+                // measured from the scheduled start, so a stall also counts against the operations queued behind it
+                long startedAt = intervalNanos > 0 ? scheduled : System.nanoTime();
+                if (!execute(library, fields)) {
+                    failures++;
+                }
+                recorder.record(System.nanoTime() - startedAt);
+                count++;
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        out.printf("Replayed %d operations in %.2f s (%.1f ops/s), %d rejected%n", count, seconds, count / seconds, failures);
+        out.printf("%-12s %10s %12s %12s %12s %12s%n", "operation", "count", "p50 us", "p90 us", "p99 us", "max us");
+        for (String operation : OPERATIONS) {
+            LatencyRecorder recorder = latencies.get(operation);
+            if (recorder.size() > 0) {
+                out.printf("%-12s %10d %12.1f %12.1f %12.1f %12.1f%n", operation, recorder.size(),
+                        recorder.percentile(50) / 1e3, recorder.percentile(90) / 1e3, recorder.percentile(99) / 1e3,
+                        recorder.percentile(100) / 1e3);
+            }
+        }
+    }
+
+    private static boolean execute(Library library, String[] fields) throws IOException {
+        try {
+            switch (fields[0]) {
+                case ADD_READER:
+                    return LibraryDriver.addReader(library, fields[1], fields[2], Integer.parseInt(fields[3])) != null;
+                case ADD_BOOK:
+                    return LibraryDriver.addBook(library, fields[1], fields[2], fields[3], Integer.parseInt(fields[4]),
+                            Integer.parseInt(fields[5]), fields[6]) != null;
+                case ADD_STORAGE:
+                    return LibraryDriver.addStorage(library, fields[1]) != null;
+                default:
+                    return new ReportRenderer(Writer.nullWriter()).library(library).getWritten() > 0;
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            throw new IOException("Malformed script line: " + String.join("\t", fields), e);
+        }
+    }
+
+    static class LatencyRecorder {
+        private long[] samples = new long[1024];
+        private int size;
+        private boolean sorted;
+
+        void record(long nanos) {
+            if (size == samples.length) {
+                samples = Arrays.copyOf(samples, size * 2);
+            }
+            samples[size++] = nanos;
+            sorted = false;
+        }
+
+        int size() {
+            return size;
+        }
+
+        long percentile(double percentile) {
+            if (size == 0) {
+                return 0;
+            }
+            if (!sorted) {
+                Arrays.sort(samples, 0, size);
+                sorted = true;
+            }
+            int index = (int) Math.ceil(percentile / 100.0 * size) - 1;
+            return samples[Math.max(0, Math.min(size - 1, index))];
+        }
+    }
+}
@@ -0,0 +1,79 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+class ScriptedLoadDriverTest extends LibraryDriverTest {
+    static void runAll(Path dir) {
+        run("generator builds the same library from the same seed", ScriptedLoadDriverTest::generatorIsDeterministic);
+        run("a generated script replays cleanly", () -> generatedScriptReplays(dir.resolve("replay")));
+        run("a malformed script line stops the replay", () -> malformedLineStopsReplay(dir.resolve("malformed")));
+        run("latency percentiles pick the nearest rank", ScriptedLoadDriverTest::percentilesPickNearestRank);
+    }
+
+    private static void generatorIsDeterministic() {
+        LibraryGenerator generator = new LibraryGenerator(9).stores(3).booksPerStore(20).authorsPerBook(2)
+                .authorPool(10).readers(12).loansPerReader(2);
+        Library library = generator.generate();
+        assertSameLibrary(library, generator.generate());
+        check(!library.toString().equals(new LibraryGenerator(10).stores(3).booksPerStore(20).authorsPerBook(2)
+                .authorPool(10).readers(12).loansPerReader(2).generate().toString()), "another seed, another library");
+
+        check(library.getBookStores().size() == 3 && library.getStatistics().getBookCount() == 60, "3 x 20 books");
+        check(library.getReaders().size() == 12 && library.getStatistics().getActiveLoans() == 24, "12 x 2 loans");
+        for (BookStore bookStore : library.getBookStores()) {
+            for (Book book : bookStore.getBooks()) {
+                check(book.getAuthors().size() == 2, "authors per book");
+            }
+        }
+    }
+
+    private static void generatedScriptReplays(Path dir) throws Exception {
+        Files.createDirectories(dir);
+        Path script = dir.resolve("load.tsv");
+        Library library = new LibraryGenerator(1).stores(2).booksPerStore(10).readers(5).generate();
+        ScriptedLoadDriver.generateScript(script, 400, 2, 77);
+
+        int books = 0;
+        int readers = 0;
+        int stores = 0;
+        for (String line : Files.readAllLines(script)) {
+            String operation = line.split("\t")[0];
+            books += operation.equals(ScriptedLoadDriver.ADD_BOOK) ? 1 : 0;
+            readers += operation.equals(ScriptedLoadDriver.ADD_READER) ? 1 : 0;
+            stores += operation.equals(ScriptedLoadDriver.ADD_STORAGE) ? 1 : 0;
+        }
+        check(books > 0 && readers > 0 && stores > 0, "the script mixes operations");
+
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+        ScriptedLoadDriver.run(library, script, 0, new PrintStream(report, true));
+        String output = report.toString();
+        check(output.startsWith("Replayed 400 operations") && output.contains(" 0 rejected"), output);
+        check(library.getStatistics().getBookCount() == 20 + books, "every scripted book lands");
+        check(library.getReaders().size() == 5 + readers, "every scripted reader lands");
+        check(library.getBookStores().size() == 2 + stores, "every scripted storage lands");
+    }
+
+    private static void malformedLineStopsReplay(Path dir) throws Exception {
+        Files.createDirectories(dir);
+        Path script = dir.resolve("bad.tsv");
+        Files.write(script, List.of(ScriptedLoadDriver.ADD_READER + "\tAnn\tLee\tnot-a-number"));
+        try {
+            ScriptedLoadDriver.run(new Library("Bad"), script, 0, new PrintStream(OutputStream.nullOutputStream()));
+            throw new AssertionError("a malformed line replayed");
+        } catch (IOException e) {
+            check(e.getMessage().startsWith("Malformed script line"), e.getMessage());
+        }
+    }
+
+    private static void percentilesPickNearestRank() {
+        ScriptedLoadDriver.LatencyRecorder recorder = new ScriptedLoadDriver.LatencyRecorder();
+        check(recorder.percentile(50) == 0, "an empty recorder");
+        for (int i = 2000; i >= 1; i--) {
+            recorder.record(i);
+        }
+        check(recorder.size() == 2000, "size");
+        check(recorder.percentile(50) == 1000 && recorder.percentile(99) == 1980, "p50 and p99");
+        check(recorder.percentile(0) == 1 && recorder.percentile(100) == 2000, "min and max");
+    }
+}
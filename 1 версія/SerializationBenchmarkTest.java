@@ -0,0 +1,55 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+class SerializationBenchmarkTest extends LibraryDriverTest {
+    static void runAll(Path dir) {
+        run("every benchmark format reads back what it wrote", () -> benchmarkFormatsRoundTrip(dir.resolve("formats")));
+        run("allocation counts pool workers", SerializationBenchmarkTest::allocationCountsPoolWorkers);
+        run("allocation flags threads that exit", SerializationBenchmarkTest::allocationFlagsExitedThreads);
+    }
+
+    private static byte[] sink;
+
+    private static void allocationCountsPoolWorkers() throws Exception {
+        SerializationBenchmark.Result result = SerializationBenchmark.measure(() -> {
+            try {
+                sink = ForkJoinPool.commonPool().submit(() -> new byte[1 << 20]).get();
+            } catch (InterruptedException | ExecutionException e) {
+                throw new IOException(e);
+            }
+        });
+        check(result.allocatedMegabytesPerOp >= 0.9, result.allocatedMegabytesPerOp + " MB/op");
+        check(result.exitedThreads == 0, result.exitedThreads + " exited threads");
+    }
+
+    private static void allocationFlagsExitedThreads() throws Exception {
+        SerializationBenchmark.Result result = SerializationBenchmark.measure(() -> {
+            Thread thread = new Thread(() -> sink = new byte[1 << 20]);
+            thread.start();
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+        });
+        check(result.exitedThreads > 0, "the short-lived threads went unnoticed");
+    }
+
+    private static void benchmarkFormatsRoundTrip(Path dir) throws Exception {
+        Files.createDirectories(dir);
+        Library library = new LibraryGenerator(42).stores(3).booksPerStore(700).authorsPerBook(2).authorPool(40)
+                .readers(50).loansPerReader(3).generate();
+        long fingerprint = SerializationBenchmark.fingerprint(library);
+        for (SerializationBenchmark.Format format : SerializationBenchmark.FORMATS) {
+            Path file = dir.resolve(format.name());
+            format.write(library, file);
+            check(SerializationBenchmark.fingerprint(format.read(file)) == fingerprint, format.name());
+        }
+        library.getBookStores().get(0).addBook(new Book("Extra", List.of(new Author("Ann", "Lee")), 2000, 1));
+        check(SerializationBenchmark.fingerprint(library) != fingerprint, "the fingerprint covers every book");
+    }
+}
@@ -0,0 +1,18 @@
+import java.io.*;
+
+interface SnapshotListener {
+    SnapshotListener NONE = new SnapshotListener() {
+    };
+
+    default void onProgress(long done, long total) {
+    }
+
+    default void onCompressed(long rawBytes, long compressedBytes, double megabytesPerSecond) {
+    }
+
+    default void onComplete(String fileName, long millis) {
+    }
+
+    default void onFailure(String fileName, IOException e) {
+    }
+}
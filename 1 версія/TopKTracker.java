@@ -0,0 +1,119 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class TopKTracker<K> {
+    private final Object[] keys;
+    private final long[] counts;
+    private final Map<K, Integer> positions = new HashMap<>();
+    private int size;
+
+    TopKTracker(int capacity) {
+        keys = new Object[capacity];
+        counts = new long[capacity];
+    }
+
+    TopKTracker(TopKTracker<K> other) {
+        keys = other.keys.clone();
+        counts = other.counts.clone();
+        positions.putAll(other.positions);
+        size = other.size;
+    }
+
+    void update(K key, long count) {
+        Integer position = positions.get(key);
+        if (position != null) {
+            counts[position] = count;
+            siftDown(position);
+        } else if (size < keys.length) {
+            keys[size] = key;
+            counts[size] = count;
+            positions.put(key, size);
+            siftUp(size++);
+        } else if (count > counts[0]) {
+            positions.remove(keys[0]);
+            keys[0] = key;
+            counts[0] = count;
+            positions.put(key, 0);
+            siftDown(0);
+        }
+    }
+
+    void clear() {
+        Arrays.fill(keys, 0, size, null);
+        positions.clear();
+        size = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    List<Entry<K>> top(int k) {
+        List<Entry<K>> entries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            entries.add(new Entry<>((K) keys[i], counts[i]));
+        }
+        entries.sort((a, b) -> Long.compare(b.getCount(), a.getCount()));
+        return entries.subList(0, Math.min(k, entries.size()));
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (counts[parent] <= counts[position]) {
+                break;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int smallest = position;
+            int left = position * 2 + 1;
+            int right = left + 1;
+            if (left < size && counts[left] < counts[smallest]) {
+                smallest = left;
+            }
+            if (right < size && counts[right] < counts[smallest]) {
+                smallest = right;
+            }
+            if (smallest == position) {
+                return;
+            }
+            swap(position, smallest);
+            position = smallest;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void swap(int a, int b) {
+        Object key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        long count = counts[a];
+        counts[a] = counts[b];
+        counts[b] = count;
+        positions.put((K) keys[a], a);
+        positions.put((K) keys[b], b);
+    }
+
+    static class Entry<K> {
+        private final K key;
+        private final long count;
+
+        Entry(K key, long count) {
+            this.key = key;
+            this.count = count;
+        }
+
+        K getKey() {
+            return key;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
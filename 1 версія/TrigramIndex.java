@@ -0,0 +1,185 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class TrigramIndex {
+    private final List<String> terms = new ArrayList<>();
+    private final Map<Long, TermList> postings = new HashMap<>();
+
+    void addTerm(String term) {
+        int termId = terms.size();
+        terms.add(term);
+        for (long trigram : trigrams(term)) {
+            postings.computeIfAbsent(trigram, key -> new TermList()).add(termId);
+        }
+    }
+
+    int getTermCount() {
+        return terms.size();
+    }
+
+    List<String> match(String word, List<Integer> distances) {
+        int maxDistance = maxDistance(word.length());
+        long[] queryTrigrams = trigrams(word);
+        int threshold = queryTrigrams.length - 4 * maxDistance;
+        List<String> matches = new ArrayList<>();
+        if (threshold <= 0) {
+            for (String term : terms) {
+                if (Math.abs(term.length() - word.length()) <= maxDistance) {
+                    int distance = editDistance(word, term, maxDistance);
+                    if (distance <= maxDistance) {
+                        matches.add(term);
+                        distances.add(distance);
+                    }
+                }
+            }
+            return matches;
+        }
+
+        List<TermList> lists = new ArrayList<>();
+        for (long trigram : queryTrigrams) {
+            TermList list = postings.get(trigram);
+            if (list != null) {
+                lists.add(list);
+            }
+        }
+        if (lists.size() < threshold) {
+            return matches;
+        }
+        lists.sort((a, b) -> Integer.compare(a.size, b.size));
+
+        int shortLists = lists.size() - threshold + 1;
+        int total = 0;
+        for (int i = 0; i < shortLists; i++) {
+            total += lists.get(i).size;
+        }
+        int[] candidates = new int[total];
+        int length = 0;
+        for (int i = 0; i < shortLists; i++) {
+            System.arraycopy(lists.get(i).ids, 0, candidates, length, lists.get(i).size);
+            length += lists.get(i).size;
+        }
+        Arrays.sort(candidates, 0, length);
+
+        int[] cursors = new int[lists.size()];
+        for (int i = 0; i < length; ) {
+            int termId = candidates[i];
+            int count = 0;
+            while (i < length && candidates[i] == termId) {
+                count++;
+                i++;
+            }
+            for (int j = shortLists; j < lists.size() && count < threshold; j++) {
+                TermList list = lists.get(j);
+                cursors[j] = gallop(list.ids, cursors[j], list.size, termId);
+                if (cursors[j] < list.size && list.ids[cursors[j]] == termId) {
+                    count++;
+                }
+            }
+            if (count >= threshold) {
+                String term = terms.get(termId);
+                int distance = editDistance(word, term, maxDistance);
+                if (distance <= maxDistance) {
+                    matches.add(term);
+                    distances.add(distance);
+                }
+            }
+        }
+        return matches;
+    }
+
+    static int maxDistance(int length) {
+        return length <= 3 ? 0 : length <= 7 ? 1 : 2;
+    }
+
+    static int gallop(int[] list, int from, int size, int key) {
+        int low = from;
+        int step = 1;
+        int high = from;
+        while (high < size && list[high] < key) {
+            low = high + 1;
+            high += step;
+            step <<= 1;
+        }
+        high = Math.min(high, size);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (list[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    static int editDistance(String a, String b, int maxDistance) {
+        if (Math.abs(a.length() - b.length()) > maxDistance) {
+            return maxDistance + 1;
+        }
+        int limit = maxDistance + 1;
+        int[] beforePrevious = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = Math.min(j, limit);
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            Arrays.fill(current, limit);
+            current[0] = Math.min(i, limit);
+            int rowMinimum = current[0];
+            int from = Math.max(1, i - maxDistance);
+            int to = Math.min(b.length(), i + maxDistance);
+            for (int j = from; j <= to; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(previous[j - 1] + cost, Math.min(previous[j], current[j - 1]) + 1);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, beforePrevious[j - 2] + 1);
+                }
+                current[j] = Math.min(value, limit);
+                rowMinimum = Math.min(rowMinimum, current[j]);
+            }
+            if (rowMinimum > maxDistance) {
+                return limit;
+            }
+            int[] recycled = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[b.length()];
+    }
+
+    private static long[] trigrams(String term) {
+        String padded = "\u0002\u0002" + term + "\u0003\u0003";
+        long[] trigrams = new long[padded.length() - 2];
+        for (int i = 0; i < trigrams.length; i++) {
+            trigrams[i] = (long) padded.charAt(i) << 32 | (long) padded.charAt(i + 1) << 16 | padded.charAt(i + 2);
+        }
+        Arrays.sort(trigrams);
+        int count = 0;
+        for (int i = 0; i < trigrams.length; i++) {
+            if (count == 0 || trigrams[count - 1] != trigrams[i]) {
+                trigrams[count++] = trigrams[i];
+            }
+        }
+        return Arrays.copyOf(trigrams, count);
+    }
+
+    private static class TermList {
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int termId) {
+            if (size > 0 && ids[size - 1] == termId) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = termId;
+        }
+    }
+}
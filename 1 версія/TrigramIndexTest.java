@@ -0,0 +1,128 @@
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+class TrigramIndexTest extends LibraryDriverTest {
+    static void runAll(Path dir) {
+        run("bounded edit distance matches the full table", TrigramIndexTest::editDistanceMatchesFullTable);
+        run("trigram matches equal a scan of every term", TrigramIndexTest::matchesEqualScan);
+        run("fuzzy search finds a title with a typo", TrigramIndexTest::fuzzySearchToleratesTypos);
+    }
+
+    private static void editDistanceMatchesFullTable() {
+        Random random = new Random(1);
+        for (int i = 0; i < 5000; i++) {
+            String a = word(random, "abc", 0, 7);
+            String b = random.nextInt(3) == 0 ? mutate(random, a, "abc") : word(random, "abc", 0, 7);
+            int full = distance(a, b);
+            for (int max = 0; max <= 2; max++) {
+                int bounded = TrigramIndex.editDistance(a, b, max);
+                check(bounded == Math.min(full, max + 1), a + " / " + b + " within " + max + ": " + bounded + " vs " + full);
+            }
+        }
+    }
+
+    private static void matchesEqualScan() {
+        Random random = new Random(2);
+        TrigramIndex index = new TrigramIndex();
+        Set<String> seen = new HashSet<>();
+        List<String> terms = new ArrayList<>();
+        while (terms.size() < 3000) {
+            String term = word(random, "abcdefgh", 1, 11);
+            if (seen.add(term)) {
+                terms.add(term);
+                index.addTerm(term);
+            }
+        }
+        for (int i = 0; i < 400; i++) {
+            String word = i % 2 == 0 ? mutate(random, terms.get(random.nextInt(terms.size())), "abcdefgh")
+                    : word(random, "abcdefgh", 1, 11);
+            int maxDistance = TrigramIndex.maxDistance(word.length());
+            Set<String> expected = new HashSet<>();
+            for (String term : terms) {
+                if (distance(word, term) <= maxDistance) {
+                    expected.add(term);
+                }
+            }
+            List<Integer> distances = new ArrayList<>();
+            List<String> matches = index.match(word, distances);
+            check(new HashSet<>(matches).equals(expected), word + ": expected " + expected + " but was " + matches);
+            for (int j = 0; j < matches.size(); j++) {
+                check(distances.get(j) == distance(word, matches.get(j)), "distance to " + matches.get(j));
+            }
+        }
+    }
+
+    private static void fuzzySearchToleratesTypos() {
+        Library library = new Library("Fuzzy");
+        BookStore main = new BookStore("Main");
+        library.addBookStore(main);
+        Book exact = new Book("Silent Harbor", List.of(new Author("Anna", "Berg")), 2001, 1);
+        Book near = new Book("Silent Harbour", List.of(new Author("Hugo", "Lind")), 2002, 1);
+        Book other = new Book("Broken Mirror", List.of(new Author("Anna", "Berg")), 2003, 1);
+        main.addBook(other);
+        main.addBook(near);
+        main.addBook(exact);
+
+        check(library.fuzzySearchBooks("Slient Harbor", 10).equals(List.of(exact, near)), "a transposed letter");
+        check(library.fuzzySearchBooks("harbor", 1).equals(List.of(exact)), "the closer match ranks first");
+        check(library.fuzzySearchBooks("Brokne Mirorr", 10).equals(List.of(other)), "a typo in each word");
+        check(library.fuzzySearchBooks("Ana", 10).isEmpty(), "short words must match exactly");
+        check(library.fuzzySearchBooks("  ", 10).isEmpty(), "an empty query");
+    }
+
+    private static int distance(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            for (int j = 0; j <= b.length(); j++) {
+                if (i == 0 || j == 0) {
+                    d[i][j] = i + j;
+                    continue;
+                }
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(d[i - 1][j - 1] + cost, Math.min(d[i - 1][j], d[i][j - 1]) + 1);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+                }
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+
+    private static String word(Random random, String alphabet, int minLength, int maxLength) {
+        StringBuilder word = new StringBuilder();
+        int length = minLength + random.nextInt(maxLength - minLength + 1);
+        for (int i = 0; i < length; i++) {
+            word.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return word.toString();
+    }
+
+    private static String mutate(Random random, String word, String alphabet) {
+        StringBuilder mutated = new StringBuilder(word);
+        for (int edits = 1 + random.nextInt(2); edits > 0; edits--) {
+            int at = mutated.length() == 0 ? 0 : random.nextInt(mutated.length());
+            char letter = alphabet.charAt(random.nextInt(alphabet.length()));
+            switch (mutated.length() < 2 ? 0 : random.nextInt(4)) {
+                case 0:
+                    mutated.insert(at, letter);
+                    break;
+                case 1:
+                    mutated.deleteCharAt(at);
+                    break;
+                case 2:
+                    mutated.setCharAt(at, letter);
+                    break;
+                default:
+                    at = Math.min(at, mutated.length() - 2);
+                    char first = mutated.charAt(at);
+                    mutated.setCharAt(at, mutated.charAt(at + 1));
+                    mutated.setCharAt(at + 1, first);
+            }
+        }
+        return mutated.toString();
+    }
+}
@@ -0,0 +1,171 @@
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+class YearIndex {
+    private static final int MIN_DELTA = 1024;
+
+    private final boolean withEditions;
+    private int[] years = new int[0];
+    private int[] ids = new int[0];
+    private int[] editions;
+    private int[] deltaYears = new int[MIN_DELTA];
+    private int[] deltaIds = new int[MIN_DELTA];
+    private int[] deltaEditions;
+    private int deltaCount;
+
+    YearIndex(boolean withEditions) {
+        this.withEditions = withEditions;
+        if (withEditions) {
+            editions = new int[0];
+            deltaEditions = new int[MIN_DELTA];
+        }
+    }
+
+    void add(Book book) {
+        append(book);
+        if (deltaCount >= Math.max(MIN_DELTA, years.length >> 4)) {
+            merge();
+        }
+    }
+
+    void append(Book book) {
+        if (deltaCount == deltaYears.length) {
+            deltaYears = Arrays.copyOf(deltaYears, deltaCount * 2);
+            deltaIds = Arrays.copyOf(deltaIds, deltaCount * 2);
+            if (withEditions) {
+                deltaEditions = Arrays.copyOf(deltaEditions, deltaCount * 2);
+            }
+        }
+        deltaYears[deltaCount] = book.getPublicationYear();
+        deltaIds[deltaCount] = book.getId();
+        if (withEditions) {
+            deltaEditions[deltaCount] = book.getEditionNumber();
+        }
+        deltaCount++;
+    }
+
+    void removeAll(List<Book> books) {
+        BitSet removed = new BitSet();
+        for (Book book : books) {
+            removed.set(book.getId());
+        }
+        merge();
+        int kept = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (!removed.get(ids[i])) {
+                years[kept] = years[i];
+                ids[kept] = ids[i];
+                if (withEditions) {
+                    editions[kept] = editions[i];
+                }
+                kept++;
+            }
+        }
+        years = Arrays.copyOf(years, kept);
+        ids = Arrays.copyOf(ids, kept);
+        if (withEditions) {
+            editions = Arrays.copyOf(editions, kept);
+        }
+    }
+
+    int size() {
+        return years.length + deltaCount;
+    }
+
+    int count(int fromYear, int toYear) {
+        int count = lowerBound(years, toYear + 1) - lowerBound(years, fromYear);
+        for (int i = 0; i < deltaCount; i++) {
+            if (deltaYears[i] >= fromYear && deltaYears[i] <= toYear) {
+                count++;
+            }
+        }
+        return Math.max(count, 0);
+    }
+
+    int[] scan(int fromYear, int toYear) {
+        return scan(fromYear, toYear, 0);
+    }
+
+    int[] scan(int fromYear, int toYear, int editionNumber) {
+        if (editionNumber != 0 && !withEditions) {
+            throw new IllegalStateException("Year index was built without the edition column");
+        }
+        merge();
+        int from = lowerBound(years, fromYear);
+        int to = lowerBound(years, toYear + 1);
+        if (to <= from) {
+            return new int[0];
+        }
+        if (editionNumber == 0) {
+            return Arrays.copyOfRange(ids, from, to);
+        }
+        int[] result = new int[to - from];
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (editions[i] == editionNumber) {
+                result[count++] = ids[i];
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    long getFootprintBytes() {
+        int columns = withEditions ? 3 : 2;
+        return 4L * columns * (years.length + deltaYears.length);
+    }
+
+    void merge() {
+        if (deltaCount == 0) {
+            return;
+        }
+        long[] keys = new long[deltaCount];
+        for (int i = 0; i < deltaCount; i++) {
+            keys[i] = (long) deltaYears[i] << 32 | i;
+        }
+        Arrays.sort(keys);
+
+        int total = years.length + deltaCount;
+        int[] mergedYears = new int[total];
+        int[] mergedIds = new int[total];
+        int[] mergedEditions = withEditions ? new int[total] : null;
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < total; k++) {
+            int d = j < deltaCount ? (int) keys[j] : -1;
+            if (d < 0 || i < years.length && years[i] <= deltaYears[d]) {
+                mergedYears[k] = years[i];
+                mergedIds[k] = ids[i];
+                if (withEditions) {
+                    mergedEditions[k] = editions[i];
+                }
+                i++;
+            } else {
+                mergedYears[k] = deltaYears[d];
+                mergedIds[k] = deltaIds[d];
+                if (withEditions) {
+                    mergedEditions[k] = deltaEditions[d];
+                }
+                j++;
+            }
+        }
+        years = mergedYears;
+        ids = mergedIds;
+        editions = mergedEditions;
+        deltaCount = 0;
+    }
+
+    private static int lowerBound(int[] values, int key) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
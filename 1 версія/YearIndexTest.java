@@ -0,0 +1,114 @@
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+class YearIndexTest extends LibraryDriverTest {
+    static void runAll(Path dir) {
+        run("year ranges match a scan across merges", YearIndexTest::rangesMatchScan);
+        run("removed books leave every range", YearIndexTest::removalsLeaveRanges);
+        run("library year queries match its books", YearIndexTest::libraryQueriesMatchBooks);
+    }
+
+    private static void rangesMatchScan() {
+        Random random = new Random(4);
+        YearIndex index = new YearIndex(true);
+        List<Book> books = new ArrayList<>();
+        for (int id = 1; id <= 20_000; id++) {
+            Book book = book(random, id);
+            books.add(book);
+            index.add(book);
+            if (id % 997 == 0) {
+                checkRanges(random, index, books);
+            }
+        }
+        check(index.size() == books.size(), "every book indexed once: " + index.size());
+        checkRanges(random, index, books);
+        check(index.count(2100, 2200) == 0 && index.scan(2100, 2200).length == 0, "a range after every year");
+        check(index.count(1990, 1980) == 0 && index.scan(1990, 1980).length == 0, "an empty range");
+    }
+
+    private static void removalsLeaveRanges() {
+        Random random = new Random(5);
+        YearIndex index = new YearIndex(true);
+        List<Book> books = new ArrayList<>();
+        for (int id = 1; id <= 5_000; id++) {
+            Book book = book(random, id);
+            books.add(book);
+            index.add(book);
+        }
+        List<Book> removed = new ArrayList<>();
+        for (int i = books.size() - 1; i >= 0; i -= 3) {
+            removed.add(books.remove(i));
+        }
+        index.removeAll(removed);
+        check(index.size() == books.size(), "removed books are gone: " + index.size());
+        checkRanges(random, index, books);
+
+        YearIndex plain = new YearIndex(false);
+        plain.add(books.get(0));
+        try {
+            plain.scan(1900, 2000, 1);
+            throw new AssertionError("edition filter without the edition column");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    private static void libraryQueriesMatchBooks() {
+        Library library = new LibraryGenerator(6).stores(3).booksPerStore(1_500).readers(0).generate();
+        List<Book> books = new ArrayList<>();
+        for (BookStore bookStore : library.getBookStores()) {
+            books.addAll(bookStore.getBooks());
+        }
+        int[][] ranges = {{1900, 1950}, {1990, 1990}, {0, 3000}, {2100, 2200}};
+        for (int[] range : ranges) {
+            for (int edition = 0; edition <= 2; edition++) {
+                int[] expected = scan(books, range[0], range[1], edition);
+                int[] found = ids(library.findBooksPublished(range[0], range[1], edition));
+                Arrays.sort(found);
+                check(Arrays.equals(expected, found), Arrays.toString(range) + " edition " + edition);
+            }
+            check(library.countBooksPublished(range[0], range[1]) == scan(books, range[0], range[1], 0).length,
+                    "count for " + Arrays.toString(range));
+        }
+        Book book = new Book("Late", List.of(new Author("Ann", "Lee")), 1777, 3);
+        library.getBookStores().get(0).addBook(book);
+        check(library.countBooksPublished(1777, 1777) == 1, "a book added after the index was built");
+        check(library.findBooksPublished(1777, 1777, 3).equals(List.of(book)), "found with its edition");
+    }
+
+    private static void checkRanges(Random random, YearIndex index, List<Book> books) {
+        for (int i = 0; i < 20; i++) {
+            int from = 1895 + random.nextInt(140);
+            int to = from + random.nextInt(30);
+            int edition = random.nextInt(4);
+            int[] all = scan(books, from, to, 0);
+            check(index.count(from, to) == all.length, "count " + from + "-" + to);
+            int[] found = index.scan(from, to);
+            Arrays.sort(found);
+            check(Arrays.equals(all, found), "scan " + from + "-" + to);
+            found = index.scan(from, to, edition);
+            Arrays.sort(found);
+            check(Arrays.equals(scan(books, from, to, edition), found), "scan " + from + "-" + to + " edition " + edition);
+        }
+    }
+
+    private static int[] scan(List<Book> books, int fromYear, int toYear, int editionNumber) {
+        return books.stream()
+                .filter(book -> book.getPublicationYear() >= fromYear && book.getPublicationYear() <= toYear)
+                .filter(book -> editionNumber == 0 || book.getEditionNumber() == editionNumber)
+                .mapToInt(Book::getId).sorted().toArray();
+    }
+
+    private static int[] ids(List<Book> books) {
+        return books.stream().mapToInt(Book::getId).toArray();
+    }
+
+    private static Book book(Random random, int id) {
+        Book book = new Book("Title " + id, List.of(new Author("Ann", "Lee")), 1900 + random.nextInt(120),
+                1 + random.nextInt(3));
+        book.assignId(id);
+        return book;
+    }
+}
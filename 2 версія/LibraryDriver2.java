@@ -1,8 +1,16 @@
 import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+class Author implements Serializable {
+    private static final long serialVersionUID = 1L;
 
-class Author {
     private String name;
     private int yearOfBirth;
 
@@ -25,17 +33,27 @@ class Author {
     }
 }
 
-class Book {
+class Book implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static int nextId = 1;
+
+    private int id;
     private String title;
-    private transient Author author;
+    private Author author;
     private int edition;
 
     public Book(String title, Author author, int edition) {
+        this.id = nextId++;
         this.title = title;
         this.author = author;
         this.edition = edition;
     }
 
+    public int getId() {
+        return id;
+    }
+
     public String getTitle() {
         return title;
     }
@@ -48,16 +66,24 @@ class Book {
         return edition;
     }
 
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        nextId = Math.max(nextId, id + 1);
+    }
+
     @Override
     public String toString() {
-        return "Book: " + title + ", Authors: " + author + ", Edition: " + edition;
+        return ReportRenderer.render(renderer -> renderer.book(this));
     }
 }
 
-class BookReader {
+class BookReader implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     private String name;
     private transient int registrationNumber;
-    private List<Book> borrowedBooks;
+    private transient List<Book> borrowedBooks;
+    private transient int[] loanIds;
 
     public BookReader(String name, int registrationNumber) {
         this.name = name;
@@ -69,6 +95,10 @@ class BookReader {
         return name;
     }
 
+    public int getRegistrationNumber() {
+        return registrationNumber;
+    }
+
     public List<Book> getBorrowedBooks() {
         return borrowedBooks;
     }
@@ -77,9 +107,35 @@ class BookReader {
         borrowedBooks.add(book);
     }
 
+    void resolveLoans(Map<Integer, Book> catalog) throws InvalidObjectException {
+        for (int id : loanIds) {
+            Book book = catalog.get(id);
+            if (book == null) {
+                throw new InvalidObjectException("Reader " + name + " borrowed unknown book " + id);
+            }
+            borrowedBooks.add(book);
+        }
+        loanIds = null;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        int[] ids = new int[borrowedBooks.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = borrowedBooks.get(i).getId();
+        }
+        out.writeObject(ids);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        loanIds = (int[]) in.readObject();
+        borrowedBooks = new ArrayList<>(loanIds.length);
+    }
+
     @Override
     public String toString() {
-        return "Name: " + name + ", Registration Number: " + registrationNumber + "\nBorrowed Books: " + borrowedBooks;
+        return ReportRenderer.render(renderer -> renderer.reader(this));
     }
 }
 
@@ -110,7 +166,7 @@ class Bookshelf implements Serializable {
 
     @Override
     public String toString() {
-        return "\n" + name + ": " + books.size() + " books\nBooks in " + name + ": " + books;
+        return ReportRenderer.render(renderer -> renderer.shelf(this));
     }
 }
 
@@ -135,13 +191,13 @@ class LibraryStorage implements Serializable {
 
     @Override
     public String toString() {
-        return "Book Storages: " + shelves;
+        return ReportRenderer.render(renderer -> renderer.storage(this));
     }
 }
 
 class LibraryReport implements Serializable {
-    private transient LibraryStorage storage;
-    private transient List<BookReader> readers;
+    private LibraryStorage storage;
+    private List<BookReader> readers;
 
     public LibraryReport(LibraryStorage storage, List<BookReader> readers) {
         this.storage = storage;
@@ -158,27 +214,337 @@ class LibraryReport implements Serializable {
 
     @Override
     public String toString() {
-        StringBuilder report = new StringBuilder("Library Report:\n");
-        report.append(storage);
-        report.append("\nReaders:\n");
-
+        return ReportRenderer.render(renderer -> renderer.report(this));
+    }
 
-        if (readers != null) {
-            for (BookReader reader : readers) {
-                report.append(reader);
-                report.append("\n");
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (storage == null || readers == null) {
+            return;
+        }
+        Map<Integer, Book> catalog = new HashMap<>();
+        for (Bookshelf shelf : storage.getShelves()) {
+            for (Book book : shelf.getBooks()) {
+                catalog.put(book.getId(), book);
             }
-            report.append("Total Readers in the Library: ").append(readers.size());
+        }
+        for (BookReader reader : readers) {
+            reader.resolveLoans(catalog);
+        }
+    }
+
+}
+
+class ReportRenderer implements Flushable {
+    static final int DEFAULT_BUFFER_SIZE = 8_192;
+
+    private final Appendable out;
+    private final StringBuilder buffer;
+    private final int bufferSize;
+    private final long maxChars;
+    private long written;
+    private boolean truncated;
+
+    ReportRenderer(Appendable out) {
+        this(out, DEFAULT_BUFFER_SIZE, Long.MAX_VALUE);
+    }
+
+    ReportRenderer(Appendable out, int bufferSize, long maxChars) {
+        this.out = out;
+        this.bufferSize = bufferSize;
+        this.maxChars = maxChars;
+        this.buffer = new StringBuilder(bufferSize);
+    }
+
+    static String render(Section section) {
+        StringBuilder text = new StringBuilder();
+        try {
+            ReportRenderer renderer = new ReportRenderer(text);
+            section.render(renderer);
+            renderer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return text.toString();
+    }
+
+    boolean isTruncated() {
+        return truncated;
+    }
+
+    ReportRenderer book(Book book) throws IOException {
+        return append("Book: ").append(book.getTitle()).append(", Authors: ").append(String.valueOf(book.getAuthor()))
+                .append(", Edition: ").append(String.valueOf(book.getEdition()));
+    }
+
+    ReportRenderer reader(BookReader reader) throws IOException {
+        append("Name: ").append(reader.getName())
+                .append(", Registration Number: ").append(String.valueOf(reader.getRegistrationNumber()))
+                .append("\nBorrowed Books: [");
+        List<Book> books = reader.getBorrowedBooks();
+        for (int i = 0; i < books.size() && !truncated; i++) {
+            append(i > 0 ? ", " : "").book(books.get(i));
+        }
+        return append("]");
+    }
+
+    ReportRenderer shelf(Bookshelf shelf) throws IOException {
+        List<Book> books = shelf.getBooks();
+        append("\n").append(shelf.getName()).append(": ").append(String.valueOf(books.size()))
+                .append(" books\nBooks in ").append(shelf.getName()).append(": [");
+        for (int i = 0; i < books.size() && !truncated; i++) {
+            append(i > 0 ? ", " : "").book(books.get(i));
+        }
+        return append("]");
+    }
+
+    ReportRenderer storage(LibraryStorage storage) throws IOException {
+        append("Book Storages: [");
+        List<Bookshelf> shelves = storage.getShelves();
+        for (int i = 0; i < shelves.size() && !truncated; i++) {
+            append(i > 0 ? ", " : "").shelf(shelves.get(i));
+        }
+        return append("]");
+    }
+
+    ReportRenderer report(LibraryReport report) throws IOException {
+        append("Library Report:\n");
+        if (report.getStorage() != null) {
+            storage(report.getStorage());
         } else {
-            report.append("No readers in the library.");
+            append("null");
+        }
+        append("\nReaders:\n");
+        List<BookReader> readers = report.getReaders();
+        if (readers == null) {
+            return append("No readers in the library.");
+        }
+        for (int cursor = 0; cursor >= 0; ) {
+            cursor = readers(readers, cursor, Integer.MAX_VALUE);
+        }
+        return append("Total Readers in the Library: ").append(String.valueOf(readers.size()));
+    }
+
+    int readers(List<BookReader> readers, int cursor, int pageSize) throws IOException {
+        int end = (int) Math.min(readers.size(), (long) cursor + pageSize);
+        for (int i = cursor; i < end && !truncated; i++) {
+            reader(readers.get(i)).append("\n");
+        }
+        return end < readers.size() && !truncated ? end : -1;
+    }
+
+    ReportRenderer append(String text) throws IOException {
+        if (truncated) {
+            return this;
+        }
+        if (text == null) {
+            text = "null";
+        }
+        if (written + text.length() > maxChars) {
+            buffer.append(text, 0, (int) (maxChars - written));
+            buffer.append("\n... output truncated after ").append(maxChars).append(" characters\n");
+            written = maxChars;
+            truncated = true;
+            flush();
+            return this;
+        }
+        buffer.append(text);
+        written += text.length();
+        if (buffer.length() >= bufferSize) {
+            drain();
+        }
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        drain();
+        if (out instanceof Flushable) {
+            ((Flushable) out).flush();
+        }
+    }
+
+    private void drain() throws IOException {
+        if (buffer.length() > 0) {
+            out.append(buffer);
+            buffer.setLength(0);
+        }
+    }
+
+    interface Section {
+        void render(ReportRenderer renderer) throws IOException;
+    }
+}
+
+class SerializationBenchmark {
+    interface Format {
+        String name();
+
+        void write(LibraryReport report, Path file) throws IOException;
+
+        LibraryReport read(Path file) throws IOException;
+    }
+
+    static final List<Format> FORMATS = List.of(
+            new Format() {
+                @Override
+                public String name() {
+                    return "java-serialization";
+                }
+
+                @Override
+                public void write(LibraryReport report, Path file) throws IOException {
+                    try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+                        oos.writeObject(report);
+                    }
+                }
+
+                @Override
+                public LibraryReport read(Path file) throws IOException {
+                    try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                        return (LibraryReport) ois.readObject();
+                    } catch (ClassNotFoundException e) {
+                        throw new IOException(e);
+                    }
+                }
+            });
+
+    private static final int WARMUP_ITERATIONS = 2;
+    private static final int MEASURED_ITERATIONS = 5;
+
+    public static void main(String[] args) throws IOException {
+        int[] sizes = args.length > 0 ? parseSizes(args[0]) : new int[]{1_000, 10_000, 100_000};
+        int readers = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+
+        boolean underReported = false;
+        Path directory = Files.createTempDirectory("library-benchmark");
+        System.out.printf("%-26s %10s %12s %12s %12s %14s %14s%n", "format", "books", "bytes",
+                "write ms/op", "read ms/op", "write MB/op", "read MB/op");
+        for (int size : sizes) {
+            LibraryReport report = buildReport(size, readers);
+            for (Format format : FORMATS) {
+                Path file = directory.resolve(format.name());
+                Result write = measure(() -> format.write(report, file));
+                long bytes = Files.size(file);
+                Result read = measure(() -> format.read(file));
+                System.out.printf("%-26s %10d %12d %12.2f %12.2f %13.2f%s %13.2f%s%n", format.name(), size, bytes,
+                        write.millisPerOp, read.millisPerOp, write.allocatedMegabytesPerOp, marker(write),
+                        read.allocatedMegabytesPerOp, marker(read));
+                underReported |= write.exitedThreads > 0 || read.exitedThreads > 0;
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+        if (underReported) {
+            System.out.println("* threads exited during the measurement; what they allocated is missing from MB/op");
+        }
+    }
+
+    private static String marker(Result result) {
+        return result.exitedThreads > 0 ? "*" : " ";
+    }
+
+    static LibraryReport buildReport(int books, int readers) {
+        Random random = new Random(42);
+        LibraryStorage storage = new LibraryStorage();
+        int shelfCount = Math.max(1, books / 10_000);
+        int authorCount = Math.max(1, books / 50);
+        Author[] authors = new Author[authorCount];
+        for (int i = 0; i < authorCount; i++) {
+            authors[i] = new Author("Author " + i, 1900 + random.nextInt(100));
+        }
+        for (int i = 0; i < shelfCount; i++) {
+            storage.addShelf(new Bookshelf("Shelf " + i));
         }
+        List<Book> catalog = new ArrayList<>(books);
+        for (int i = 0; i < books; i++) {
+            Book book = new Book("Title " + i, authors[random.nextInt(authorCount)], 1 + random.nextInt(5));
+            storage.getShelves().get(i % shelfCount).addBook(book);
+            catalog.add(book);
+        }
+        List<BookReader> bookReaders = new ArrayList<>(readers);
+        for (int i = 0; i < readers; i++) {
+            BookReader reader = new BookReader("Reader " + i, i + 1);
+            for (int j = 0; j < 3 && !catalog.isEmpty(); j++) {
+                reader.borrowBook(catalog.get(random.nextInt(catalog.size())));
+            }
+            bookReaders.add(reader);
+        }
+        return new LibraryReport(storage, bookReaders);
+    }
 
-        return report.toString();
+    // Allocation is summed per thread, so pool workers count too. A thread that exits before the end of the
+    // measurement takes its counter with it; exitedThreads says how many did.
+    private static Result measure(Operation operation) throws IOException {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            operation.run();
+        }
+        System.gc();
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long startedBefore = threads.getTotalStartedThreadCount();
+        Map<Long, Long> allocatedBefore = allocatedBytes(threads);
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            operation.run();
+        }
+        Result result = new Result();
+        result.millisPerOp = (System.nanoTime() - start) / 1e6 / MEASURED_ITERATIONS;
+        Map<Long, Long> allocatedAfter = allocatedBytes(threads);
+        long startedDuring = threads.getTotalStartedThreadCount() - startedBefore;
+
+        long allocated = 0;
+        long survivors = 0;
+        for (Map.Entry<Long, Long> entry : allocatedAfter.entrySet()) {
+            Long before = allocatedBefore.get(entry.getKey());
+            allocated += entry.getValue() - (before != null ? before : 0);
+            if (before != null) {
+                survivors++;
+            }
+        }
+        long startedAndAlive = allocatedAfter.size() - survivors;
+        result.exitedThreads = (int) (allocatedBefore.size() - survivors + startedDuring - startedAndAlive);
+        result.allocatedMegabytesPerOp = allocated / (1024.0 * 1024.0) / MEASURED_ITERATIONS;
+        return result;
     }
 
+    private static Map<Long, Long> allocatedBytes(java.lang.management.ThreadMXBean threads) {
+        Map<Long, Long> allocated = new HashMap<>();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return allocated;
+        }
+        long[] ids = threads.getAllThreadIds();
+        long[] bytes = ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(ids);
+        for (int i = 0; i < ids.length; i++) {
+            if (bytes[i] >= 0) {
+                allocated.put(ids[i], bytes[i]);
+            }
+        }
+        return allocated;
+    }
+
+    private static int[] parseSizes(String sizes) {
+        String[] parts = sizes.split(",");
+        int[] result = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            result[i] = Integer.parseInt(parts[i].trim());
+        }
+        return result;
+    }
+
+    private interface Operation {
+        void run() throws IOException;
+    }
+
+    private static class Result {
+        double millisPerOp;
+        double allocatedMegabytesPerOp;
+        int exitedThreads;
+    }
 }
 
 public class LibraryDriver2 {
+    private static final long REPORT_LIMIT = 1_000_000;
+
     public static void main(String[] args) {
 
         Author author1 = new Author("John Doe", 2022);
@@ -239,15 +605,25 @@ public class LibraryDriver2 {
         LibraryReport restoredReport = deserializeLibraryReport();
         if (restoredReport != null) {
             System.out.println("Original Report:");
-            System.out.println(report);
+            printReport(report);
             System.out.println("\nRestored Report:");
-            System.out.println(restoredReport);
+            printReport(restoredReport);
         } else {
             System.out.println("Failed to restore report!");
         }
     }
 
 
+    private static void printReport(LibraryReport report) {
+        ReportRenderer renderer = new ReportRenderer(System.out, ReportRenderer.DEFAULT_BUFFER_SIZE, REPORT_LIMIT);
+        try {
+            renderer.report(report).append("\n").flush();
+        } catch (IOException e) {
+            System.out.println("Report rendering failed: " + e.getMessage());
+        }
+    }
+
+
     private static void serializeLibraryReport(LibraryReport report) {
         try (ObjectOutputStream outputStream = new ObjectOutputStream(new FileOutputStream("library_report.ser"))) {
             outputStream.writeObject(report);
@@ -0,0 +1,8 @@
+class Author extends Human {
+    public Author() {
+    }
+
+    public Author(String firstName, String lastName) {
+        super(firstName, lastName);
+    }
+}
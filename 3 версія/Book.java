@@ -0,0 +1,77 @@
+import java.io.*;
+import java.util.List;
+
+class Book implements Externalizable {
+    private String title;
+    private List<Author> authors;
+    private int publicationYear;
+    private int editionNumber;
+    private String storageName;
+
+    public Book() {
+    }
+
+    public Book(String title, List<Author> authors, int publicationYear, int editionNumber) {
+        this.title = title;
+        this.authors = authors;
+        this.publicationYear = publicationYear;
+        this.editionNumber = editionNumber;
+    }
+
+    public Book(String title, List<Author> authors, int publicationYear, int editionNumber, String storageName) {
+        this(title, authors, publicationYear, editionNumber);
+        this.storageName = storageName;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeObject(title);
+        out.writeObject(authors);
+        out.writeInt(publicationYear);
+        out.writeInt(editionNumber);
+        out.writeObject(storageName);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        title = (String) in.readObject();
+        authors = (List<Author>) in.readObject();
+        publicationYear = in.readInt();
+        editionNumber = in.readInt();
+        storageName = (String) in.readObject();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder authorsString = new StringBuilder();
+        for (Author author : authors) {
+            authorsString.append(author).append(", ");
+        }
+        authorsString.delete(authorsString.length() - 2, authorsString.length());
+
+        String storageInfo = (storageName != null) ? ", Storage: " + storageName : "";
+
+        return "Book: " + title + ", Authors: " + authorsString + ", Year: " + publicationYear +
+                ", Edition: " + editionNumber + storageInfo;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public List<Author> getAuthors() {
+        return authors;
+    }
+
+    public int getPublicationYear() {
+        return publicationYear;
+    }
+
+    public int getEditionNumber() {
+        return editionNumber;
+    }
+
+    public String getStorageName() {
+        return storageName;
+    }
+}
@@ -0,0 +1,48 @@
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+class BookReader extends Human implements Externalizable {
+    private int registrationNumber;
+    private List<Book> borrowedBooks;
+
+    public BookReader() {
+    }
+
+    public BookReader(String firstName, String lastName, int registrationNumber) {
+        super(firstName, lastName);
+        this.registrationNumber = registrationNumber;
+        this.borrowedBooks = new ArrayList<>();
+    }
+
+    public int getRegistrationNumber() {
+        return registrationNumber;
+    }
+
+    public List<Book> getBorrowedBooks() {
+        return borrowedBooks;
+    }
+
+    public void borrowBook(Book book) {
+        borrowedBooks.add(book);
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeInt(registrationNumber);
+        out.writeObject(borrowedBooks);
+        super.writeExternal(out);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        registrationNumber = in.readInt();
+        borrowedBooks = (List<Book>) in.readObject();
+        super.readExternal(in);
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + ", Registration Number: " + registrationNumber + "\nBorrowed Books: " + borrowedBooks;
+    }
+}
@@ -0,0 +1,41 @@
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+class BookStore implements Externalizable {
+    private String storeName;
+    private List<Book> books;
+
+    public BookStore() {
+    }
+
+    public BookStore(String storeName) {
+        this.storeName = storeName;
+        this.books = new ArrayList<>();
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeObject(storeName);
+        out.writeObject(books);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        storeName = (String) in.readObject();
+        books = (List<Book>) in.readObject();
+    }
+
+    public String getStoreName() {
+        return storeName;
+    }
+
+    public List<Book> getBooks() {
+        return books;
+    }
+
+    @Override
+    public String toString() {
+        return "Store: " + storeName + "\nBooks: " + books;
+    }
+}
@@ -0,0 +1,217 @@
+import java.io.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+class CatalogDictionary {
+    private static final int NO_STORAGE = 0;
+    private static final int STORE_STORAGE = 1;
+
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    private final List<Author> authors = new ArrayList<>();
+    private final Map<String, Integer> authorIds = new HashMap<>();
+
+    static CatalogDictionary of(Library library) {
+        CatalogDictionary dictionary = new CatalogDictionary();
+        dictionary.intern(library.getLibraryName());
+        for (BookStore bookStore : library.getBookStores()) {
+            dictionary.intern(bookStore.getStoreName());
+            for (Book book : bookStore.getBooks()) {
+                dictionary.intern(book);
+            }
+        }
+        for (BookReader reader : library.getReaders()) {
+            dictionary.intern(reader.getFirstName());
+            dictionary.intern(reader.getLastName());
+            for (Book book : reader.getBorrowedBooks()) {
+                dictionary.intern(book);
+            }
+        }
+        return dictionary;
+    }
+
+    static CatalogDictionary readFrom(ObjectInput in) throws IOException {
+        CatalogDictionary dictionary = new CatalogDictionary();
+        int stringCount = readVarInt(in);
+        for (int i = 0; i < stringCount; i++) {
+            dictionary.strings.add(in.readUTF());
+        }
+        int authorCount = readVarInt(in);
+        for (int i = 0; i < authorCount; i++) {
+            dictionary.authors.add(new Author(dictionary.readString(in), dictionary.readString(in)));
+        }
+        return dictionary;
+    }
+
+    void writeTo(ObjectOutput out) throws IOException {
+        writeVarInt(out, strings.size());
+        for (String value : strings) {
+            out.writeUTF(value);
+        }
+        writeVarInt(out, authors.size());
+        for (Author author : authors) {
+            writeString(out, author.getFirstName());
+            writeString(out, author.getLastName());
+        }
+    }
+
+    void writeString(ObjectOutput out, String value) throws IOException {
+        writeVarInt(out, value == null ? 0 : stringIds.get(value) + 1);
+    }
+
+    String readString(ObjectInput in) throws IOException {
+        int id = readVarInt(in);
+        return id == 0 ? null : strings.get(id - 1);
+    }
+
+    void writeStore(ObjectOutput out, BookStore bookStore) throws IOException {
+        writeString(out, bookStore.getStoreName());
+        writeVarInt(out, bookStore.getBooks().size());
+        for (Book book : bookStore.getBooks()) {
+            writeBook(out, book, bookStore.getStoreName());
+        }
+    }
+
+    BookStore readStore(ObjectInput in) throws IOException {
+        BookStore bookStore = new BookStore(readString(in));
+        int bookCount = readVarInt(in);
+        List<Book> books = bookStore.getBooks();
+        for (int i = 0; i < bookCount; i++) {
+            books.add(readBook(in, bookStore.getStoreName()));
+        }
+        return bookStore;
+    }
+
+    void writeBook(ObjectOutput out, Book book, String storeName) throws IOException {
+        writeString(out, book.getTitle());
+        writeVarInt(out, book.getAuthors().size());
+        for (Author author : book.getAuthors()) {
+            writeVarInt(out, authorIds.get(authorKey(author)));
+        }
+        writeVarInt(out, zigZag(book.getPublicationYear()));
+        writeVarInt(out, zigZag(book.getEditionNumber()));
+        String storageName = book.getStorageName();
+        if (storageName == null) {
+            writeVarInt(out, NO_STORAGE);
+        } else if (storageName.equals(storeName)) {
+            writeVarInt(out, STORE_STORAGE);
+        } else {
+            writeVarInt(out, stringIds.get(storageName) + 2);
+        }
+    }
+
+    Book readBook(ObjectInput in, String storeName) throws IOException {
+        String title = readString(in);
+        Author[] bookAuthors = new Author[readVarInt(in)];
+        for (int i = 0; i < bookAuthors.length; i++) {
+            bookAuthors[i] = authors.get(readVarInt(in));
+        }
+        int publicationYear = unZigZag(readVarInt(in));
+        int editionNumber = unZigZag(readVarInt(in));
+        int storage = readVarInt(in);
+        String storageName = storage == NO_STORAGE ? null : storage == STORE_STORAGE ? storeName : strings.get(storage - 2);
+        return new Book(title, List.of(bookAuthors), publicationYear, editionNumber, storageName);
+    }
+
+    void writeReaders(ObjectOutput out, Library library) throws IOException {
+        Map<Book, int[]> positions = new IdentityHashMap<>();
+        List<BookStore> bookStores = library.getBookStores();
+        for (int i = 0; i < bookStores.size(); i++) {
+            List<Book> books = bookStores.get(i).getBooks();
+            for (int j = 0; j < books.size(); j++) {
+                positions.putIfAbsent(books.get(j), new int[]{i, j});
+            }
+        }
+
+        writeVarInt(out, library.getReaders().size());
+        for (BookReader reader : library.getReaders()) {
+            writeString(out, reader.getFirstName());
+            writeString(out, reader.getLastName());
+            out.writeInt(reader.getRegistrationNumber());
+            writeVarInt(out, reader.getBorrowedBooks().size());
+            for (Book book : reader.getBorrowedBooks()) {
+                int[] position = positions.get(book);
+                if (position != null) {
+                    writeVarInt(out, position[0] + 1);
+                    writeVarInt(out, position[1]);
+                } else {
+                    writeVarInt(out, 0);
+                    writeBook(out, book, null);
+                }
+            }
+        }
+    }
+
+    void readReaders(ObjectInput in, Library library) throws IOException {
+        int readerCount = readVarInt(in);
+        for (int i = 0; i < readerCount; i++) {
+            BookReader reader = new BookReader(readString(in), readString(in), in.readInt());
+            int loanCount = readVarInt(in);
+            for (int j = 0; j < loanCount; j++) {
+                int store = readVarInt(in);
+                if (store > 0) {
+                    reader.borrowBook(library.getBookStores().get(store - 1).getBooks().get(readVarInt(in)));
+                } else {
+                    reader.borrowBook(readBook(in, null));
+                }
+            }
+            library.addReader(reader);
+        }
+    }
+
+    static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new StreamCorruptedException("Malformed varint");
+    }
+
+    private void intern(Book book) {
+        intern(book.getTitle());
+        intern(book.getStorageName());
+        for (Author author : book.getAuthors()) {
+            String key = authorKey(author);
+            if (!authorIds.containsKey(key)) {
+                intern(author.getFirstName());
+                intern(author.getLastName());
+                authorIds.put(key, authors.size());
+                authors.add(author);
+            }
+        }
+    }
+
+    private void intern(String value) {
+        if (value != null && !stringIds.containsKey(value)) {
+            stringIds.put(value, strings.size());
+            strings.add(value);
+        }
+    }
+
+    private static String authorKey(Author author) {
+        return author.getFirstName() + '\u0000' + author.getLastName();
+    }
+
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
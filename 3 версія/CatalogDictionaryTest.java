@@ -0,0 +1,86 @@
+import java.io.*;
+import java.nio.file.Path;
+import java.util.List;
+
+class CatalogDictionaryTest extends LibraryDriver3Test {
+    static void runAll(Path dir) {
+        run("externalized library round-trips", CatalogDictionaryTest::externalizedLibraryRoundTrips);
+        run("externalized authors load as one instance", CatalogDictionaryTest::authorsLoadInterned);
+        run("externalized loans point at stored books", CatalogDictionaryTest::loansPointAtStoredBooks);
+        run("each repeated string is written once", CatalogDictionaryTest::repeatedStringsWrittenOnce);
+    }
+
+    private static void externalizedLibraryRoundTrips() throws Exception {
+        Library library = new LibraryGenerator(21).stores(3).booksPerStore(100).authorsPerBook(2).authorPool(25)
+                .readers(30).loansPerReader(2).generate();
+        BookStore odd = new BookStore("Odd");
+        library.getBookStores().add(odd);
+        odd.getBooks().add(new Book(null, List.of(new Author(null, "Lee")), -50, 0, "Elsewhere"));
+        library.addReader(new BookReader("Di", null, 99));
+
+        assertSameLibrary(library, roundTrip(library));
+    }
+
+    private static void authorsLoadInterned() throws Exception {
+        Library library = new Library("Authors");
+        BookStore first = new BookStore("First");
+        BookStore second = new BookStore("Second");
+        library.getBookStores().add(first);
+        library.getBookStores().add(second);
+        first.getBooks().add(new Book("One", List.of(new Author("Ann", "Lee")), 2001, 1));
+        second.getBooks().add(new Book("Two", List.of(new Author("Ann", "Lee"), new Author("Bo", "Ray")), 2002, 1));
+
+        Library loaded = roundTrip(library);
+        Author one = loaded.getBookStores().get(0).getBooks().get(0).getAuthors().get(0);
+        List<Author> two = loaded.getBookStores().get(1).getBooks().get(0).getAuthors();
+        check(one == two.get(0), "equal authors in different stores load as one instance");
+        check(two.get(1).getLastName().equals("Ray"), "other authors keep their names");
+    }
+
+    private static void loansPointAtStoredBooks() throws Exception {
+        Library library = new Library("Loans");
+        BookStore main = new BookStore("Main");
+        library.getBookStores().add(main);
+        Book stored = new Book("Stored", List.of(new Author("Ann", "Lee")), 2001, 1);
+        main.getBooks().add(new Book("Other", List.of(new Author("Bo", "Ray")), 2002, 1));
+        main.getBooks().add(stored);
+        BookReader reader = new BookReader("Di", "Fox", 7);
+        library.addReader(reader);
+        reader.borrowBook(stored);
+        reader.borrowBook(new Book("Loose", List.of(new Author("Cy", "Day")), 2003, 1));
+
+        Library loaded = roundTrip(library);
+        List<Book> loans = loaded.getReader(7).getBorrowedBooks();
+        check(loans.get(0) == loaded.getBookStores().get(0).getBooks().get(1), "a stored loan resolves by position");
+        check(loans.get(1).getTitle().equals("Loose"), "a loose loan is written inline");
+    }
+
+    private static void repeatedStringsWrittenOnce() throws Exception {
+        String title = "A title long enough to stand out in the stream";
+        Library once = new Library("Strings");
+        Library many = new Library("Strings");
+        for (Library library : List.of(once, many)) {
+            library.getBookStores().add(new BookStore("Main"));
+        }
+        once.getBookStores().get(0).getBooks().add(new Book(title, List.of(new Author("Ann", "Lee")), 2001, 1));
+        for (int i = 0; i < 100; i++) {
+            many.getBookStores().get(0).getBooks().add(new Book(title, List.of(new Author("Ann", "Lee")), 2001, 1));
+        }
+        int perBook = (serialize(many).length - serialize(once).length) / 99;
+        check(perBook < title.length() / 4, "a repeated book costs " + perBook + " bytes");
+    }
+
+    private static Library roundTrip(Library library) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialize(library)))) {
+            return (Library) in.readObject();
+        }
+    }
+
+    private static byte[] serialize(Library library) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(library);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,83 @@
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+class Library implements Externalizable {
+    private static final int EXTERNAL_VERSION = 2;
+
+    private String libraryName;
+    private List<BookStore> bookStores;
+    private ReaderRegistry readers;
+
+    public Library() {
+    }
+
+    public Library(String libraryName) {
+        this.libraryName = libraryName;
+        this.bookStores = new ArrayList<>();
+        this.readers = new ReaderRegistry();
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        CatalogDictionary dictionary = CatalogDictionary.of(this);
+        out.writeInt(EXTERNAL_VERSION);
+        dictionary.writeTo(out);
+        dictionary.writeString(out, libraryName);
+        CatalogDictionary.writeVarInt(out, bookStores.size());
+        for (BookStore bookStore : bookStores) {
+            dictionary.writeStore(out, bookStore);
+        }
+        dictionary.writeReaders(out, this);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        int version = in.readInt();
+        if (version != EXTERNAL_VERSION) {
+            throw new InvalidClassException(Library.class.getName(), "Unsupported external version " + version);
+        }
+        CatalogDictionary dictionary = CatalogDictionary.readFrom(in);
+        libraryName = dictionary.readString(in);
+        int storeCount = CatalogDictionary.readVarInt(in);
+        bookStores = new ArrayList<>(storeCount);
+        readers = new ReaderRegistry();
+        for (int i = 0; i < storeCount; i++) {
+            bookStores.add(dictionary.readStore(in));
+        }
+        dictionary.readReaders(in, this);
+    }
+
+    public String getLibraryName() {
+        return libraryName;
+    }
+
+    public List<BookStore> getBookStores() {
+        return bookStores;
+    }
+
+    public List<BookReader> getReaders() {
+        return readers.asList();
+    }
+
+    public boolean addReader(BookReader reader) {
+        return readers.add(reader);
+    }
+
+    public BookReader getReader(int registrationNumber) {
+        return readers.get(registrationNumber);
+    }
+
+    public BookReader removeReader(int registrationNumber) {
+        return readers.remove(registrationNumber);
+    }
+
+    ReaderRegistry getReaderRegistry() {
+        return readers;
+    }
+
+    @Override
+    public String toString() {
+        return "Library: " + libraryName + "\nBook Stores: " + bookStores + "\nReaders: " + readers.asList();
+    }
+}
@@ -1,227 +1,17 @@
 import java.io.*;
-import java.util.ArrayList;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Scanner;
 
-abstract class Human implements Externalizable {
-    private String firstName;
-    private String lastName;
-
-    public Human() {
-    }
-
-    public Human(String firstName, String lastName) {
-        this.firstName = firstName;
-        this.lastName = lastName;
-    }
-
-    @Override
-    public void writeExternal(ObjectOutput out) throws IOException {
-        out.writeObject(firstName);
-        out.writeObject(lastName);
-    }
-
-    @Override
-    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
-        firstName = (String) in.readObject();
-        lastName = (String) in.readObject();
-    }
-
-    @Override
-    public String toString() {
-        return "Name: " + firstName + " " + lastName;
-    }
-}
-
-class Author extends Human {
-    public Author() {
-    }
-
-    public Author(String firstName, String lastName) {
-        super(firstName, lastName);
-    }
-}
-
-class Book implements Externalizable {
-    private String title;
-    private List<Author> authors;
-    private int publicationYear;
-    private int editionNumber;
-    private String storageName;
-
-    public Book() {
-    }
-
-    public Book(String title, List<Author> authors, int publicationYear, int editionNumber) {
-        this.title = title;
-        this.authors = authors;
-        this.publicationYear = publicationYear;
-        this.editionNumber = editionNumber;
-    }
-
-    public Book(String title, List<Author> authors, int publicationYear, int editionNumber, String storageName) {
-        this(title, authors, publicationYear, editionNumber);
-        this.storageName = storageName;
-    }
-
-    @Override
-    public void writeExternal(ObjectOutput out) throws IOException {
-        out.writeObject(title);
-        out.writeObject(authors);
-        out.writeInt(publicationYear);
-        out.writeInt(editionNumber);
-        out.writeObject(storageName);
-    }
-
-    @Override
-    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
-        title = (String) in.readObject();
-        authors = (List<Author>) in.readObject();
-        publicationYear = in.readInt();
-        editionNumber = in.readInt();
-        storageName = (String) in.readObject();
-    }
-
-    @Override
-    public String toString() {
-        StringBuilder authorsString = new StringBuilder();
-        for (Author author : authors) {
-            authorsString.append(author).append(", ");
-        }
-        authorsString.delete(authorsString.length() - 2, authorsString.length());
-
-        String storageInfo = (storageName != null) ? ", Storage: " + storageName : "";
-
-        return "Book: " + title + ", Authors: " + authorsString + ", Year: " + publicationYear +
-                ", Edition: " + editionNumber + storageInfo;
-    }
-
-    public String getStorageName() {
-        return storageName;
-    }
-}
-
-class BookStore implements Externalizable {
-    private String storeName;
-    private List<Book> books;
-
-    public BookStore() {
-    }
-
-    public BookStore(String storeName) {
-        this.storeName = storeName;
-        this.books = new ArrayList<>();
-    }
-
-    @Override
-    public void writeExternal(ObjectOutput out) throws IOException {
-        out.writeObject(storeName);
-        out.writeObject(books);
-    }
-
-    @Override
-    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
-        storeName = (String) in.readObject();
-        books = (List<Book>) in.readObject();
-    }
-
-    public String getStoreName() {
-        return storeName;
-    }
-
-    public List<Book> getBooks() {
-        return books;
-    }
-
-    @Override
-    public String toString() {
-        return "Store: " + storeName + "\nBooks: " + books;
-    }
-}
-
-class BookReader extends Human implements Externalizable {
-    private int registrationNumber;
-    private List<Book> borrowedBooks;
-
-    public BookReader() {
-    }
-
-    public BookReader(String firstName, String lastName, int registrationNumber) {
-        super(firstName, lastName);
-        this.registrationNumber = registrationNumber;
-        this.borrowedBooks = new ArrayList<>();
-    }
-
-    public void borrowBook(Book book) {
-        borrowedBooks.add(book);
-    }
-
-    @Override
-    public void writeExternal(ObjectOutput out) throws IOException {
-        out.writeInt(registrationNumber);
-        out.writeObject(borrowedBooks);
-        super.writeExternal(out);
-    }
-
-    @Override
-    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
-        registrationNumber = in.readInt();
-        borrowedBooks = (List<Book>) in.readObject();
-        super.readExternal(in);
-    }
-
-    @Override
-    public String toString() {
-        return super.toString() + ", Registration Number: " + registrationNumber + "\nBorrowed Books: " + borrowedBooks;
-    }
-}
-
-class Library implements Externalizable {
-    private String libraryName;
-    private List<BookStore> bookStores;
-    private List<BookReader> readers;
-
-    public Library() {
-    }
-
-    public Library(String libraryName) {
-        this.libraryName = libraryName;
-        this.bookStores = new ArrayList<>();
-        this.readers = new ArrayList<>();
-    }
-
-    @Override
-    public void writeExternal(ObjectOutput out) throws IOException {
-        out.writeObject(libraryName);
-        out.writeObject(bookStores);
-        out.writeObject(readers);
-    }
-
-    @Override
-    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
-        libraryName = (String) in.readObject();
-        bookStores = (List<BookStore>) in.readObject();
-        readers = (List<BookReader>) in.readObject();
-    }
-
-    public List<BookStore> getBookStores() {
-        return bookStores;
-    }
-
-    public List<BookReader> getReaders() {
-        return readers;
-    }
-
-    @Override
-    public String toString() {
-        return "Library: " + libraryName + "\nBook Stores: " + bookStores + "\nReaders: " + readers;
-    }
-}
-
 public class LibraryDriver3 {
     private static final Scanner scanner = new Scanner(System.in);
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0) {
+            runCommand(args);
+            return;
+        }
+
         Author author1 = new Author("John", "Doe");
         Author author2 = new Author("Jane", "Smith");
 
@@ -251,7 +41,7 @@ public class LibraryDriver3 {
 
         Library library = new Library("City Library");
         library.getBookStores().add(bookStore);
-        library.getReaders().add(reader1);
+        library.addReader(reader1);
         library.getBookStores().add(adventureBooks);
         library.getBookStores().add(mysteryNovels);
         library.getBookStores().add(fantasyLibrary);
@@ -279,11 +69,38 @@ public class LibraryDriver3 {
                     showTotalReaders(library);
                     break;
                 case 3:
-                    serializeLibrary(library, "library.ser");
+                    switch (chooseFormat()) {
+                        case 1:
+                            serializeLibrary(library, "library.ser");
+                            break;
+                        case 2:
+                            saveSnapshot(library, "library.snap");
+                            break;
+                        case 3:
+                            saveSegmentedSnapshot(library, "library.seg");
+                            break;
+                        default:
+                            System.out.println("Invalid choice. Please try again.");
+                    }
                     break;
                 case 4:
-                    library = deserializeLibrary("library.ser");
-                    if (library != null) {
+                    Library loaded;
+                    switch (chooseFormat()) {
+                        case 1:
+                            loaded = deserializeLibrary("library.ser");
+                            break;
+                        case 2:
+                            loaded = loadSnapshot("library.snap");
+                            break;
+                        case 3:
+                            loaded = loadSegmentedSnapshot("library.seg");
+                            break;
+                        default:
+                            loaded = null;
+                            System.out.println("Invalid choice. Please try again.");
+                    }
+                    if (loaded != null) {
+                        library = loaded;
                         System.out.println("Library deserialized successfully.");
                     }
                     break;
@@ -299,6 +116,38 @@ public class LibraryDriver3 {
         } while (choice != 6);
     }
 
+    private static void runCommand(String[] args) throws IOException {
+        switch (args[0]) {
+            case "--generate-script":
+                ScriptedLoadDriver.generateScript(Paths.get(args[1]), Integer.parseInt(args[2]),
+                        args.length > 3 ? Integer.parseInt(args[3]) : 10, args.length > 4 ? Long.parseLong(args[4]) : 42);
+                System.out.println("Script written to " + args[1]);
+                break;
+            case "--load":
+                int stores = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+                Library library = new LibraryGenerator(args.length > 5 ? Long.parseLong(args[5]) : 42)
+                        .stores(stores)
+                        .booksPerStore(args.length > 4 ? Integer.parseInt(args[4]) : 1_000)
+                        .generate();
+                ScriptedLoadDriver.run(library, Paths.get(args[1]),
+                        args.length > 2 ? Double.parseDouble(args[2]) : 0, System.out);
+                break;
+            default:
+                System.out.println("Usage: LibraryDriver3 [--generate-script <file> <operations> [stores] [seed]]");
+                System.out.println("                      [--load <file> [opsPerSecond] [stores] [booksPerStore] [seed]]");
+        }
+    }
+
+    private static int chooseFormat() {
+        System.out.println("Choose format:");
+        System.out.println("1) Java Serialization (library.ser)");
+        System.out.println("2) Binary Snapshot (library.snap)");
+        System.out.println("3) Segmented Snapshot (library.seg)");
+        int choice = scanner.nextInt();
+        scanner.nextLine();
+        return choice;
+    }
+
     private static void showTotalReaders(Library library) {
         int totalReaders = library.getReaders().size();
         System.out.println("Total Readers in the Library: " + totalReaders);
@@ -327,17 +176,10 @@ public class LibraryDriver3 {
         System.out.print("Enter the name of the new Book Storage: ");
         String storageName = scanner.nextLine();
 
-
-        for (BookStore existingStore : library.getBookStores()) {
-            if (existingStore.getStoreName().equals(storageName)) {
-                System.out.println("Error: Storage with this name already exists.");
-                return;
-            }
+        if (addStorage(library, storageName) == null) {
+            System.out.println("Error: Storage with this name already exists.");
+            return;
         }
-
-
-        BookStore newStorage = new BookStore(storageName);
-        library.getBookStores().add(newStorage);
         System.out.println("Storage added successfully: " + storageName);
     }
 
@@ -358,30 +200,11 @@ public class LibraryDriver3 {
         System.out.print("Enter the name of the Book Storage: ");
         String storageName = scanner.nextLine();
 
-
-        boolean storageExists = false;
-        for (BookStore bookStore : library.getBookStores()) {
-            if (bookStore.getStoreName().equals(storageName)) {
-                storageExists = true;
-                break;
-            }
-        }
-
-        if (!storageExists) {
+        if (addBook(library, title, authorFirstName, authorLastName, publicationYear, editionNumber, storageName) == null) {
             System.out.println("Error: The specified storage does not exist.");
             return;
         }
-
-
-        for (BookStore bookStore : library.getBookStores()) {
-            if (bookStore.getStoreName().equals(storageName)) {
-                Author author = new Author(authorFirstName, authorLastName);
-                Book book = new Book(title, List.of(author), publicationYear, editionNumber, storageName);
-                bookStore.getBooks().add(book);
-                System.out.println("Book added successfully to storage: " + storageName);
-                return;
-            }
-        }
+        System.out.println("Book added successfully to storage: " + storageName);
     }
 
 
@@ -394,12 +217,41 @@ public class LibraryDriver3 {
         System.out.print("Registration Number: ");
         int registrationNumber = scanner.nextInt();
 
-        BookReader reader = new BookReader(firstName, lastName, registrationNumber);
+        if (addReader(library, firstName, lastName, registrationNumber) == null) {
+            System.out.println("Error: A reader with this registration number already exists.");
+            return;
+        }
+        System.out.println("Reader added successfully.");
+    }
 
+    static BookStore addStorage(Library library, String storageName) {
+        for (BookStore existingStore : library.getBookStores()) {
+            if (existingStore.getStoreName().equals(storageName)) {
+                return null;
+            }
+        }
 
-        library.getReaders().add(reader);
+        BookStore newStorage = new BookStore(storageName);
+        library.getBookStores().add(newStorage);
+        return newStorage;
+    }
 
-        System.out.println("Reader added successfully.");
+    static Book addBook(Library library, String title, String authorFirstName, String authorLastName,
+                        int publicationYear, int editionNumber, String storageName) {
+        for (BookStore bookStore : library.getBookStores()) {
+            if (bookStore.getStoreName().equals(storageName)) {
+                Author author = new Author(authorFirstName, authorLastName);
+                Book book = new Book(title, List.of(author), publicationYear, editionNumber, storageName);
+                bookStore.getBooks().add(book);
+                return book;
+            }
+        }
+        return null;
+    }
+
+    static BookReader addReader(Library library, String firstName, String lastName, int registrationNumber) {
+        BookReader reader = new BookReader(firstName, lastName, registrationNumber);
+        return library.addReader(reader) ? reader : null;
     }
 
     private static void displayLibraryReport(Library library) {
@@ -483,5 +335,40 @@ public class LibraryDriver3 {
             return null;
         }
     }
-}
 
+    private static void saveSnapshot(Library library, String fileName) {
+        try {
+            LibrarySnapshot.write(library, fileName);
+            System.out.println("Library snapshot saved successfully.");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static Library loadSnapshot(String fileName) {
+        try {
+            return LibrarySnapshot.read(fileName);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private static void saveSegmentedSnapshot(Library library, String fileName) {
+        try {
+            SegmentedSnapshot.write(library, fileName);
+            System.out.println("Library segmented snapshot saved successfully.");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static Library loadSegmentedSnapshot(String fileName) {
+        try {
+            return SegmentedSnapshot.read(fileName);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+}
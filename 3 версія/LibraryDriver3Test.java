@@ -0,0 +1,49 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class LibraryDriver3Test {
+    private static int passed;
+    private static final List<String> failures = new ArrayList<>();
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Files.createTempDirectory("library3-test");
+        LibrarySnapshotTest.runAll(dir.resolve("snapshot"));
+        SegmentedSnapshotTest.runAll(dir.resolve("segmented"));
+        CatalogDictionaryTest.runAll(dir.resolve("dictionary"));
+
+        System.out.println(passed + " passed, " + failures.size() + " failed");
+        for (String failure : failures) {
+            System.out.println("FAILED: " + failure);
+        }
+        if (!failures.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    static void assertSameLibrary(Library expected, Library actual) {
+        check(expected.toString().equals(actual.toString()), "expected\n" + expected + "\nbut was\n" + actual);
+    }
+
+    static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    static void run(String name, Check test) {
+        try {
+            test.run();
+            passed++;
+        } catch (Throwable e) {
+            failures.add(name + ": " + e);
+            e.printStackTrace();
+        }
+    }
+
+    interface Check {
+        void run() throws Exception;
+    }
+}
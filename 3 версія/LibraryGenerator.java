@@ -0,0 +1,118 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+class LibraryGenerator {
+    private static final String[] WORDS = {
+            "Silent", "River", "Shadow", "Empire", "Garden", "Winter", "Machine", "Secret", "Ocean", "Forest",
+            "Stone", "Fire", "Glass", "Iron", "Golden", "Last", "Hidden", "Broken", "Dream", "Night",
+            "City", "Storm", "Kingdom", "Journey", "Island", "Memory", "Light", "Crown", "Star", "Wind",
+            "Mountain", "Echo", "Silver", "Wolf", "Letter", "Road", "House", "Song", "Mirror", "Harbor"};
+    private static final String[] FIRST_NAMES = {
+            "Anna", "Boris", "Clara", "Dmytro", "Elena", "Frank", "Gillian", "Hugo", "Iryna", "Jonas",
+            "Kateryna", "Liam", "Maria", "Nikolai", "Olga", "Patrick", "Quinn", "Roman", "Sofia", "Taras"};
+    private static final String[] LAST_NAMES = {
+            "Adams", "Bondarenko", "Carter", "Doyle", "Evans", "Franko", "Gibson", "Herbert", "Ivanenko", "Jones",
+            "Kovalenko", "Lewis", "Melnyk", "Novak", "Orwell", "Petrenko", "Quill", "Rowling", "Shevchenko", "Tolkien"};
+
+    private final long seed;
+    private int stores = 10;
+    private int booksPerStore = 1_000;
+    private int authorsPerBook = 1;
+    private int authorPool = 2_000;
+    private int readers = 1_000;
+    private int loansPerReader = 2;
+
+    LibraryGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    LibraryGenerator stores(int stores) {
+        this.stores = stores;
+        return this;
+    }
+
+    LibraryGenerator booksPerStore(int booksPerStore) {
+        this.booksPerStore = booksPerStore;
+        return this;
+    }
+
+    LibraryGenerator authorsPerBook(int authorsPerBook) {
+        this.authorsPerBook = authorsPerBook;
+        return this;
+    }
+
+    LibraryGenerator authorPool(int authorPool) {
+        this.authorPool = authorPool;
+        return this;
+    }
+
+    LibraryGenerator readers(int readers) {
+        this.readers = readers;
+        return this;
+    }
+
+    LibraryGenerator loansPerReader(int loansPerReader) {
+        this.loansPerReader = loansPerReader;
+        return this;
+    }
+
+    Library generate() {
+        Random random = new Random(seed);
+        Library library = new Library("Generated Library " + seed);
+        Author[] authors = new Author[Math.max(1, authorPool)];
+        for (int i = 0; i < authors.length; i++) {
+            authors[i] = new Author(firstName(random), lastName(random) + (i >= LAST_NAMES.length ? "-" + i : ""));
+        }
+
+        List<Book> catalog = new ArrayList<>(stores * booksPerStore);
+        for (int i = 0; i < stores; i++) {
+            BookStore bookStore = new BookStore(storeName(i));
+            library.getBookStores().add(bookStore);
+            for (int j = 0; j < booksPerStore; j++) {
+                Author[] bookAuthors = new Author[authorsPerBook];
+                for (int k = 0; k < authorsPerBook; k++) {
+                    bookAuthors[k] = authors[random.nextInt(authors.length)];
+                }
+                Book book = new Book(title(random), List.of(bookAuthors), publicationYear(random),
+                        1 + random.nextInt(5), bookStore.getStoreName());
+                bookStore.getBooks().add(book);
+                catalog.add(book);
+            }
+        }
+
+        for (int i = 0; i < readers; i++) {
+            BookReader reader = new BookReader(firstName(random), lastName(random), i + 1);
+            library.addReader(reader);
+            for (int j = 0; j < loansPerReader && !catalog.isEmpty(); j++) {
+                reader.borrowBook(catalog.get(random.nextInt(catalog.size())));
+            }
+        }
+        return library;
+    }
+
+    static String storeName(int index) {
+        return "Storage " + (index + 1);
+    }
+
+    static String title(Random random) {
+        StringBuilder title = new StringBuilder(WORDS[random.nextInt(WORDS.length)]);
+        int words = 1 + random.nextInt(3);
+        for (int i = 0; i < words; i++) {
+            title.append(' ').append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return title.toString();
+    }
+
+    static String firstName(Random random) {
+        return FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+    }
+
+    static String lastName(Random random) {
+        return LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+    }
+
+    static int publicationYear(Random random) {
+        return 1800 + random.nextInt(226);
+    }
+}
@@ -0,0 +1,329 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+class LibrarySnapshot {
+    static final int MAGIC = 0x4C534E50;
+    static final int VERSION = 2;
+
+    private static final int HEADER_SIZE = 48;
+    private static final int V1_HEADER_SIZE = 44;
+    private static final int STORE_RECORD_SIZE = 12;
+    private static final int BOOK_RECORD_SIZE = 24;
+    private static final int AUTHOR_RECORD_SIZE = 8;
+    private static final int READER_RECORD_SIZE = 20;
+    private static final int NO_STRING = -1;
+
+    private final MappedByteBuffer buffer;
+    private final int libraryName;
+    private final int storeCount;
+    private final int bookCount;
+    private final int readerCount;
+    private final int storesOffset;
+    private final int booksOffset;
+    private final int authorsOffset;
+    private final int readersOffset;
+    private final int loansOffset;
+    private final int storeBooksOffset;
+    private final boolean indexedStores;
+    private final int stringOffsetsOffset;
+    private final int stringDataOffset;
+    private final String[] strings;
+    private final Book[] books;
+
+    private LibrarySnapshot(String fileName, MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < V1_HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a library snapshot: " + fileName);
+        }
+        int version = buffer.getInt(4);
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported snapshot version " + version + " in " + fileName);
+        }
+        int headerSize = buffer.getInt(8);
+        libraryName = buffer.getInt(12);
+        storeCount = buffer.getInt(16);
+        bookCount = buffer.getInt(20);
+        int authorCount = buffer.getInt(24);
+        readerCount = buffer.getInt(28);
+        int loanCount = buffer.getInt(32);
+        int stringCount = buffer.getInt(36);
+        int stringDataLength = buffer.getInt(40);
+        indexedStores = version >= 2;
+        int storeBookCount = indexedStores ? buffer.getInt(44) : 0;
+
+        storesOffset = headerSize;
+        booksOffset = storesOffset + storeCount * STORE_RECORD_SIZE;
+        authorsOffset = booksOffset + bookCount * BOOK_RECORD_SIZE;
+        readersOffset = authorsOffset + authorCount * AUTHOR_RECORD_SIZE;
+        loansOffset = readersOffset + readerCount * READER_RECORD_SIZE;
+        storeBooksOffset = loansOffset + loanCount * 4;
+        stringOffsetsOffset = storeBooksOffset + storeBookCount * 4;
+        stringDataOffset = stringOffsetsOffset + (stringCount + 1) * 4;
+        if ((long) stringDataOffset + stringDataLength > buffer.capacity()) {
+            throw new IOException("Truncated library snapshot: " + fileName);
+        }
+
+        strings = new String[stringCount];
+        books = new Book[bookCount];
+    }
+
+    static LibrarySnapshot open(String fileName) throws IOException {
+        try (FileChannel channel = FileChannel.open(new File(fileName).toPath())) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Library snapshot is too large to map: " + fileName);
+            }
+            return new LibrarySnapshot(fileName, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    static Library read(String fileName) throws IOException {
+        return open(fileName).toLibrary();
+    }
+
+    static void write(Library library, String fileName) throws IOException {
+        Map<String, Integer> stringIds = new HashMap<>();
+        List<byte[]> stringBytes = new ArrayList<>();
+        Map<Book, Integer> bookIndexes = new IdentityHashMap<>();
+        List<Book> books = new ArrayList<>();
+        int authorCount = 0;
+        int loanCount = 0;
+        int storeBookCount = 0;
+
+        for (BookStore bookStore : library.getBookStores()) {
+            storeBookCount += bookStore.getBooks().size();
+            for (Book book : bookStore.getBooks()) {
+                if (bookIndexes.putIfAbsent(book, books.size()) == null) {
+                    books.add(book);
+                    authorCount += book.getAuthors().size();
+                }
+            }
+        }
+        for (BookReader reader : library.getReaders()) {
+            for (Book book : reader.getBorrowedBooks()) {
+                if (bookIndexes.putIfAbsent(book, books.size()) == null) {
+                    books.add(book);
+                    authorCount += book.getAuthors().size();
+                }
+            }
+            loanCount += reader.getBorrowedBooks().size();
+        }
+
+        int libraryName = stringId(library.getLibraryName(), stringIds, stringBytes);
+        for (BookStore bookStore : library.getBookStores()) {
+            stringId(bookStore.getStoreName(), stringIds, stringBytes);
+        }
+        for (Book book : books) {
+            stringId(book.getTitle(), stringIds, stringBytes);
+            stringId(book.getStorageName(), stringIds, stringBytes);
+            for (Author author : book.getAuthors()) {
+                stringId(author.getFirstName(), stringIds, stringBytes);
+                stringId(author.getLastName(), stringIds, stringBytes);
+            }
+        }
+        for (BookReader reader : library.getReaders()) {
+            stringId(reader.getFirstName(), stringIds, stringBytes);
+            stringId(reader.getLastName(), stringIds, stringBytes);
+        }
+
+        long stringDataLength = 0;
+        for (byte[] bytes : stringBytes) {
+            stringDataLength += bytes.length;
+        }
+        int storeCount = library.getBookStores().size();
+        int readerCount = library.getReaders().size();
+        long size = HEADER_SIZE
+                + (long) storeCount * STORE_RECORD_SIZE
+                + (long) books.size() * BOOK_RECORD_SIZE
+                + (long) authorCount * AUTHOR_RECORD_SIZE
+                + (long) readerCount * READER_RECORD_SIZE
+                + (long) loanCount * 4
+                + (long) storeBookCount * 4
+                + (stringBytes.size() + 1L) * 4
+                + stringDataLength;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Library is too large for a single snapshot file: " + size + " bytes");
+        }
+
+        Path target = Paths.get(fileName);
+        Path temp = Paths.get(fileName + ".tmp");
+        try (RandomAccessFile file = new RandomAccessFile(temp.toFile(), "rw");
+             FileChannel channel = file.getChannel()) {
+            file.setLength(size);
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putInt(HEADER_SIZE);
+            out.putInt(libraryName);
+            out.putInt(storeCount);
+            out.putInt(books.size());
+            out.putInt(authorCount);
+            out.putInt(readerCount);
+            out.putInt(loanCount);
+            out.putInt(stringBytes.size());
+            out.putInt((int) stringDataLength);
+            out.putInt(storeBookCount);
+
+            int firstBook = 0;
+            for (BookStore bookStore : library.getBookStores()) {
+                out.putInt(stringId(bookStore.getStoreName(), stringIds, stringBytes));
+                out.putInt(firstBook);
+                out.putInt(bookStore.getBooks().size());
+                firstBook += bookStore.getBooks().size();
+            }
+
+            int firstAuthor = 0;
+            for (Book book : books) {
+                out.putInt(stringId(book.getTitle(), stringIds, stringBytes));
+                out.putInt(stringId(book.getStorageName(), stringIds, stringBytes));
+                out.putInt(book.getPublicationYear());
+                out.putInt(book.getEditionNumber());
+                out.putInt(firstAuthor);
+                out.putInt(book.getAuthors().size());
+                firstAuthor += book.getAuthors().size();
+            }
+
+            for (Book book : books) {
+                for (Author author : book.getAuthors()) {
+                    out.putInt(stringId(author.getFirstName(), stringIds, stringBytes));
+                    out.putInt(stringId(author.getLastName(), stringIds, stringBytes));
+                }
+            }
+
+            int firstLoan = 0;
+            for (BookReader reader : library.getReaders()) {
+                out.putInt(stringId(reader.getFirstName(), stringIds, stringBytes));
+                out.putInt(stringId(reader.getLastName(), stringIds, stringBytes));
+                out.putInt(reader.getRegistrationNumber());
+                out.putInt(firstLoan);
+                out.putInt(reader.getBorrowedBooks().size());
+                firstLoan += reader.getBorrowedBooks().size();
+            }
+
+            for (BookReader reader : library.getReaders()) {
+                for (Book book : reader.getBorrowedBooks()) {
+                    out.putInt(bookIndexes.get(book));
+                }
+            }
+
+            for (BookStore bookStore : library.getBookStores()) {
+                for (Book book : bookStore.getBooks()) {
+                    out.putInt(bookIndexes.get(book));
+                }
+            }
+
+            int stringOffset = 0;
+            for (byte[] bytes : stringBytes) {
+                out.putInt(stringOffset);
+                stringOffset += bytes.length;
+            }
+            out.putInt(stringOffset);
+            for (byte[] bytes : stringBytes) {
+                out.put(bytes);
+            }
+
+            out.force();
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int stringId(String value, Map<String, Integer> stringIds, List<byte[]> stringBytes) {
+        if (value == null) {
+            return NO_STRING;
+        }
+        Integer id = stringIds.get(value);
+        if (id == null) {
+            id = stringBytes.size();
+            stringIds.put(value, id);
+            stringBytes.add(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return id;
+    }
+
+    Library toLibrary() {
+        Library library = new Library(string(libraryName));
+        for (int i = 0; i < storeCount; i++) {
+            BookStore bookStore = new BookStore(storeName(i));
+            bookStore.getBooks().addAll(books(i));
+            library.getBookStores().add(bookStore);
+        }
+        for (int i = 0; i < readerCount; i++) {
+            library.addReader(reader(i));
+        }
+        return library;
+    }
+
+    String storeName(int storeIndex) {
+        return string(buffer.getInt(storesOffset + storeIndex * STORE_RECORD_SIZE));
+    }
+
+    List<Book> books(int storeIndex) {
+        int record = storesOffset + storeIndex * STORE_RECORD_SIZE;
+        int firstBook = buffer.getInt(record + 4);
+        int count = buffer.getInt(record + 8);
+        List<Book> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(book(indexedStores ? buffer.getInt(storeBooksOffset + (firstBook + i) * 4) : firstBook + i));
+        }
+        return result;
+    }
+
+    Book book(int index) {
+        Book book = books[index];
+        if (book == null) {
+            int record = booksOffset + index * BOOK_RECORD_SIZE;
+            int firstAuthor = buffer.getInt(record + 16);
+            Author[] authors = new Author[buffer.getInt(record + 20)];
+            for (int i = 0; i < authors.length; i++) {
+                int authorRecord = authorsOffset + (firstAuthor + i) * AUTHOR_RECORD_SIZE;
+                authors[i] = new Author(string(buffer.getInt(authorRecord)), string(buffer.getInt(authorRecord + 4)));
+            }
+            book = new Book(string(buffer.getInt(record)), List.of(authors), buffer.getInt(record + 8),
+                    buffer.getInt(record + 12), string(buffer.getInt(record + 4)));
+            books[index] = book;
+        }
+        return book;
+    }
+
+    BookReader reader(int index) {
+        int record = readersOffset + index * READER_RECORD_SIZE;
+        BookReader reader = new BookReader(string(buffer.getInt(record)), string(buffer.getInt(record + 4)),
+                buffer.getInt(record + 8));
+        int firstLoan = buffer.getInt(record + 12);
+        int loanCount = buffer.getInt(record + 16);
+        for (int i = 0; i < loanCount; i++) {
+            reader.borrowBook(book(buffer.getInt(loansOffset + (firstLoan + i) * 4)));
+        }
+        return reader;
+    }
+
+    String string(int id) {
+        if (id == NO_STRING) {
+            return null;
+        }
+        String value = strings[id];
+        if (value == null) {
+            int start = buffer.getInt(stringOffsetsOffset + id * 4);
+            int end = buffer.getInt(stringOffsetsOffset + (id + 1) * 4);
+            byte[] bytes = new byte[end - start];
+            ByteBuffer view = buffer.duplicate();
+            view.position(stringDataOffset + start);
+            view.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+            strings[id] = value;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,134 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+class LibrarySnapshotTest extends LibraryDriver3Test {
+    static void runAll(Path dir) {
+        run("snapshot keeps books shared between stores", () -> snapshotKeepsSharedBooks(dir.resolve("shared")));
+        run("snapshot round-trips null names", () -> snapshotKeepsNullNames(dir.resolve("nulls")));
+        run("a failed write keeps the previous snapshot", () -> failedWriteKeepsPreviousSnapshot(dir.resolve("temp")));
+        run("version 1 snapshots still load", () -> version1SnapshotLoads(dir.resolve("v1")));
+    }
+
+    private static void snapshotKeepsSharedBooks(Path dir) throws Exception {
+        Files.createDirectories(dir);
+        String file = dir.resolve("shared.snap").toString();
+        Library library = new Library("Shared");
+        BookStore first = new BookStore("First");
+        BookStore second = new BookStore("Second");
+        library.getBookStores().add(first);
+        library.getBookStores().add(second);
+        Book shared = new Book("Shared", List.of(new Author("Ann", "Lee")), 2001, 1);
+        Book twice = new Book("Twice", List.of(new Author("Bo", "Ray")), 2002, 1);
+        Book last = new Book("Last", List.of(new Author("Cy", "Day")), 2003, 1, "Second");
+        first.getBooks().add(shared);
+        first.getBooks().add(twice);
+        first.getBooks().add(twice);
+        second.getBooks().add(shared);
+        second.getBooks().add(last);
+        BookReader reader = new BookReader("Di", "Fox", 7);
+        library.addReader(reader);
+        reader.borrowBook(shared);
+
+        LibrarySnapshot.write(library, file);
+        Library loaded = LibrarySnapshot.read(file);
+        assertSameLibrary(library, loaded);
+        List<Book> firstBooks = loaded.getBookStores().get(0).getBooks();
+        List<Book> secondBooks = loaded.getBookStores().get(1).getBooks();
+        check(firstBooks.get(0) == secondBooks.get(0), "a book in two stores loads as one instance");
+        check(firstBooks.get(1) == firstBooks.get(2), "a book listed twice loads as one instance");
+        check(secondBooks.get(1).getTitle().equals("Last"), "later stores keep their own books");
+        check(loaded.getReader(7).getBorrowedBooks().get(0) == firstBooks.get(0), "loans keep the shared instance");
+    }
+
+    private static void snapshotKeepsNullNames(Path dir) throws Exception {
+        Files.createDirectories(dir);
+        String file = dir.resolve("nulls.snap").toString();
+        Library library = new Library("Nulls");
+        BookStore bookStore = new BookStore("Main");
+        library.getBookStores().add(bookStore);
+        bookStore.getBooks().add(new Book(null, List.of(new Author(null, "Lee")), 2001, 1));
+        library.addReader(new BookReader("Di", null, 7));
+
+        LibrarySnapshot.write(library, file);
+        Library loaded = LibrarySnapshot.read(file);
+        Book book = loaded.getBookStores().get(0).getBooks().get(0);
+        check(book.getTitle() == null, "null title");
+        check(book.getAuthors().get(0).getFirstName() == null, "null author first name");
+        check("Lee".equals(book.getAuthors().get(0).getLastName()), "author last name");
+        check(loaded.getReader(7).getLastName() == null && "Di".equals(loaded.getReader(7).getFirstName()),
+                "null reader last name");
+    }
+
+    private static void failedWriteKeepsPreviousSnapshot(Path dir) throws Exception {
+        Files.createDirectories(dir);
+        Path file = dir.resolve("library.snap");
+        Library library = new Library("Temp");
+        BookStore bookStore = new BookStore("Main");
+        library.getBookStores().add(bookStore);
+        bookStore.getBooks().add(new Book("Kept", List.of(new Author("Ann", "Lee")), 2001, 1));
+        LibrarySnapshot.write(library, file.toString());
+        byte[] previous = Files.readAllBytes(file);
+
+        bookStore.getBooks().add(new Book("Broken", List.of(new Author("Bo", "Ray")), 2002, 1) {
+            @Override
+            public int getPublicationYear() {
+                throw new IllegalStateException("unreadable year");
+            }
+        });
+        try {
+            LibrarySnapshot.write(library, file.toString());
+            throw new AssertionError("the write should fail");
+        } catch (IllegalStateException e) {
+            check(Arrays.equals(previous, Files.readAllBytes(file)), "the previous snapshot is untouched");
+        }
+        check(LibrarySnapshot.read(file.toString()).getBookStores().get(0).getBooks().size() == 1,
+                "the previous snapshot still loads");
+    }
+
+    private static void version1SnapshotLoads(Path dir) throws Exception {
+        Files.createDirectories(dir);
+        Path file = dir.resolve("legacy.snap");
+        String[] strings = {"Legacy", "Main", "Dune", "Frank", "Herbert", "Emma", "Jane", "Austen", "Ada", "Lovelace"};
+        int dataLength = 0;
+        for (String value : strings) {
+            dataLength += value.getBytes(StandardCharsets.UTF_8).length;
+        }
+        ByteBuffer out = ByteBuffer.allocate(512);
+        out.putInt(LibrarySnapshot.MAGIC).putInt(1).putInt(44);
+        out.putInt(0).putInt(1).putInt(2).putInt(2).putInt(1).putInt(1).putInt(strings.length).putInt(dataLength);
+        out.putInt(1).putInt(0).putInt(2);
+        out.putInt(2).putInt(1).putInt(1965).putInt(1).putInt(0).putInt(1);
+        out.putInt(5).putInt(-1).putInt(1815).putInt(2).putInt(1).putInt(1);
+        out.putInt(3).putInt(4).putInt(6).putInt(7);
+        out.putInt(8).putInt(9).putInt(42).putInt(0).putInt(1);
+        out.putInt(1);
+        int offset = 0;
+        for (String value : strings) {
+            out.putInt(offset);
+            offset += value.getBytes(StandardCharsets.UTF_8).length;
+        }
+        out.putInt(offset);
+        for (String value : strings) {
+            out.put(value.getBytes(StandardCharsets.UTF_8));
+        }
+        Files.write(file, Arrays.copyOf(out.array(), out.position()));
+
+        Library expected = new Library("Legacy");
+        BookStore main = new BookStore("Main");
+        expected.getBookStores().add(main);
+        main.getBooks().add(new Book("Dune", List.of(new Author("Frank", "Herbert")), 1965, 1, "Main"));
+        main.getBooks().add(new Book("Emma", List.of(new Author("Jane", "Austen")), 1815, 2));
+        BookReader reader = new BookReader("Ada", "Lovelace", 42);
+        expected.addReader(reader);
+        reader.borrowBook(main.getBooks().get(1));
+
+        Library loaded = LibrarySnapshot.read(file.toString());
+        assertSameLibrary(expected, loaded);
+        check(loaded.getReader(42).getBorrowedBooks().get(0) == loaded.getBookStores().get(0).getBooks().get(1),
+                "loans resolve to the stored book instance");
+    }
+}
@@ -0,0 +1,204 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+class SegmentedSnapshot {
+    static final int MAGIC = 0x4C534547;
+    static final int VERSION = 2;
+
+    private static final int FOOTER_SIZE = 12;
+
+    static void write(Library library, String fileName) throws IOException {
+        List<BookStore> bookStores = library.getBookStores();
+        CatalogDictionary dictionary = CatalogDictionary.of(library);
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        List<ForkJoinTask<byte[]>> segments = new ArrayList<>(bookStores.size() + 2);
+        for (BookStore bookStore : bookStores) {
+            segments.add(pool.submit(() -> encode(out -> dictionary.writeStore(out, bookStore))));
+        }
+        segments.add(pool.submit(() -> encode(out -> dictionary.writeReaders(out, library))));
+        segments.add(pool.submit(() -> encode(dictionary::writeTo)));
+
+        long[] offsets = new long[segments.size()];
+        int[] lengths = new int[segments.size()];
+        Path target = Paths.get(fileName);
+        Path temp = Paths.get(fileName + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(8);
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            writeFully(channel, header);
+            for (int i = 0; i < segments.size(); i++) {
+                byte[] segment = join(segments.get(i));
+                offsets[i] = channel.position();
+                lengths[i] = segment.length;
+                writeFully(channel, ByteBuffer.wrap(segment));
+            }
+
+            long indexOffset = channel.position();
+            ByteArrayOutputStream index = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(index);
+            out.writeUTF(library.getLibraryName());
+            out.writeInt(bookStores.size());
+            for (int i = 0; i < segments.size(); i++) {
+                if (i < bookStores.size()) {
+                    out.writeUTF(bookStores.get(i).getStoreName());
+                }
+                out.writeLong(offsets[i]);
+                out.writeInt(lengths[i]);
+            }
+            out.writeLong(indexOffset);
+            out.writeInt(MAGIC);
+            writeFully(channel, ByteBuffer.wrap(index.toByteArray()));
+            channel.force(false);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static Library read(String fileName) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName))) {
+            Index index = readIndex(channel, fileName);
+            CatalogDictionary dictionary = readDictionary(channel, index);
+            ForkJoinPool pool = ForkJoinPool.commonPool();
+            List<ForkJoinTask<BookStore>> segments = new ArrayList<>(index.storeNames.length);
+            for (int i = 0; i < index.storeNames.length; i++) {
+                int storeIndex = i;
+                segments.add(pool.submit(() -> readStore(channel, index, dictionary, storeIndex)));
+            }
+
+            Library library = new Library(index.libraryName);
+            for (ForkJoinTask<BookStore> segment : segments) {
+                library.getBookStores().add(join(segment));
+            }
+            try (ObjectInputStream in = segment(channel, index, index.storeNames.length)) {
+                dictionary.readReaders(in, library);
+            }
+            return library;
+        }
+    }
+
+    static List<String> readStoreNames(String fileName) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName))) {
+            return List.of(readIndex(channel, fileName).storeNames);
+        }
+    }
+
+    static BookStore readStore(String fileName, int storeIndex) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName))) {
+            Index index = readIndex(channel, fileName);
+            return readStore(channel, index, readDictionary(channel, index), storeIndex);
+        }
+    }
+
+    private static BookStore readStore(FileChannel channel, Index index, CatalogDictionary dictionary, int storeIndex)
+            throws IOException {
+        try (ObjectInputStream in = segment(channel, index, storeIndex)) {
+            return dictionary.readStore(in);
+        }
+    }
+
+    private static CatalogDictionary readDictionary(FileChannel channel, Index index) throws IOException {
+        try (ObjectInputStream in = segment(channel, index, index.storeNames.length + 1)) {
+            return CatalogDictionary.readFrom(in);
+        }
+    }
+
+    private static Index readIndex(FileChannel channel, String fileName) throws IOException {
+        long size = channel.size();
+        ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE);
+        ByteBuffer header = ByteBuffer.allocate(8);
+        if (size < 8 + FOOTER_SIZE) {
+            throw new IOException("Not a segmented library snapshot: " + fileName);
+        }
+        readFully(channel, header, 0);
+        readFully(channel, footer, size - FOOTER_SIZE);
+        if (header.getInt(0) != MAGIC || footer.getInt(8) != MAGIC) {
+            throw new IOException("Not a segmented library snapshot: " + fileName);
+        }
+        if (header.getInt(4) != VERSION) {
+            throw new IOException("Unsupported segmented snapshot version " + header.getInt(4) + " in " + fileName);
+        }
+
+        long indexOffset = footer.getLong(0);
+        ByteBuffer buffer = ByteBuffer.allocate((int) (size - FOOTER_SIZE - indexOffset));
+        readFully(channel, buffer, indexOffset);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(buffer.array()));
+        Index index = new Index();
+        index.libraryName = in.readUTF();
+        int storeCount = in.readInt();
+        index.storeNames = new String[storeCount];
+        index.offsets = new long[storeCount + 2];
+        index.lengths = new int[storeCount + 2];
+        for (int i = 0; i < storeCount + 2; i++) {
+            if (i < storeCount) {
+                index.storeNames[i] = in.readUTF();
+            }
+            index.offsets[i] = in.readLong();
+            index.lengths[i] = in.readInt();
+        }
+        return index;
+    }
+
+    private static ObjectInputStream segment(FileChannel channel, Index index, int segment) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(index.lengths[segment]);
+        readFully(channel, buffer, index.offsets[segment]);
+        return new ObjectInputStream(new ByteArrayInputStream(buffer.array()));
+    }
+
+    private static byte[] encode(SegmentWriter writer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            writer.write(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static <T> T join(ForkJoinTask<T> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a snapshot segment");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of segmented snapshot");
+            }
+        }
+    }
+
+    private interface SegmentWriter {
+        void write(ObjectOutputStream out) throws IOException;
+    }
+
+    private static class Index {
+        String libraryName;
+        String[] storeNames;
+        long[] offsets;
+        int[] lengths;
+    }
+}
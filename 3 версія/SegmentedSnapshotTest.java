@@ -0,0 +1,73 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+class SegmentedSnapshotTest extends LibraryDriver3Test {
+    static void runAll(Path dir) {
+        run("segmented snapshot round-trips a library", () -> segmentedSnapshotRoundTrips(dir.resolve("roundtrip")));
+        run("a single store reads from its own segment", () -> storeReadsFromItsSegment(dir.resolve("store")));
+        run("a truncated segmented snapshot is rejected", () -> truncatedSnapshotIsRejected(dir.resolve("truncated")));
+    }
+
+    private static void segmentedSnapshotRoundTrips(Path dir) throws Exception {
+        Files.createDirectories(dir);
+        String file = dir.resolve("library.seg").toString();
+        Library library = new LibraryGenerator(11).stores(4).booksPerStore(150).authorsPerBook(2).authorPool(30)
+                .readers(40).loansPerReader(3).generate();
+        Book loose = new Book("Loose", List.of(new Author("Ann", "Lee")), 1999, 1);
+        library.getReader(1).borrowBook(loose);
+
+        SegmentedSnapshot.write(library, file);
+        Library loaded = SegmentedSnapshot.read(file);
+        assertSameLibrary(library, loaded);
+        for (BookReader reader : loaded.getReaders()) {
+            for (Book book : reader.getBorrowedBooks()) {
+                check(book.getTitle().equals("Loose") || stocked(loaded, book),
+                        "reader " + reader.getRegistrationNumber() + " borrows a stored instance");
+            }
+        }
+        check(!Files.exists(dir.resolve("library.seg.tmp")), "the temporary file is moved into place");
+    }
+
+    private static void storeReadsFromItsSegment(Path dir) throws Exception {
+        Files.createDirectories(dir);
+        String file = dir.resolve("library.seg").toString();
+        Library library = new LibraryGenerator(12).stores(3).booksPerStore(80).authorsPerBook(1).authorPool(10)
+                .readers(5).loansPerReader(1).generate();
+
+        SegmentedSnapshot.write(library, file);
+        check(SegmentedSnapshot.readStoreNames(file).equals(List.of("Storage 1", "Storage 2", "Storage 3")),
+                "store names come from the index");
+        for (int i = 0; i < 3; i++) {
+            check(SegmentedSnapshot.readStore(file, i).toString().equals(library.getBookStores().get(i).toString()),
+                    "segment " + i);
+        }
+    }
+
+    private static void truncatedSnapshotIsRejected(Path dir) throws Exception {
+        Files.createDirectories(dir);
+        Path file = dir.resolve("library.seg");
+        SegmentedSnapshot.write(new LibraryGenerator(13).stores(1).booksPerStore(10).generate(), file.toString());
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 5));
+        try {
+            SegmentedSnapshot.read(file.toString());
+            throw new AssertionError("a truncated snapshot loaded");
+        } catch (IOException e) {
+            check(e.getMessage().startsWith("Not a segmented library snapshot"), e.getMessage());
+        }
+    }
+
+    private static boolean stocked(Library library, Book book) {
+        for (BookStore bookStore : library.getBookStores()) {
+            for (Book stored : bookStore.getBooks()) {
+                if (stored == book) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
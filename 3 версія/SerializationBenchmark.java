@@ -0,0 +1,180 @@
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class SerializationBenchmark {
+    interface Format {
+        String name();
+
+        void write(Library library, Path file) throws IOException;
+
+        Library read(Path file) throws IOException;
+    }
+
+    static final List<Format> FORMATS = List.of(
+            new Format() {
+                @Override
+                public String name() {
+                    return "externalizable";
+                }
+
+                @Override
+                public void write(Library library, Path file) throws IOException {
+                    try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+                        oos.writeObject(library);
+                    }
+                }
+
+                @Override
+                public Library read(Path file) throws IOException {
+                    try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                        return (Library) ois.readObject();
+                    } catch (ClassNotFoundException e) {
+                        throw new IOException(e);
+                    }
+                }
+            },
+            new Format() {
+                @Override
+                public String name() {
+                    return "binary-snapshot";
+                }
+
+                @Override
+                public void write(Library library, Path file) throws IOException {
+                    LibrarySnapshot.write(library, file.toString());
+                }
+
+                @Override
+                public Library read(Path file) throws IOException {
+                    return LibrarySnapshot.read(file.toString());
+                }
+            },
+            new Format() {
+                @Override
+                public String name() {
+                    return "segmented-snapshot";
+                }
+
+                @Override
+                public void write(Library library, Path file) throws IOException {
+                    SegmentedSnapshot.write(library, file.toString());
+                }
+
+                @Override
+                public Library read(Path file) throws IOException {
+                    return SegmentedSnapshot.read(file.toString());
+                }
+            });
+
+    private static final int WARMUP_ITERATIONS = 2;
+    private static final int MEASURED_ITERATIONS = 5;
+
+    public static void main(String[] args) throws IOException {
+        int[] sizes = args.length > 0 ? parseSizes(args[0]) : new int[]{1_000, 10_000, 100_000};
+        int authorsPerBook = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int readers = args.length > 2 ? Integer.parseInt(args[2]) : 1_000;
+
+        boolean underReported = false;
+        Path directory = Files.createTempDirectory("library-benchmark");
+        System.out.printf("%-26s %10s %12s %12s %12s %14s %14s%n", "format", "books", "bytes",
+                "write ms/op", "read ms/op", "write MB/op", "read MB/op");
+        for (int size : sizes) {
+            int stores = Math.max(1, size / 10_000);
+            Library library = new LibraryGenerator(42).stores(stores).booksPerStore(size / stores)
+                    .authorsPerBook(authorsPerBook).authorPool(Math.max(1, size / 50)).readers(readers)
+                    .loansPerReader(3).generate();
+            for (Format format : FORMATS) {
+                Path file = directory.resolve(format.name());
+                Result write = measure(() -> format.write(library, file));
+                long bytes = Files.size(file);
+                Result read = measure(() -> format.read(file));
+                System.out.printf("%-26s %10d %12d %12.2f %12.2f %13.2f%s %13.2f%s%n", format.name(), size, bytes,
+                        write.millisPerOp, read.millisPerOp, write.allocatedMegabytesPerOp, marker(write),
+                        read.allocatedMegabytesPerOp, marker(read));
+                underReported |= write.exitedThreads > 0 || read.exitedThreads > 0;
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+        if (underReported) {
+            System.out.println("* threads exited during the measurement; what they allocated is missing from MB/op");
+        }
+    }
+
+    private static String marker(Result result) {
+        return result.exitedThreads > 0 ? "*" : " ";
+    }
+
+    // Allocation is summed per thread, so pool workers count too. A thread that exits before the end of the
+    // measurement takes its counter with it; exitedThreads says how many did.
+    private static Result measure(Operation operation) throws IOException {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            operation.run();
+        }
+        System.gc();
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long startedBefore = threads.getTotalStartedThreadCount();
+        Map<Long, Long> allocatedBefore = allocatedBytes(threads);
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            operation.run();
+        }
+        Result result = new Result();
+        result.millisPerOp = (System.nanoTime() - start) / 1e6 / MEASURED_ITERATIONS;
+        Map<Long, Long> allocatedAfter = allocatedBytes(threads);
+        long startedDuring = threads.getTotalStartedThreadCount() - startedBefore;
+
+        long allocated = 0;
+        long survivors = 0;
+        for (Map.Entry<Long, Long> entry : allocatedAfter.entrySet()) {
+            Long before = allocatedBefore.get(entry.getKey());
+            allocated += entry.getValue() - (before != null ? before : 0);
+            if (before != null) {
+                survivors++;
+            }
+        }
+        long startedAndAlive = allocatedAfter.size() - survivors;
+        result.exitedThreads = (int) (allocatedBefore.size() - survivors + startedDuring - startedAndAlive);
+        result.allocatedMegabytesPerOp = allocated / (1024.0 * 1024.0) / MEASURED_ITERATIONS;
+        return result;
+    }
+
+    private static Map<Long, Long> allocatedBytes(java.lang.management.ThreadMXBean threads) {
+        Map<Long, Long> allocated = new HashMap<>();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return allocated;
+        }
+        long[] ids = threads.getAllThreadIds();
+        long[] bytes = ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(ids);
+        for (int i = 0; i < ids.length; i++) {
+            if (bytes[i] >= 0) {
+                allocated.put(ids[i], bytes[i]);
+            }
+        }
+        return allocated;
+    }
+
+    private static int[] parseSizes(String sizes) {
+        String[] parts = sizes.split(",");
+        int[] result = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            result[i] = Integer.parseInt(parts[i].trim());
+        }
+        return result;
+    }
+
+    private interface Operation {
+        void run() throws IOException;
+    }
+
+    private static class Result {
+        double millisPerOp;
+        double allocatedMegabytesPerOp;
+        int exitedThreads;
+    }
+}